@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/** Coalesces identical concurrent calls of the method. While a call is in
+ * progress, the calls with the same request parameters, inputType and
+ * outputType do not invoke the method but wait for the running one and get
+ * its serialized response. Use it only on methods which give the same result
+ * for the same request parameters.
+ *
+ * If the first call fails or its response can not be shared (e.g. a file
+ * download), the waiting calls invoke the method on their own. If the
+ * servlet supports asynchronous requests, the waiting calls release their
+ * container threads and wait on virtual threads.
+ *
+ * @author Artur
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Coalesce {
+    /**
+     * @return Maximal time in milliseconds a call waits for the running one,
+     * after that it invokes the method on its own.
+     */
+    long maxWaitMillis() default 5000;
+    /**
+     * @return true if the response depends on the logged in user, so only
+     * the calls of the same session are coalesced. It is always the case for
+     * {@link org.jaxygen.security.annotations.Secured} methods and for
+     * classes with the security or session context fields.
+     */
+    boolean perSession() default false;
+}
@@ -41,4 +41,18 @@ public @interface NetAPI {
      * @return Version name.
   */
  String version() default "";
+ /** Maximal number of concurrent calls of the method. Used on the class it
+  * limits all the NetAPI methods of the class together, unless the method
+  * declares its own limit. The limit might be changed at runtime through the
+  * {@link org.jaxygen.bulkhead.BulkheadRegistry}.
+     * @return Number of concurrent calls, 0 means unlimited.
+  */
+ int maxConcurrency() default 0;
+ /** How long a call executed on a virtual thread waits for a free slot when
+  * the maxConcurrency limit is reached. The call is rejected with HTTP 503
+  * after this time. The calls executed on the container threads and in the
+  * batches do not wait, they are rejected at once.
+     * @return Time in milliseconds, 0 rejects the call immediately.
+  */
+ long maxWaitMillis() default 0;
 }
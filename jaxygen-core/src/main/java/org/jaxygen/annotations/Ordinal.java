@@ -0,0 +1,44 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/** Position of the field in the schema driven MessagePack form
+ * (MSGPACK/SCHEMA), where the beans are written as arrays of the field
+ * values. The fields of the superclasses go first. Within a class the fields
+ * go in the order of their ordinals if all of them are annotated, or in the
+ * order of their names if none is; annotating only some fields is an error.
+ *
+ * Only the classes with the ordinals can evolve: give the field added to
+ * the last class of a hierarchy an ordinal higher than the ones already
+ * used, so the peers knowing the previous version still read the class.
+ * Adding a field to a class ordered by names moves the fields sorted after
+ * it, and the peers not knowing the field read wrong values.
+ *
+ * @author Artur
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Ordinal {
+    /**
+     * @return Position of the field among the fields of its class.
+     */
+    int value();
+}
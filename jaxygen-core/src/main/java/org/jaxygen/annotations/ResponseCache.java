@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/** Turns on the server side cache of the method responses. Use it only on
+ * methods which give the same result for the same request parameters, e.g.
+ * lookups of dictionary data.
+ *
+ * The serialized response is cached per request parameters, inputType and
+ * outputType, so a cache hit skips both the method call and the
+ * serialization. The security check is done for every call.
+ *
+ * @author Artur
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ResponseCache {
+    /**
+     * @return Time in milliseconds for which the response is reused.
+     */
+    long ttlMillis() default 60000;
+    /**
+     * @return Maximal number of the cached responses, the least recently used
+     * ones are dropped first.
+     */
+    int maxEntries() default 1000;
+    /**
+     * @return true if the response depends on the logged in user, so it is
+     * cached separately for each session. The responses of {@link
+     * org.jaxygen.security.annotations.Secured} methods and of classes with
+     * the security or session context fields are always cached per session.
+     */
+    boolean perSession() default false;
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/** Marks the NetAPI methods which block (e.g. on JDBC or remote calls) and
+ * should be executed on a virtual thread instead of the container thread.
+ * Put it on the class to dispatch all its methods this way.
+ *
+ * The servlet must be declared with &lt;async-supported&gt;true&lt;/async-supported&gt;,
+ * otherwise the method is called on the container thread. On Java runtimes
+ * without virtual threads a pool of platform threads is used instead.
+ *
+ * @author Artur
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface RunOnVirtualThread {
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.annotations;
+
+/**Lifecycle of the service class instances.
+ *
+ * @author Artur Keska
+ */
+public enum Scope {
+    /** A new instance is created for every call */
+    Request,
+    /** At most poolSize instances are created and reused, each one serves a
+     * single call at a time */
+    Pooled,
+    /** A single instance serves all the calls concurrently */
+    Singleton
+}
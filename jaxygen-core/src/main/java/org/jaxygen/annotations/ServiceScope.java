@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/** Declares how the instances of the service class are managed by the
+ * {@link org.jaxygen.objectsbuilder.ScopedObjectBuilder}. Classes without
+ * this annotation are created for every call.
+ *
+ * Singleton instances are shared by concurrent calls, so they must not have
+ * fields annotated by {@link SessionContext} or
+ * {@link org.jaxygen.security.annotations.SecurityContext}. Use the Pooled
+ * scope for such classes.
+ *
+ * @author Artur Keska
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ServiceScope {
+    /**
+     * @return Lifecycle of the class instances.
+     */
+    Scope value() default Scope.Request;
+    /**
+     * @return Maximal number of instances of the Pooled scope. A call finding
+     * all of them busy waits for a free one.
+     */
+    int poolSize() default 16;
+    /**
+     * @return Time in milliseconds a call waits for a free instance of the
+     * Pooled scope before it fails, 0 fails at once.
+     */
+    long maxWaitMillis() default 1000;
+}
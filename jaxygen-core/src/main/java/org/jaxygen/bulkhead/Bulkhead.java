@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.bulkhead;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the number of concurrent calls of a group of NetAPI methods, so a
+ * slow method can not take all the container threads. The limits might be
+ * changed while the calls are running; lowering the limit does not interrupt
+ * the calls already admitted.
+ *
+ * @author Artur
+ */
+public class Bulkhead {
+
+    /**
+     * Semaphore which allows to take away the permits.
+     */
+    private static class ResizableSemaphore extends Semaphore {
+
+        private static final long serialVersionUID = 4915231874220984375L;
+
+        ResizableSemaphore(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+
+    private final String name;
+    private final ResizableSemaphore semaphore;
+    private final LongAdder rejected = new LongAdder();
+    private int maxConcurrency;
+    private volatile long maxWaitMillis;
+
+    /**
+     * @param name Name of the bulkhead, the class or class.method name.
+     * @param maxConcurrency Maximal number of concurrent calls.
+     * @param maxWaitMillis Time the call waits for a free slot.
+     */
+    public Bulkhead(String name, int maxConcurrency, long maxWaitMillis) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Concurrency limit of " + name + " must be positive");
+        }
+        this.name = name;
+        this.maxConcurrency = maxConcurrency;
+        this.maxWaitMillis = maxWaitMillis;
+        this.semaphore = new ResizableSemaphore(maxConcurrency);
+    }
+
+    /**
+     * Try to enter the bulkhead, waiting at most maxWaitMillis.
+     *
+     * @return true if the call was admitted. It must call {@link #release()}
+     * when finished.
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(true);
+    }
+
+    /**
+     * Try to enter the bulkhead.
+     *
+     * @param wait false to reject the call at once if the bulkhead is full,
+     * e.g. on a container thread which must not be held.
+     * @return true if the call was admitted. It must call {@link #release()}
+     * when finished.
+     */
+    public boolean tryAcquire(boolean wait) {
+        boolean acquired;
+        long waitMillis = wait ? maxWaitMillis : 0;
+        if (waitMillis > 0) {
+            try {
+                acquired = semaphore.tryAcquire(waitMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            }
+        } else {
+            acquired = semaphore.tryAcquire();
+        }
+        if (!acquired) {
+            rejected.increment();
+        }
+        return acquired;
+    }
+
+    /**
+     * Leave the bulkhead.
+     */
+    public void release() {
+        semaphore.release();
+    }
+
+    /**
+     * Change the limits.
+     *
+     * @param maxConcurrency New maximal number of concurrent calls.
+     * @param maxWaitMillis New time the call waits for a free slot.
+     */
+    public synchronized void setLimits(int maxConcurrency, long maxWaitMillis) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Concurrency limit of " + name + " must be positive");
+        }
+        int delta = maxConcurrency - this.maxConcurrency;
+        if (delta > 0) {
+            semaphore.release(delta);
+        } else if (delta < 0) {
+            semaphore.reducePermits(-delta);
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    /**
+     * @return Number of free slots, negative after the limit was lowered
+     * below the number of running calls.
+     */
+    public int getAvailable() {
+        return semaphore.availablePermits();
+    }
+
+    /**
+     * @return Number of calls rejected so far.
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
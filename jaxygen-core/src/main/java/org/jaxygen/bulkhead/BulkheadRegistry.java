@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.bulkhead;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the bulkheads of the NetAPI methods. A bulkhead is created with the
+ * limits declared by {@link org.jaxygen.annotations.NetAPI}, the application
+ * might look it up here to change the limits at runtime, e.g.
+ * <pre>
+ * BulkheadRegistry.getBulkhead("com.example.ReportService").setLimits(2, 500);
+ * </pre>
+ *
+ * @author Artur
+ */
+public class BulkheadRegistry {
+
+    private static final ConcurrentMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<String, Bulkhead>();
+
+    private BulkheadRegistry() {
+    }
+
+    /**
+     * Get the bulkhead of the given name, creating it with given limits if it
+     * does not exist yet.
+     *
+     * @param name Class name or class.method name.
+     * @param maxConcurrency Initial maximal number of concurrent calls.
+     * @param maxWaitMillis Initial wait time for a free slot.
+     * @return The bulkhead.
+     */
+    public static Bulkhead register(String name, int maxConcurrency, long maxWaitMillis) {
+        Bulkhead bulkhead = bulkheads.get(name);
+        if (bulkhead == null) {
+            bulkhead = new Bulkhead(name, maxConcurrency, maxWaitMillis);
+            Bulkhead current = bulkheads.putIfAbsent(name, bulkhead);
+            if (current != null) {
+                bulkhead = current;
+            }
+        }
+        return bulkhead;
+    }
+
+    /**
+     * @param name Class name (for limits declared on the class) or
+     * class.method name (for limits declared on the method).
+     * @return The bulkhead or null if there is no such.
+     */
+    public static Bulkhead getBulkhead(String name) {
+        return bulkheads.get(name);
+    }
+
+    /**
+     * @return All the registered bulkheads.
+     */
+    public static Collection<Bulkhead> getBulkheads() {
+        return new ArrayList<Bulkhead>(bulkheads.values());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.cache;
+
+import org.jaxygen.http.ETags;
+
+/**
+ * Serialized response kept by the {@link ResultCache}.
+ *
+ * @author Artur
+ */
+public class CachedResponse {
+
+    private final byte[] body;
+    private final long expiresAt;
+    private volatile String etag;
+
+    /**
+     * @param body Serialized response.
+     * @param expiresAt System.currentTimeMillis() after which the response is
+     * not valid.
+     */
+    public CachedResponse(byte[] body, long expiresAt) {
+        this.body = body;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * @return The serialized response, must not be modified.
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * @return ETag of the body, computed on the first use.
+     */
+    public String getETag() {
+        String rc = etag;
+        if (rc == null) {
+            rc = ETags.fromBytes(body);
+            etag = rc;
+        }
+        return rc;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+}
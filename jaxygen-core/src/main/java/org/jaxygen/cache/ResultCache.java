@@ -0,0 +1,140 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size bounded cache of serialized responses with expiration time. The keys
+ * are spread over independently locked segments, each keeping its entries in
+ * the LRU order, so concurrent calls rarely wait for each other.
+ *
+ * @author Artur
+ */
+public class ResultCache {
+
+    private static final int SEGMENTS = 16;
+
+    private static class Segment extends LinkedHashMap<String, CachedResponse> {
+
+        private static final long serialVersionUID = 6046291834212378121L;
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    private final Segment[] segments;
+    private final long ttlMillis;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxEntries Maximal number of the cached responses.
+     * @param ttlMillis Time for which a response is valid.
+     */
+    public ResultCache(int maxEntries, long ttlMillis) {
+        int segmentCount = Math.max(1, Math.min(SEGMENTS, maxEntries));
+        int capacity = Math.max(1, (maxEntries + segmentCount - 1) / segmentCount);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(capacity);
+        }
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @param key Canonical request key.
+     * @return The cached response or null if there is no valid one.
+     */
+    public CachedResponse get(String key) {
+        Segment segment = segment(key);
+        CachedResponse response;
+        synchronized (segment) {
+            response = segment.get(key);
+            if (response != null && response.isExpired(System.currentTimeMillis())) {
+                segment.remove(key);
+                response = null;
+            }
+        }
+        if (response == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return response;
+    }
+
+    /**
+     * @param key Canonical request key.
+     * @param body Serialized response.
+     */
+    public void put(String key, byte[] body) {
+        CachedResponse response = new CachedResponse(body, System.currentTimeMillis() + ttlMillis);
+        Segment segment = segment(key);
+        synchronized (segment) {
+            segment.put(key, response);
+        }
+    }
+
+    /**
+     * Drop all the cached responses.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * @return Number of cached responses, including the expired ones not
+     * removed yet.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private Segment segment(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[(h & 0x7fffffff) % segments.length];
+    }
+}
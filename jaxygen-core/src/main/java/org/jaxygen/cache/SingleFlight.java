@@ -0,0 +1,136 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the calls in progress, keyed by the canonical request key. The
+ * first call of a key becomes the leader and invokes the method, the calls
+ * arriving while it runs become followers and wait for the serialized
+ * response of the leader.
+ *
+ * @author Artur
+ */
+public class SingleFlight {
+
+    /**
+     * A call in progress.
+     */
+    public class Flight {
+
+        private final String key;
+        private final Flight leader;
+        private final CountDownLatch done;
+        private volatile byte[] body;
+
+        private Flight(String key, Flight leader) {
+            this.key = key;
+            this.leader = leader;
+            this.done = leader == null ? new CountDownLatch(1) : leader.done;
+        }
+
+        /**
+         * @return true if this call must invoke the method and complete the
+         * flight.
+         */
+        public boolean isLeader() {
+            return leader == null;
+        }
+
+        /**
+         * Share the serialized response with the followers. Called by the
+         * leader only.
+         *
+         * @param body The serialized response, must not be modified later.
+         */
+        public void complete(byte[] body) {
+            this.body = body;
+            release();
+        }
+
+        /**
+         * End the flight. The followers still waiting get the response given
+         * to {@link #complete(byte[])}, or null if there was none. Called by
+         * the leader only, any number of times.
+         */
+        public void release() {
+            if (leader == null && flights.remove(key, this)) {
+                done.countDown();
+            }
+        }
+
+        /**
+         * Wait for the leader. Called by a follower only.
+         *
+         * @return The response of the leader or null if the leader did not
+         * share one in time.
+         * @throws InterruptedException .
+         */
+        public byte[] await() throws InterruptedException {
+            if (done.await(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                return leader.body;
+            }
+            return null;
+        }
+    }
+
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<String, Flight>();
+    private final long maxWaitMillis;
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param maxWaitMillis Maximal time a follower waits for the leader.
+     */
+    public SingleFlight(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Join the flight of the key or start a new one.
+     *
+     * @param key Canonical request key.
+     * @return The flight, check {@link Flight#isLeader()} for the role of the
+     * caller.
+     */
+    public Flight join(String key) {
+        Flight flight = new Flight(key, null);
+        Flight current = flights.putIfAbsent(key, flight);
+        if (current == null) {
+            return flight;
+        }
+        coalesced.increment();
+        return new Flight(key, current);
+    }
+
+    /**
+     * @return Number of calls which waited for another one.
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return Number of the calls in progress.
+     */
+    public int getInFlight() {
+        return flights.size();
+    }
+}
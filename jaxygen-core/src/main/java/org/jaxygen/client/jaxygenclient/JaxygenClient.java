@@ -17,6 +17,7 @@ package org.jaxygen.client.jaxygenclient;
 
 import com.google.gson.Gson;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
@@ -25,6 +26,7 @@ import java.io.PipedOutputStream;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.net.URI;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
@@ -34,12 +36,21 @@ import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.FormBodyPart;
 import org.apache.http.entity.mime.MultipartEntity;
 import org.apache.http.entity.mime.content.InputStreamBody;
 import org.apache.http.entity.mime.content.StringBody;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.jaxygen.converters.json.JsonMultipartRequestConverter;
+import org.jaxygen.converters.msgpack.MsgPackRequestConverter;
+import org.jaxygen.converters.msgpack.SchemaMsgPackRequestConverter;
+import org.jaxygen.converters.msgpack.SchemaMsgPackResponseConverter;
+import org.jaxygen.converters.msgpack.codec.MsgPackCodec;
+import org.jaxygen.converters.msgpack.codec.MsgPackCodecs;
+import org.jaxygen.converters.msgpack.codec.MsgPackInput;
+import org.jaxygen.converters.msgpack.codec.MsgPackOutput;
 import org.jaxygen.converters.sjo.SJOResponseConverter;
 import org.jaxygen.dto.ExceptionResponse;
 import org.jaxygen.dto.Response;
@@ -54,7 +65,29 @@ import org.jaxygen.security.basic.SecuredMethodDescriptor;
  */
 public class JaxygenClient {
 
+    /**
+     * Form of the data exchanged with the server.
+     */
+    public enum Encoding {
+
+        /**
+         * Parameters sent as JSON, responses received as serialized Java
+         * objects.
+         */
+        SJO,
+        /**
+         * Parameters and responses in the schema driven MessagePack form, the
+         * most compact one. The client and the server must share the DTO
+         * classes.
+         */
+        MSGPACK_SCHEMA
+    }
+
+    private static final String SCHEMA_QUERY = "?inputType=" + SchemaMsgPackRequestConverter.NAME.replace("/", "%2F")
+            + "&outputType=" + SchemaMsgPackResponseConverter.NAME.replace("/", "%2F");
+    private static final ContentType MSGPACK = ContentType.create(MsgPackRequestConverter.CONTENT_TYPE);
     private final String url;
+    private final Encoding encoding;
     private final Gson gson = new Gson();
     private final Session session = new Session();
     private static final Logger LOGGER = Logger.getLogger(Handler.class.getName());
@@ -128,6 +161,10 @@ public class JaxygenClient {
                 }
             }
 
+            if (encoding == Encoding.MSGPACK_SCHEMA) {
+                return invokeSchema(method, args, post, methodUrl);
+            }
+
             if (args != null) {
                 for (Object o : args) {
                     IOProxy p = new IOProxy();
@@ -143,12 +180,7 @@ public class JaxygenClient {
             HttpResponse response = new DefaultHttpClient().execute(post);
             final HttpEntity e = response.getEntity();
 
-            Header[] hCookies = response.getHeaders("Set-Cookie");
-            if (hCookies != null) {
-                for (Header h : hCookies) {
-                    session.cookies.add(h.getValue());
-                }
-            }
+            storeCookies(response);
 
             ObjectInputStream osi = null;
             final StringBuffer sb = new StringBuffer(256);
@@ -168,16 +200,10 @@ public class JaxygenClient {
                     osi = new ObjectInputStream(inputProxy);
                     Response wrappedResponse = (Response) osi.readObject();
                     if (wrappedResponse instanceof ExceptionResponse) {
-                        ExceptionResponse exr = (ExceptionResponse) wrappedResponse;
-                        Class<Throwable> exClass = (Class<Throwable>) getClass().getClassLoader().loadClass(exr.getExceptionData().getExceptionClass());
-                        appException = exClass.newInstance();
+                        appException = newException((ExceptionResponse) wrappedResponse);
                     }
                     if (appException == null) {
-                        if (SecurityProfile.class.equals(method.getReturnType())) {
-                            return convertDtoToSecurityProfile((SecurityProfileDTO) wrappedResponse.getDto().getResponseObject());
-                        } else {
-                            return wrappedResponse.getDto().getResponseObject();
-                        }
+                        return result(method, wrappedResponse);
                     }
                 } catch (Throwable ex) {
                     throw new InvocationTargetException(ex, "Unexpected server response: " + sb.toString());
@@ -193,6 +219,80 @@ public class JaxygenClient {
             return null;
         }
 
+        /**
+         * Call the method with the parameters and the response in the schema
+         * driven MessagePack form. A single parameter is sent as is, more
+         * parameters as an array.
+         */
+        private Object invokeSchema(Method method, Object[] args, HttpPost post, String methodUrl) throws Throwable {
+            MsgPackCodecs codecs = MsgPackCodecs.ordinal();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            if (args != null && args.length > 0) {
+                MsgPackOutput out = new MsgPackOutput(body);
+                try {
+                    Class<?>[] parameterTypes = method.getParameterTypes();
+                    if (args.length > 1) {
+                        out.writeArrayHeader(args.length);
+                    }
+                    for (int i = 0; i < args.length; i++) {
+                        codecs.write(args[i], codecs.forType(parameterTypes[i]), out);
+                    }
+                    out.flush();
+                } finally {
+                    out.release();
+                }
+            }
+            post.setURI(URI.create(methodUrl + SCHEMA_QUERY));
+            post.setEntity(new ByteArrayEntity(body.toByteArray(), MSGPACK));
+            HttpResponse response = new DefaultHttpClient().execute(post);
+            storeCookies(response);
+
+            Throwable appException;
+            InputStream in = response.getEntity().getContent();
+            MsgPackInput input = new MsgPackInput(in);
+            try {
+                if (method.getReturnType() != void.class) {
+                    // the reader accepts only the classes known from the declared types
+                    codecs.forType(method.getGenericReturnType());
+                }
+                MsgPackCodec responseCodec = codecs.forType(Object.class);
+                Response wrappedResponse = (Response) MsgPackCodecs.read(responseCodec, input);
+                if (!(wrappedResponse instanceof ExceptionResponse)) {
+                    return result(method, wrappedResponse);
+                }
+                appException = newException((ExceptionResponse) wrappedResponse);
+            } catch (Throwable ex) {
+                throw new InvocationTargetException(ex, "Unexpected server response");
+            } finally {
+                input.release();
+                in.close();
+            }
+            throw appException;
+        }
+
+        private void storeCookies(HttpResponse response) {
+            Header[] hCookies = response.getHeaders("Set-Cookie");
+            if (hCookies != null) {
+                for (Header h : hCookies) {
+                    session.cookies.add(h.getValue());
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private Throwable newException(ExceptionResponse exr) throws Exception {
+            Class<Throwable> exClass = (Class<Throwable>) getClass().getClassLoader().loadClass(exr.getExceptionData().getExceptionClass());
+            return exClass.newInstance();
+        }
+
+        private Object result(Method method, Response wrappedResponse) {
+            if (SecurityProfile.class.equals(method.getReturnType())) {
+                return convertDtoToSecurityProfile((SecurityProfileDTO) wrappedResponse.getDto().getResponseObject());
+            } else {
+                return wrappedResponse.getDto().getResponseObject();
+            }
+        }
+
         private SecurityProfile convertDtoToSecurityProfile(final SecurityProfileDTO dto) {
 
             return new SecurityProfile() {
@@ -218,7 +318,16 @@ public class JaxygenClient {
     };
 
     public JaxygenClient(final String homeURL) {
+        this(homeURL, Encoding.SJO);
+    }
+
+    /**
+     * @param homeURL URL of the Jaxygen servlet.
+     * @param encoding Form of the data exchanged with the server.
+     */
+    public JaxygenClient(final String homeURL, final Encoding encoding) {
         this.url = homeURL;
+        this.encoding = encoding;
     }
 
     public <T> T lookup(final String className, Class<T> remoteInterface) {
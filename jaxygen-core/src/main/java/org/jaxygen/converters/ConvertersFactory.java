@@ -15,25 +15,51 @@
  */
 package org.jaxygen.converters;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
-/**
+/** Registry of the request and response converters, by name.
+ *
+ * The converters are looked up on every call, so the registry is never
+ * locked for reading. Each registration replaces the whole map by an
+ * updated copy, registrations are rare (mostly while the servlet starts).
  *
  * @author Artur Keska
  */
 public class ConvertersFactory {
-  private static final Map<String, RequestConverter> requestConverters = Collections.synchronizedMap(new HashMap<String, RequestConverter>());
-  private static final Map<String, ResponseConverter> responseConverters = Collections.synchronizedMap(new HashMap<String, ResponseConverter>());
-  
+  private static final Object registrationLock = new Object();
+  private static volatile Map<String, RequestConverter> requestConverters = Collections.emptyMap();
+  private static volatile Map<String, ResponseConverter> responseConverters = Collections.emptyMap();
+  private static volatile int revision;
 
   public static void registerRequestConverter(RequestConverter coverter) {
-   requestConverters.put(coverter.getName(),coverter);
+    synchronized (registrationLock) {
+      Map<String, RequestConverter> converters = new HashMap<String, RequestConverter>(requestConverters);
+      converters.put(coverter.getName(), coverter);
+      requestConverters = Collections.unmodifiableMap(converters);
+      revision++;
+    }
   }
   
   public static void registerResponseConverter(ResponseConverter converter) {
-   responseConverters.put(converter.getName(), converter);
+    synchronized (registrationLock) {
+      Map<String, ResponseConverter> converters = new HashMap<String, ResponseConverter>(responseConverters);
+      converters.put(converter.getName(), converter);
+      responseConverters = Collections.unmodifiableMap(converters);
+      revision++;
+    }
+  }
+
+  /** Obtain the number of the registrations done so far. The converters
+   * resolved earlier might be cached as long as the revision does not change.
+   *
+   * @return Revision of the registry.
+   */
+  public static int getRevision() {
+    return revision;
   }
   
   /** Obtain request converted for given name
@@ -41,7 +67,7 @@ public class ConvertersFactory {
    * @param name converter name (build in converters: PROPERTIES)
    * @return Request converter.
    */
-  public static synchronized RequestConverter getRequestConverter(final String name) {
+  public static RequestConverter getRequestConverter(final String name) {
     return requestConverters.get(name);
   }
   
@@ -50,7 +76,23 @@ public class ConvertersFactory {
    * @param name converter name
    * @return Response converter.
    */
-  public static synchronized ResponseConverter getResponseConverter(final String name) {
+  public static ResponseConverter getResponseConverter(final String name) {
     return responseConverters.get(name);
   }
+
+  /** Obtain all the registered request converters.
+   *
+   * @return Copy of the list of request converters.
+   */
+  public static Collection<RequestConverter> getRequestConverters() {
+    return new ArrayList<RequestConverter>(requestConverters.values());
+  }
+
+  /** Obtain all the registered response converters.
+   *
+   * @return Copy of the list of response converters.
+   */
+  public static Collection<ResponseConverter> getResponseConverters() {
+    return new ArrayList<ResponseConverter>(responseConverters.values());
+  }
 }
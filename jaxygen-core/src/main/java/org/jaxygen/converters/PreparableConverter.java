@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters;
+
+/** Converter which builds per class metadata (bean introspection, type
+ * adapters etc.) on first use. The {@link org.jaxygen.invoker.ServiceInvoker}
+ * prepares the converters for all the registered services on startup, so the
+ * first requests are not slowed down by it.
+ *
+ * @author Artur
+ */
+public interface PreparableConverter {
+
+  /** Build the metadata needed to convert the given class.
+   *
+   * @param type Parameter or result class of a service method.
+   * @throws Exception if the class can not be handled by the converter.
+   */
+  void prepare(Class<?> type) throws Exception;
+}
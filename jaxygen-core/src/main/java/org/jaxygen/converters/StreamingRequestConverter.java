@@ -0,0 +1,44 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters;
+
+import java.io.InputStream;
+import org.jaxygen.converters.exceptions.DeserialisationError;
+
+/** Request converter reading all the parameters of the called method
+ * directly from the request body, without collecting the body into the
+ * request parameters first.
+ *
+ * The {@link RequestConverter#deserialise(org.jaxygen.http.HttpRequestParams, Class)}
+ * method is still used where there is no body to read, e.g. for the calls of
+ * a batch request.
+ *
+ * @author Artur
+ */
+public interface StreamingRequestConverter extends RequestConverter {
+
+  /** Read the parameters of the called method.
+   *
+   * @param body Request body, it is not closed by the converter.
+   * @param charset Character encoding of the body, null for UTF-8.
+   * @param parameterTypes Classes of the method parameters.
+   * @param parameterNames Names of the method parameters, null if the class
+   * was compiled without them.
+   * @return Values of the parameters, in order of the parameterTypes.
+   * @throws DeserialisationError on malformed body.
+   */
+  Object[] deserialise(InputStream body, String charset, Class<?>[] parameterTypes, String[] parameterNames) throws DeserialisationError;
+}
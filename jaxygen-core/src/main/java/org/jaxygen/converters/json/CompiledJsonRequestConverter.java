@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.json;
+
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.io.StringReader;
+import org.jaxygen.converters.PreparableConverter;
+import org.jaxygen.converters.RequestConverter;
+import org.jaxygen.converters.exceptions.DeserialisationError;
+import org.jaxygen.converters.json.codec.JsonCodecs;
+import org.jaxygen.http.HttpRequestParams;
+
+/**
+ * Reads the parameters sent in the form accepted by
+ * {@link JsonRequestConverter}, using the compiled
+ * {@link org.jaxygen.converters.json.codec.JsonCodec}s instead of the Gson
+ * reflective adapters.
+ *
+ * @author Artur
+ */
+public class CompiledJsonRequestConverter implements RequestConverter, PreparableConverter {
+
+  public final static String NAME = "JSON/COMPILED";
+
+  public String getName() {
+    return NAME;
+  }
+
+  public Object deserialise(HttpRequestParams params, Class<?> beanClass) throws DeserialisationError {
+    try {
+      final String json = params.getAsString(beanClass.getName(), 1, Integer.MAX_VALUE, true);
+      JsonReader reader = new JsonReader(new StringReader(json));
+      reader.setLenient(true);
+      return JsonCodecs.forType(beanClass).read(reader);
+    } catch (IOException ex) {
+      throw new DeserialisationError("Could not obtain field data for class " + beanClass.getName(), ex);
+    } catch (RuntimeException ex) {
+      throw new DeserialisationError("Could not parse field data for class " + beanClass.getName(), ex);
+    }
+  }
+
+  public void prepare(Class<?> type) {
+    JsonCodecs.forType(type);
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.json;
+
+import java.io.OutputStream;
+import org.jaxygen.converters.PreparableConverter;
+import org.jaxygen.converters.ResponseConverter;
+import org.jaxygen.converters.exceptions.SerializationError;
+import org.jaxygen.converters.json.codec.JsonCodecs;
+import org.jaxygen.converters.json.codec.JsonOutput;
+
+/**
+ * Writes the same JSON as {@link JsonResponseConverter}, using the compiled
+ * {@link org.jaxygen.converters.json.codec.JsonCodec}s instead of the Gson
+ * reflective adapters.
+ *
+ * @author Artur
+ */
+public class CompiledJsonResponseConverter implements ResponseConverter, PreparableConverter {
+
+  public final static String NAME = "JSON/COMPILED";
+
+  public void serialize(Object object, OutputStream writter) throws SerializationError {
+    try {
+      JsonOutput out = new JsonOutput(writter);
+      if (object == null) {
+        out.writeNull();
+      } else {
+        JsonCodecs.forType(object.getClass()).write(object, out);
+      }
+      out.flush();
+    } catch (Exception ex) {
+      throw new SerializationError("Could not serialize output data.", ex);
+    }
+  }
+
+  public void prepare(Class<?> type) {
+    JsonCodecs.forType(type);
+  }
+
+  public String getName() {
+    return NAME;
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import org.jaxygen.converters.PreparableConverter;
+import org.jaxygen.converters.StreamingRequestConverter;
+import org.jaxygen.converters.exceptions.DeserialisationError;
+import org.jaxygen.converters.json.codec.JsonCodecs;
+import org.jaxygen.http.HttpRequestParams;
+
+/**
+ * Reads the method parameters from an application/json request body. The
+ * body is parsed while it is read from the request stream, it is never
+ * collected into a String.
+ *
+ * For methods with a single parameter the body is the JSON form of the
+ * parameter. Methods with more parameters take either an array of the
+ * parameters, in order, or an object with the parameters keyed by their
+ * position ("0", "1", ...), their name (if the service is compiled with the
+ * -parameters option) or the name of their class.
+ *
+ * @author Artur
+ */
+public class JsonBodyRequestConverter implements StreamingRequestConverter, PreparableConverter {
+
+  public final static String NAME = "JSON/BODY";
+  public final static String CONTENT_TYPE = "application/json";
+
+  public String getName() {
+    return NAME;
+  }
+
+  public Object[] deserialise(InputStream body, String charset, Class<?>[] parameterTypes, String[] parameterNames) throws DeserialisationError {
+    Object[] parameters = new Object[parameterTypes.length];
+    try {
+      JsonReader reader = new JsonReader(new InputStreamReader(body, charset == null ? "UTF-8" : charset));
+      reader.setLenient(true);
+      if (parameterTypes.length == 0 || isEmpty(reader)) {
+        return parameters;
+      }
+      if (parameterTypes.length == 1) {
+        parameters[0] = JsonCodecs.forType(parameterTypes[0]).read(reader);
+      } else if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+        reader.beginArray();
+        for (int i = 0; reader.hasNext(); i++) {
+          if (i < parameterTypes.length) {
+            parameters[i] = JsonCodecs.forType(parameterTypes[i]).read(reader);
+          } else {
+            reader.skipValue();
+          }
+        }
+        reader.endArray();
+      } else {
+        reader.beginObject();
+        while (reader.hasNext()) {
+          int index = indexOf(reader.nextName(), parameterTypes, parameterNames);
+          if (index < 0) {
+            reader.skipValue();
+          } else {
+            parameters[index] = JsonCodecs.forType(parameterTypes[index]).read(reader);
+          }
+        }
+        reader.endObject();
+      }
+    } catch (IOException ex) {
+      throw new DeserialisationError("Could not read request body", ex);
+    } catch (RuntimeException ex) {
+      throw new DeserialisationError("Could not parse request body", ex);
+    }
+    return parameters;
+  }
+
+  /** Read the parameter from the request parameter named after its class,
+   * as {@link JsonRequestConverter} does.
+   */
+  public Object deserialise(HttpRequestParams params, Class<?> beanClass) throws DeserialisationError {
+    try {
+      final String json = params.getAsString(beanClass.getName(), 1, Integer.MAX_VALUE, true);
+      JsonReader reader = new JsonReader(new StringReader(json));
+      reader.setLenient(true);
+      return JsonCodecs.forType(beanClass).read(reader);
+    } catch (IOException ex) {
+      throw new DeserialisationError("Could not obtain field data for class " + beanClass.getName(), ex);
+    } catch (RuntimeException ex) {
+      throw new DeserialisationError("Could not parse field data for class " + beanClass.getName(), ex);
+    }
+  }
+
+  public void prepare(Class<?> type) {
+    JsonCodecs.forType(type);
+  }
+
+  private static boolean isEmpty(JsonReader reader) throws IOException {
+    try {
+      reader.peek();
+      return false;
+    } catch (EOFException ex) {
+      return true;
+    }
+  }
+
+  private static int indexOf(String key, Class<?>[] parameterTypes, String[] parameterNames) {
+    for (int i = 0; i < parameterTypes.length; i++) {
+      if (key.equals(Integer.toString(i)) || key.equals(parameterTypes[i].getName())
+              || (parameterNames != null && key.equals(parameterNames[i]))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
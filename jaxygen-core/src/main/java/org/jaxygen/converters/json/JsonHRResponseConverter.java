@@ -18,7 +18,7 @@ package org.jaxygen.converters.json;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import java.io.OutputStream;
-import java.nio.charset.Charset;
+import org.jaxygen.converters.PreparableConverter;
 import org.jaxygen.converters.ResponseConverter;
 import org.jaxygen.converters.exceptions.SerializationError;
 
@@ -26,21 +26,23 @@ import org.jaxygen.converters.exceptions.SerializationError;
  *
  * @author artur
  */
-public class JsonHRResponseConverter implements ResponseConverter {
+public class JsonHRResponseConverter implements ResponseConverter, PreparableConverter {
 
   public final static String NAME = "JSONHR";
+  private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
 
   public void serialize(Object object, OutputStream writter) throws SerializationError {
     try {
-
-      Gson gson = new GsonBuilder().setPrettyPrinting().create();
-      final String json = gson.toJson(object);
-      writter.write(json.getBytes(Charset.forName("UTF-8")));
+      JsonResponseConverter.write(gson, object, writter, "  ");
     } catch (Exception ex) {
       throw new SerializationError("Could not serialize output data.", ex);
     }
   }
 
+  public void prepare(Class<?> type) {
+    gson.getAdapter(type);
+  }
+
   public String getName() {
     return NAME;
   }
@@ -21,6 +21,7 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.HashMap;
 import java.util.Map;
+import org.jaxygen.converters.PreparableConverter;
 import org.jaxygen.converters.RequestConverter;
 import org.jaxygen.converters.exceptions.DeserialisationError;
 import org.jaxygen.converters.properties.PropertiesToBeanConverter;
@@ -31,7 +32,7 @@ import org.jaxygen.network.UploadedFile;
  *
  * @author imfact02
  */
-public class JsonMultipartRequestConverter implements RequestConverter {
+public class JsonMultipartRequestConverter implements RequestConverter, PreparableConverter {
 
   public final static String NAME = "JSON/MULTIPART";
   private static Gson gson = new Gson();
@@ -72,4 +73,8 @@ public class JsonMultipartRequestConverter implements RequestConverter {
     }
     return rc;
   }
+
+  public void prepare(Class<?> type) {
+    gson.getAdapter(type);
+  }
 }
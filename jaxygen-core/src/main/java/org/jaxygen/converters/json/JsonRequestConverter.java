@@ -17,6 +17,7 @@ package org.jaxygen.converters.json;
 
 import com.google.gson.Gson;
 import java.io.IOException;
+import org.jaxygen.converters.PreparableConverter;
 import org.jaxygen.converters.RequestConverter;
 import org.jaxygen.converters.exceptions.DeserialisationError;
 import org.jaxygen.http.HttpRequestParams;
@@ -25,7 +26,7 @@ import org.jaxygen.http.HttpRequestParams;
  *
  * @author xnet
  */
-public class JsonRequestConverter implements RequestConverter {
+public class JsonRequestConverter implements RequestConverter, PreparableConverter {
 
   public final static String NAME = "JSON";
   private static Gson gson = new Gson();
@@ -44,4 +45,8 @@ public class JsonRequestConverter implements RequestConverter {
     }
     return rc;
   }
+
+  public void prepare(Class<?> type) {
+    gson.getAdapter(type);
+  }
 }
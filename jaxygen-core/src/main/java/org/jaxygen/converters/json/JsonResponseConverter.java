@@ -17,8 +17,13 @@ package org.jaxygen.converters.json;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
+import org.jaxygen.converters.PreparableConverter;
 import org.jaxygen.converters.ResponseConverter;
 import org.jaxygen.converters.exceptions.SerializationError;
 
@@ -26,20 +31,46 @@ import org.jaxygen.converters.exceptions.SerializationError;
  *
  * @author artur
  */
-public class JsonResponseConverter implements ResponseConverter {
+public class JsonResponseConverter implements ResponseConverter, PreparableConverter {
 
  public final static String NAME = "JSON";
+ private static final Charset UTF8 = Charset.forName("UTF-8");
+ private static final int BUFFER_SIZE = 8192;
+ // Gson is thread safe and caches the type adapters, so one instance serves all calls
+ private static final Gson gson = new GsonBuilder().create();
 
  public void serialize(Object object, OutputStream writter) throws SerializationError {
   try {
-   Gson gson = new GsonBuilder().create();
-   final String json = gson.toJson(object);
-   writter.write(json.getBytes(Charset.forName("UTF-8")));
+   write(gson, object, writter, null);
   } catch (Exception ex) {
    throw new SerializationError("Could not serialize output data.", ex);
   }
  }
 
+ /**
+  * Stream the object as JSON to the output stream, without building the
+  * whole document in memory. The stream is flushed but not closed.
+  *
+  * @param gson Gson used to serialize the object.
+  * @param object The serialized object.
+  * @param out Output stream.
+  * @param indent Indent of the pretty printed output, null for the compact
+  * one.
+  * @throws IOException .
+  */
+ static void write(Gson gson, Object object, OutputStream out, String indent) throws IOException {
+  JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(out, UTF8), BUFFER_SIZE));
+  if (indent != null) {
+   writer.setIndent(indent);
+  }
+  gson.toJson(object, object == null ? Object.class : object.getClass(), writer);
+  writer.flush();
+ }
+
+ public void prepare(Class<?> type) {
+  gson.getAdapter(type);
+ }
+
  public String getName() {
   return NAME;
  }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.json.codec;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Codec of the object and primitive arrays.
+ *
+ * @author Artur
+ */
+class ArrayCodec extends JsonCodec {
+
+    private final Class<?> componentType;
+    private final Type genericComponentType;
+    private final JsonCodec componentCodec;
+
+    ArrayCodec(Type type) {
+        if (type instanceof GenericArrayType) {
+            genericComponentType = ((GenericArrayType) type).getGenericComponentType();
+            componentType = JsonCodecs.rawType(genericComponentType);
+        } else {
+            componentType = ((Class<?>) type).getComponentType();
+            genericComponentType = componentType;
+        }
+        componentCodec = JsonCodecs.isMonomorphic(componentType) ? JsonCodecs.forType(genericComponentType) : null;
+    }
+
+    @Override
+    public void write(Object value, JsonOutput out) throws IOException {
+        out.write('[');
+        if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            for (int i = 0; i < array.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                JsonCodecs.write(array[i], componentCodec, out);
+            }
+        } else {
+            final int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                componentCodec.write(Array.get(value, i), out);
+            }
+        }
+        out.write(']');
+    }
+
+    @Override
+    public Object read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        JsonCodec codec = componentCodec != null ? componentCodec : JsonCodecs.forType(genericComponentType);
+        List<Object> values = new ArrayList<Object>();
+        in.beginArray();
+        while (in.hasNext()) {
+            values.add(codec.read(in));
+        }
+        in.endArray();
+        Object array = Array.newInstance(componentType, values.size());
+        for (int i = 0; i < values.size(); i++) {
+            Array.set(array, i, values.get(i));
+        }
+        return array;
+    }
+}
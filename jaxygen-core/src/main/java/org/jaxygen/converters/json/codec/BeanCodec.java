@@ -0,0 +1,194 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.json.codec;
+
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codec of a bean, binding the same fields as the Gson reflective adapter:
+ * all the non static, non transient fields of the class and its superclasses.
+ * The fields are accessed through method handles and the property names are
+ * encoded once, when the codec is built.
+ *
+ * @author Artur
+ */
+class BeanCodec extends JsonCodec {
+
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType CONSTRUCTOR = MethodType.methodType(Object.class);
+
+    private static class Property {
+
+        private final String name;
+        private final byte[] key;
+        private final boolean primitive;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final JsonCodec writeCodec;
+        private final JsonCodec readCodec;
+
+        Property(String name, Field field, MethodHandles.Lookup lookup) throws IllegalAccessException {
+            this.name = name;
+            this.key = JsonOutput.key(name);
+            this.primitive = field.getType().isPrimitive();
+            this.getter = lookup.unreflectGetter(field).asType(GETTER);
+            this.setter = lookup.unreflectSetter(field).asType(SETTER);
+            this.readCodec = JsonCodecs.forType(field.getGenericType());
+            this.writeCodec = JsonCodecs.isMonomorphic(field.getType()) ? readCodec : null;
+        }
+    }
+
+    private final Class<?> type;
+    private final MethodHandle constructor;
+    private final Property[] properties;
+    private final Map<String, Property> byName = new HashMap<String, Property>();
+
+    BeanCodec(Class<?> type) {
+        this.type = type;
+        JsonCodecs.building(type, this);
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            Constructor<?> c = type.getDeclaredConstructor();
+            c.setAccessible(true);
+            this.constructor = lookup.unreflectConstructor(c).asType(CONSTRUCTOR);
+            List<Property> bound = new ArrayList<Property>();
+            for (Class<?> raw = type; raw != Object.class; raw = raw.getSuperclass()) {
+                for (Field f : raw.getDeclaredFields()) {
+                    if (isBound(f)) {
+                        f.setAccessible(true);
+                        SerializedName serializedName = f.getAnnotation(SerializedName.class);
+                        Property p = new Property(serializedName != null ? serializedName.value() : f.getName(), f, lookup);
+                        if (byName.put(p.name, p) != null) {
+                            throw new IllegalArgumentException(type + " declares multiple JSON fields named " + p.name);
+                        }
+                        bound.add(p);
+                    }
+                }
+            }
+            this.properties = bound.toArray(new Property[bound.size()]);
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalArgumentException("Class " + type.getName() + " has no default constructor", ex);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalArgumentException("Could not access fields of " + type.getName(), ex);
+        }
+    }
+
+    /**
+     * @return true if the objects of the class could be handled by the
+     * BeanCodec.
+     */
+    static boolean isBean(Class<?> raw) {
+        if (raw.isInterface() || raw.isArray() || raw.isAnonymousClass() || raw.isLocalClass()
+                || Modifier.isAbstract(raw.getModifiers()) || raw == Object.class) {
+            return false;
+        }
+        // the JDK classes have special Gson adapters
+        final String name = raw.getName();
+        if (name.startsWith("java.") || name.startsWith("javax.")) {
+            return false;
+        }
+        if (raw.isMemberClass() && !Modifier.isStatic(raw.getModifiers())) {
+            return false;
+        }
+        try {
+            raw.getDeclaredConstructor();
+            return true;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    private static boolean isBound(Field f) {
+        int modifiers = f.getModifiers();
+        return !Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !f.isSynthetic();
+    }
+
+    @Override
+    public void write(Object value, JsonOutput out) throws IOException {
+        out.write('{');
+        boolean first = true;
+        try {
+            for (Property p : properties) {
+                Object fieldValue = (Object) p.getter.invokeExact(value);
+                // the same check as Gson does, a self reference is skipped
+                if (fieldValue != null && fieldValue != value) {
+                    if (!first) {
+                        out.write(',');
+                    }
+                    first = false;
+                    out.write(p.key);
+                    JsonCodecs.write(fieldValue, p.writeCodec, out);
+                }
+            }
+        } catch (IOException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new IOException("Could not write " + type.getName(), ex);
+        }
+        out.write('}');
+    }
+
+    @Override
+    public Object read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        try {
+            Object bean = (Object) constructor.invokeExact();
+            in.beginObject();
+            while (in.hasNext()) {
+                Property p = byName.get(in.nextName());
+                if (p == null) {
+                    in.skipValue();
+                } else {
+                    Object fieldValue = p.readCodec.read(in);
+                    if (fieldValue != null || !p.primitive) {
+                        p.setter.invokeExact(bean, fieldValue);
+                    }
+                }
+            }
+            in.endObject();
+            return bean;
+        } catch (IOException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new IOException("Could not read " + type.getName(), ex);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.json.codec;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.ArrayDeque;
+
+/**
+ * Codec of the collections, written as JSON arrays.
+ *
+ * @author Artur
+ */
+class CollectionCodec extends JsonCodec {
+
+    private final Class<?> rawType;
+    private final Type elementType;
+    private final JsonCodec elementCodec;
+
+    private CollectionCodec(Class<?> rawType, Type elementType) {
+        this.rawType = rawType;
+        this.elementType = elementType;
+        this.elementCodec = JsonCodecs.isMonomorphic(JsonCodecs.rawType(elementType)) ? JsonCodecs.forType(elementType) : null;
+    }
+
+    static JsonCodec create(Type type, Class<?> raw) {
+        if (EnumSet.class.isAssignableFrom(raw) || !(raw.isInterface() || Modifier.isAbstract(raw.getModifiers()) || hasDefaultConstructor(raw))) {
+            return new GsonCodec(type);
+        }
+        return new CollectionCodec(raw, JsonCodecs.typeArgument(type, 0));
+    }
+
+    private static boolean hasDefaultConstructor(Class<?> raw) {
+        try {
+            raw.getConstructor();
+            return true;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    @Override
+    public void write(Object value, JsonOutput out) throws IOException {
+        out.write('[');
+        boolean first = true;
+        for (Object element : (Collection<?>) value) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            JsonCodecs.write(element, elementCodec, out);
+        }
+        out.write(']');
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        JsonCodec codec = elementCodec != null ? elementCodec : JsonCodecs.forType(elementType);
+        Collection<Object> collection = newCollection();
+        in.beginArray();
+        while (in.hasNext()) {
+            collection.add(codec.read(in));
+        }
+        in.endArray();
+        return collection;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collection<Object> newCollection() throws IOException {
+        if (!rawType.isInterface() && !Modifier.isAbstract(rawType.getModifiers())) {
+            try {
+                return (Collection<Object>) rawType.newInstance();
+            } catch (Exception ex) {
+                throw new IOException("Could not create " + rawType.getName(), ex);
+            }
+        }
+        if (SortedSet.class.isAssignableFrom(rawType)) {
+            return new TreeSet<Object>();
+        }
+        if (Set.class.isAssignableFrom(rawType)) {
+            return new LinkedHashSet<Object>();
+        }
+        if (Queue.class.isAssignableFrom(rawType)) {
+            return new ArrayDeque<Object>();
+        }
+        return new ArrayList<Object>();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.json.codec;
+
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Codec of an enum, writing the constant names (or the names given by
+ * {@link SerializedName}) as strings.
+ *
+ * @author Artur
+ */
+class EnumCodec extends JsonCodec {
+
+    private final byte[][] names;
+    private final Map<String, Object> constants = new HashMap<String, Object>();
+
+    EnumCodec(Class<?> type) {
+        Object[] values = type.getEnumConstants();
+        names = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            Enum<?> constant = (Enum<?>) values[i];
+            String name = constant.name();
+            try {
+                SerializedName annotation = type.getField(name).getAnnotation(SerializedName.class);
+                if (annotation != null) {
+                    name = annotation.value();
+                }
+            } catch (NoSuchFieldException ex) {
+                throw new IllegalStateException("Missing field of enum constant " + type.getName() + "." + name, ex);
+            }
+            byte[] key = JsonOutput.key(name);
+            // the key form ends with a colon, the value form does not
+            names[i] = Arrays.copyOf(key, key.length - 1);
+            constants.put(name, constant);
+        }
+    }
+
+    @Override
+    public void write(Object value, JsonOutput out) throws IOException {
+        out.write(names[((Enum<?>) value).ordinal()]);
+    }
+
+    @Override
+    public Object read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return constants.get(in.nextString());
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.json.codec;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Codec of the types the compiled codecs do not handle, delegating to the
+ * Gson type adapter.
+ *
+ * @author Artur
+ */
+class GsonCodec extends JsonCodec {
+
+    private final Type type;
+    private final TypeAdapter<Object> adapter;
+
+    @SuppressWarnings("unchecked")
+    GsonCodec(Type type) {
+        this.type = type;
+        adapter = (TypeAdapter<Object>) JsonCodecs.gson.getAdapter(TypeToken.get(type));
+    }
+
+    @Override
+    public void write(Object value, JsonOutput out) throws IOException {
+        // Gson.toJson applies the HTML safe escaping of the default configuration
+        out.writeRaw(JsonCodecs.gson.toJson(value, type));
+    }
+
+    @Override
+    public Object read(JsonReader in) throws IOException {
+        return adapter.read(in);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.json.codec;
+
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+
+/**
+ * Reader and writer of the JSON form of a single type. The codecs are built
+ * once per type by {@link JsonCodecs}, all the reflection is done while the
+ * codec is built, so the serialization itself only calls prepared method
+ * handles. The produced JSON is the same as the one produced by the default
+ * Gson configuration.
+ *
+ * The codecs are thread safe.
+ *
+ * @author Artur
+ */
+public abstract class JsonCodec {
+
+    /**
+     * Write the JSON form of the value.
+     *
+     * @param value Value of the codec type, not null.
+     * @param out Output.
+     * @throws IOException .
+     */
+    public abstract void write(Object value, JsonOutput out) throws IOException;
+
+    /**
+     * Read the value from its JSON form.
+     *
+     * @param in Input, positioned on the value.
+     * @return The value, null if the input contains null.
+     * @throws IOException .
+     */
+    public abstract Object read(JsonReader in) throws IOException;
+}
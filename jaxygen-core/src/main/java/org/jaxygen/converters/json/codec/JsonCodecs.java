@@ -0,0 +1,236 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.json.codec;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Factory and cache of the {@link JsonCodec}s. Strings, numbers, booleans,
+ * enums, arrays, collections, maps and beans with a no argument constructor
+ * get compiled codecs, all the other types (e.g. dates) are handled by Gson.
+ *
+ * @author Artur
+ */
+public final class JsonCodecs {
+
+    private static final Logger log = Logger.getLogger(JsonCodecs.class.getCanonicalName());
+    static final Gson gson = new Gson();
+    private static final ConcurrentMap<Type, JsonCodec> codecs = new ConcurrentHashMap<Type, JsonCodec>();
+    // codecs under construction, visible to the building thread only, so recursive types resolve
+    private static final Map<Type, JsonCodec> building = new HashMap<Type, JsonCodec>();
+
+    static final JsonCodec STRING = new JsonCodec() {
+        @Override
+        public void write(Object value, JsonOutput out) throws IOException {
+            out.writeString((String) value);
+        }
+
+        @Override
+        public Object read(JsonReader in) throws IOException {
+            JsonToken token = in.peek();
+            if (token == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return token == JsonToken.BOOLEAN ? Boolean.toString(in.nextBoolean()) : in.nextString();
+        }
+    };
+    static final JsonCodec BOOLEAN = new JsonCodec() {
+        @Override
+        public void write(Object value, JsonOutput out) throws IOException {
+            out.writeBoolean((Boolean) value);
+        }
+
+        @Override
+        public Object read(JsonReader in) throws IOException {
+            JsonToken token = in.peek();
+            if (token == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return token == JsonToken.STRING ? Boolean.parseBoolean(in.nextString()) : in.nextBoolean();
+        }
+    };
+    static final JsonCodec CHARACTER = new JsonCodec() {
+        @Override
+        public void write(Object value, JsonOutput out) throws IOException {
+            out.writeString(String.valueOf(value));
+        }
+
+        @Override
+        public Object read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String s = in.nextString();
+            if (s.length() != 1) {
+                throw new JsonSyntaxException("Expecting character, got: " + s);
+            }
+            return s.charAt(0);
+        }
+    };
+
+    private JsonCodecs() {
+    }
+
+    /**
+     * Get the codec of the type, building it on the first use.
+     *
+     * @param type Class or parameterized type.
+     * @return The codec.
+     */
+    public static JsonCodec forType(Type type) {
+        JsonCodec codec = codecs.get(type);
+        if (codec == null) {
+            codec = build(type);
+        }
+        return codec;
+    }
+
+    /**
+     * @param rawType Declared class of a property or element.
+     * @return true if all the values of the declared class have the same
+     * codec, so it could be chosen up front instead of by the runtime class
+     * of each value.
+     */
+    static boolean isMonomorphic(Class<?> rawType) {
+        return rawType.isPrimitive() || rawType.isEnum()
+                || (Modifier.isFinal(rawType.getModifiers()) && !rawType.isArray());
+    }
+
+    private static synchronized JsonCodec build(Type type) {
+        JsonCodec codec = codecs.get(type);
+        if (codec == null) {
+            codec = building.get(type);
+        }
+        if (codec != null) {
+            return codec;
+        }
+        try {
+            codec = create(type);
+        } finally {
+            building.remove(type);
+        }
+        codecs.put(type, codec);
+        return codec;
+    }
+
+    /**
+     * Called by the codecs which refer to themselves before their
+     * construction is finished.
+     */
+    static void building(Type type, JsonCodec codec) {
+        building.put(type, codec);
+    }
+
+    private static JsonCodec create(Type type) {
+        Class<?> raw = rawType(type);
+        if (raw == String.class) {
+            return STRING;
+        }
+        if (raw == Boolean.class || raw == boolean.class) {
+            return BOOLEAN;
+        }
+        if (raw == Character.class || raw == char.class) {
+            return CHARACTER;
+        }
+        if (raw.isPrimitive() || raw == Integer.class || raw == Long.class || raw == Short.class || raw == Byte.class
+                || raw == Double.class || raw == Float.class || raw == BigDecimal.class || raw == BigInteger.class) {
+            return new NumberCodec(raw);
+        }
+        if (raw.isEnum()) {
+            return new EnumCodec(raw);
+        }
+        if (raw.isArray() || type instanceof GenericArrayType) {
+            return new ArrayCodec(type);
+        }
+        if (Collection.class.isAssignableFrom(raw)) {
+            return CollectionCodec.create(type, raw);
+        }
+        if (Map.class.isAssignableFrom(raw)) {
+            return MapCodec.create(type, raw);
+        }
+        if (BeanCodec.isBean(raw)) {
+            try {
+                return new BeanCodec(raw);
+            } catch (IllegalArgumentException ex) {
+                // e.g. duplicated field names, Gson reports them on use
+                log.log(Level.FINE, "Using Gson for " + raw.getName(), ex);
+            }
+        }
+        return new GsonCodec(type);
+    }
+
+    static Class<?> rawType(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        if (type instanceof GenericArrayType) {
+            return java.lang.reflect.Array.newInstance(rawType(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        }
+        return Object.class;
+    }
+
+    /**
+     * Get the type argument of a parameterized type.
+     *
+     * @return The argument or Object if the type is not parameterized.
+     */
+    static Type typeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType) {
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (index < arguments.length) {
+                return arguments[index];
+            }
+        }
+        return Object.class;
+    }
+
+    /**
+     * Write the value with the declared codec, or with the codec of its
+     * runtime class if the declared one is null.
+     */
+    static void write(Object value, JsonCodec declared, JsonOutput out) throws IOException {
+        if (value == null) {
+            out.writeNull();
+        } else if (declared != null) {
+            declared.write(value, out);
+        } else {
+            forType(value.getClass()).write(value, out);
+        }
+    }
+}
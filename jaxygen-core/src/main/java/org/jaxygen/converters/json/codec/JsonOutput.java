@@ -0,0 +1,220 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.json.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Buffered writer of UTF-8 encoded JSON tokens. Strings are escaped exactly
+ * as the HTML safe Gson JsonWriter does it, so the output of the
+ * {@link JsonCodec}s does not differ from the Gson one.
+ *
+ * @author Artur
+ */
+public class JsonOutput {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(UTF8);
+    private static final byte[][] ESCAPES = new byte[128][];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = String.format("\\u%04x", c).getBytes(UTF8);
+        }
+        ESCAPES['"'] = "\\\"".getBytes(UTF8);
+        ESCAPES['\\'] = "\\\\".getBytes(UTF8);
+        ESCAPES['\t'] = "\\t".getBytes(UTF8);
+        ESCAPES['\b'] = "\\b".getBytes(UTF8);
+        ESCAPES['\n'] = "\\n".getBytes(UTF8);
+        ESCAPES['\r'] = "\\r".getBytes(UTF8);
+        ESCAPES['\f'] = "\\f".getBytes(UTF8);
+        ESCAPES['<'] = "\\u003c".getBytes(UTF8);
+        ESCAPES['>'] = "\\u003e".getBytes(UTF8);
+        ESCAPES['&'] = "\\u0026".getBytes(UTF8);
+        ESCAPES['='] = "\\u003d".getBytes(UTF8);
+        ESCAPES['\''] = "\\u0027".getBytes(UTF8);
+    }
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+
+    /**
+     * @param out Stream receiving the JSON, it is flushed by
+     * {@link #flush()} but never closed.
+     */
+    public JsonOutput(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Get the UTF-8 bytes of the quoted and escaped string followed by a
+     * colon, i.e. of the JSON object key.
+     *
+     * @param name Name of the key.
+     * @return Bytes written as a key of the object property.
+     */
+    public static byte[] key(String name) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JsonOutput output = new JsonOutput(bytes);
+        try {
+            output.writeString(name);
+            output.write(':');
+            output.flush();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not encode " + name, ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    public void write(int b) throws IOException {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    /**
+     * Write already encoded bytes.
+     *
+     * @param bytes The bytes.
+     * @throws IOException .
+     */
+    public void write(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - position) {
+            drain();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /**
+     * Write a JSON text produced elsewhere, without escaping.
+     *
+     * @param json The JSON text.
+     * @throws IOException .
+     */
+    public void writeRaw(String json) throws IOException {
+        write(json.getBytes(UTF8));
+    }
+
+    public void writeNull() throws IOException {
+        writeAscii("null");
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+        writeAscii(value ? "true" : "false");
+    }
+
+    public void writeNumber(long value) throws IOException {
+        writeAscii(Long.toString(value));
+    }
+
+    /**
+     * Write a number, in the form given by its toString() method.
+     *
+     * @param value The number.
+     * @throws IOException .
+     */
+    public void writeNumber(Number value) throws IOException {
+        if (value instanceof Double || value instanceof Float) {
+            double d = value.doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                throw new IllegalArgumentException(value + " is not a valid double value as per JSON specification.");
+            }
+        }
+        writeAscii(value.toString());
+    }
+
+    /**
+     * Write a quoted and escaped string.
+     *
+     * @param value The string.
+     * @throws IOException .
+     */
+    public void writeString(String value) throws IOException {
+        write('"');
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                byte[] escape = ESCAPES[c];
+                if (escape == null) {
+                    write(c);
+                } else {
+                    write(escape);
+                }
+            } else if (c < 0x800) {
+                write(0xc0 | (c >> 6));
+                write(0x80 | (c & 0x3f));
+            } else if (c == '\u2028' || c == '\u2029') {
+                write('\\');
+                write('u');
+                for (int shift = 12; shift >= 0; shift -= 4) {
+                    write(HEX[(c >> shift) & 0xf]);
+                }
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                write(0xf0 | (cp >> 18));
+                write(0x80 | ((cp >> 12) & 0x3f));
+                write(0x80 | ((cp >> 6) & 0x3f));
+                write(0x80 | (cp & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate, encoded as String.getBytes does it
+                write('?');
+            } else {
+                write(0xe0 | (c >> 12));
+                write(0x80 | ((c >> 6) & 0x3f));
+                write(0x80 | (c & 0x3f));
+            }
+        }
+        write('"');
+    }
+
+    /**
+     * Write the buffered data to the stream and flush it.
+     *
+     * @throws IOException .
+     */
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    private void writeAscii(String s) throws IOException {
+        final int length = s.length();
+        if (length > buffer.length - position) {
+            drain();
+        }
+        for (int i = 0; i < length; i++) {
+            buffer[position++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void drain() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.json.codec;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Codec of the maps, written as JSON objects with the keys converted to
+ * strings. Maps with keys other than strings are read by Gson.
+ *
+ * @author Artur
+ */
+class MapCodec extends JsonCodec {
+
+    private final Type valueType;
+    private final JsonCodec valueCodec;
+    private final boolean sorted;
+
+    private MapCodec(Class<?> raw, Type valueType) {
+        this.valueType = valueType;
+        this.valueCodec = JsonCodecs.isMonomorphic(JsonCodecs.rawType(valueType)) ? JsonCodecs.forType(valueType) : null;
+        this.sorted = SortedMap.class.isAssignableFrom(raw);
+    }
+
+    static JsonCodec create(Type type, Class<?> raw) {
+        boolean supported = raw == Map.class || raw == LinkedHashMap.class || raw == SortedMap.class || raw == TreeMap.class;
+        if (!supported || JsonCodecs.typeArgument(type, 0) != String.class) {
+            return new GsonCodec(type);
+        }
+        return new MapCodec(raw, JsonCodecs.typeArgument(type, 1));
+    }
+
+    @Override
+    public void write(Object value, JsonOutput out) throws IOException {
+        out.write('{');
+        boolean first = true;
+        for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+            if (e.getValue() == null) {
+                continue;
+            }
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            out.writeString(String.valueOf(e.getKey()));
+            out.write(':');
+            JsonCodecs.write(e.getValue(), valueCodec, out);
+        }
+        out.write('}');
+    }
+
+    @Override
+    public Object read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        JsonCodec codec = valueCodec != null ? valueCodec : JsonCodecs.forType(valueType);
+        Map<String, Object> map = sorted ? new TreeMap<String, Object>() : new LinkedHashMap<String, Object>();
+        in.beginObject();
+        while (in.hasNext()) {
+            String key = in.nextName();
+            map.put(key, codec.read(in));
+        }
+        in.endObject();
+        return map;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.json.codec;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Codec of the primitive numbers, their wrappers and the big numbers.
+ *
+ * @author Artur
+ */
+class NumberCodec extends JsonCodec {
+
+    private enum Kind {
+        INT, LONG, SHORT, BYTE, DOUBLE, FLOAT, BIG_DECIMAL, BIG_INTEGER
+    }
+    private final Kind kind;
+
+    NumberCodec(Class<?> type) {
+        if (type == int.class || type == Integer.class) {
+            kind = Kind.INT;
+        } else if (type == long.class || type == Long.class) {
+            kind = Kind.LONG;
+        } else if (type == short.class || type == Short.class) {
+            kind = Kind.SHORT;
+        } else if (type == byte.class || type == Byte.class) {
+            kind = Kind.BYTE;
+        } else if (type == double.class || type == Double.class) {
+            kind = Kind.DOUBLE;
+        } else if (type == float.class || type == Float.class) {
+            kind = Kind.FLOAT;
+        } else if (type == BigDecimal.class) {
+            kind = Kind.BIG_DECIMAL;
+        } else if (type == BigInteger.class) {
+            kind = Kind.BIG_INTEGER;
+        } else {
+            throw new IllegalArgumentException("Not a number type: " + type);
+        }
+    }
+
+    @Override
+    public void write(Object value, JsonOutput out) throws IOException {
+        if (kind == Kind.INT || kind == Kind.LONG) {
+            out.writeNumber(((Number) value).longValue());
+        } else {
+            out.writeNumber((Number) value);
+        }
+    }
+
+    @Override
+    public Object read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        try {
+            switch (kind) {
+                case INT:
+                    return in.nextInt();
+                case LONG:
+                    return in.nextLong();
+                case SHORT:
+                    return (short) in.nextInt();
+                case BYTE:
+                    return (byte) in.nextInt();
+                case DOUBLE:
+                    return in.nextDouble();
+                case FLOAT:
+                    return (float) in.nextDouble();
+                case BIG_DECIMAL:
+                    return new BigDecimal(in.nextString());
+                default:
+                    return new BigInteger(in.nextString());
+            }
+        } catch (NumberFormatException ex) {
+            throw new JsonSyntaxException(ex);
+        }
+    }
+}
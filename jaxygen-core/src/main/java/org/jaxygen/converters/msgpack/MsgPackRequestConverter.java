@@ -0,0 +1,155 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.msgpack;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import org.jaxygen.converters.PreparableConverter;
+import org.jaxygen.converters.StreamingRequestConverter;
+import org.jaxygen.converters.exceptions.DeserialisationError;
+import org.jaxygen.converters.msgpack.codec.MsgPackCodecs;
+import org.jaxygen.converters.msgpack.codec.MsgPackInput;
+import org.jaxygen.http.HttpRequestParams;
+import org.jaxygen.network.UploadedFile;
+
+/**
+ * Reads the method parameters in the MessagePack binary format, the form
+ * written by {@link MsgPackResponseConverter}.
+ *
+ * An application/x-msgpack request body holds the parameter of the methods
+ * with a single parameter. Methods with more parameters take either an array
+ * of the parameters, in order, or a map with the parameters keyed by their
+ * position, their name (if the service is compiled with the -parameters
+ * option) or the name of their class. Multipart requests carry each parameter
+ * in a file named after its class, as for the SJO converter.
+ *
+ * @author Artur
+ */
+public class MsgPackRequestConverter implements StreamingRequestConverter, PreparableConverter {
+
+  public final static String NAME = "MSGPACK";
+  public final static String CONTENT_TYPE = "application/x-msgpack";
+  private final String name;
+  private final MsgPackCodecs codecs;
+
+  public MsgPackRequestConverter() {
+    this(NAME, MsgPackCodecs.named());
+  }
+
+  /**
+   * @param name Name of the converter.
+   * @param codecs Codecs of the form read by the converter.
+   */
+  protected MsgPackRequestConverter(String name, MsgPackCodecs codecs) {
+    this.name = name;
+    this.codecs = codecs;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Object[] deserialise(InputStream body, String charset, Class<?>[] parameterTypes, String[] parameterNames) throws DeserialisationError {
+    Object[] parameters = new Object[parameterTypes.length];
+    MsgPackInput in = new MsgPackInput(body);
+    try {
+      if (parameterTypes.length == 0 || in.isEnd()) {
+        return parameters;
+      }
+      if (parameterTypes.length == 1) {
+        parameters[0] = MsgPackCodecs.read(codecs.forType(parameterTypes[0]), in);
+      } else if (in.isArray()) {
+        final int size = in.readArrayHeader();
+        for (int i = 0; i < size; i++) {
+          if (i < parameterTypes.length) {
+            parameters[i] = MsgPackCodecs.read(codecs.forType(parameterTypes[i]), in);
+          } else {
+            in.skipValue();
+          }
+        }
+      } else {
+        final int size = in.readMapHeader();
+        for (int i = 0; i < size; i++) {
+          int index = indexOf(in.readValue(), parameterTypes, parameterNames);
+          if (index < 0) {
+            in.skipValue();
+          } else {
+            parameters[index] = MsgPackCodecs.read(codecs.forType(parameterTypes[index]), in);
+          }
+        }
+      }
+    } catch (IOException ex) {
+      throw new DeserialisationError("Could not read request body", ex);
+    } catch (RuntimeException ex) {
+      throw new DeserialisationError("Could not parse request body", ex);
+    } finally {
+      in.release();
+    }
+    return parameters;
+  }
+
+  public Object deserialise(HttpRequestParams params, Class<?> beanClass) throws DeserialisationError {
+    Map<String, UploadedFile> files = params.getFiles();
+    UploadedFile file = files == null ? null : files.get(beanClass.getName());
+    if (file == null) {
+      throw new DeserialisationError("Missing object " + beanClass.getName() + " in request", null);
+    }
+    InputStream is = null;
+    MsgPackInput in = null;
+    try {
+      is = file.getInputStream();
+      in = new MsgPackInput(is);
+      return MsgPackCodecs.read(codecs.forType(beanClass), in);
+    } catch (IOException ex) {
+      throw new DeserialisationError("Could not read object of class " + beanClass.getName(), ex);
+    } catch (RuntimeException ex) {
+      throw new DeserialisationError("Could not parse object of class " + beanClass.getName(), ex);
+    } finally {
+      if (in != null) {
+        in.release();
+      }
+      if (is != null) {
+        try {
+          is.close();
+        } catch (IOException ex) {
+          throw new DeserialisationError("Could close input stream of object class " + beanClass.getName(), ex);
+        }
+      }
+    }
+  }
+
+  public void prepare(Class<?> type) {
+    codecs.forType(type);
+  }
+
+  private static int indexOf(Object key, Class<?>[] parameterTypes, String[] parameterNames) {
+    if (key == null) {
+      return -1;
+    }
+    if (key instanceof Long) {
+      long position = (Long) key;
+      return position >= 0 && position < parameterTypes.length ? (int) position : -1;
+    }
+    for (int i = 0; i < parameterTypes.length; i++) {
+      if (key.equals(Integer.toString(i)) || key.equals(parameterTypes[i].getName())
+              || (parameterNames != null && key.equals(parameterNames[i]))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
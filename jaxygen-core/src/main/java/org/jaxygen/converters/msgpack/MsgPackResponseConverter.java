@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.msgpack;
+
+import java.io.OutputStream;
+import org.jaxygen.converters.PreparableConverter;
+import org.jaxygen.converters.ResponseConverter;
+import org.jaxygen.converters.exceptions.SerializationError;
+import org.jaxygen.converters.msgpack.codec.MsgPackCodecs;
+import org.jaxygen.converters.msgpack.codec.MsgPackOutput;
+
+/**
+ * Writes the response in the MessagePack binary format. The objects are
+ * written as maps of the property names to the values, the same properties
+ * as in the JSON responses, so the envelopes ({@link org.jaxygen.dto.Response},
+ * {@link org.jaxygen.dto.ExceptionResponse}) keep their form.
+ *
+ * @author Artur
+ */
+public class MsgPackResponseConverter implements ResponseConverter, PreparableConverter {
+
+  public final static String NAME = "MSGPACK";
+  private final String name;
+  private final MsgPackCodecs codecs;
+
+  public MsgPackResponseConverter() {
+    this(NAME, MsgPackCodecs.named());
+  }
+
+  /**
+   * @param name Name of the converter.
+   * @param codecs Codecs of the form written by the converter.
+   */
+  protected MsgPackResponseConverter(String name, MsgPackCodecs codecs) {
+    this.name = name;
+    this.codecs = codecs;
+  }
+
+  public void serialize(Object object, OutputStream writter) throws SerializationError {
+    try {
+      MsgPackOutput out = new MsgPackOutput(writter);
+      try {
+        codecs.write(object, codecs.forType(Object.class), out);
+        out.flush();
+      } finally {
+        out.release();
+      }
+    } catch (Exception ex) {
+      throw new SerializationError("Could not serialize output data.", ex);
+    }
+  }
+
+  public void prepare(Class<?> type) {
+    codecs.forType(type);
+  }
+
+  public String getName() {
+    return name;
+  }
+}
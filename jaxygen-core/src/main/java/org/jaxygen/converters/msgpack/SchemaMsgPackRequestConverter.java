@@ -0,0 +1,41 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.msgpack;
+
+import org.jaxygen.converters.msgpack.codec.MsgPackCodecs;
+
+/**
+ * Reads the method parameters in the schema driven MessagePack form (see
+ * {@link MsgPackCodecs#ordinal()}). The bean properties are identified by
+ * their position, so both peers must share the DTO classes, e.g. the JVM
+ * services calling each other through the
+ * {@link org.jaxygen.client.jaxygenclient.JaxygenClient}.
+ *
+ * The body is laid out as for the {@link MsgPackRequestConverter}. Clients
+ * send it as application/x-msgpack with inputType=MSGPACK/SCHEMA in the query
+ * string. The class names of the typed values sent by a client are resolved
+ * only to the classes known from the declared types of the services.
+ *
+ * @author Artur
+ */
+public class SchemaMsgPackRequestConverter extends MsgPackRequestConverter {
+
+  public final static String NAME = "MSGPACK/SCHEMA";
+
+  public SchemaMsgPackRequestConverter() {
+    super(NAME, MsgPackCodecs.ordinal());
+  }
+}
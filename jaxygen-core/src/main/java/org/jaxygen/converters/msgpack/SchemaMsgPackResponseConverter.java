@@ -0,0 +1,36 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.msgpack;
+
+import org.jaxygen.converters.msgpack.codec.MsgPackCodecs;
+
+/**
+ * Writes the response in the schema driven MessagePack form (see
+ * {@link MsgPackCodecs#ordinal()}). The response is written with its class
+ * name, so the reader gets either a {@link org.jaxygen.dto.Response} or an
+ * {@link org.jaxygen.dto.ExceptionResponse} carrying the objects of the
+ * classes returned by the method.
+ *
+ * @author Artur
+ */
+public class SchemaMsgPackResponseConverter extends MsgPackResponseConverter {
+
+  public final static String NAME = "MSGPACK/SCHEMA";
+
+  public SchemaMsgPackResponseConverter() {
+    super(NAME, MsgPackCodecs.ordinal());
+  }
+}
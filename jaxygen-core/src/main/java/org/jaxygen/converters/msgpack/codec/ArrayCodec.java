@@ -0,0 +1,83 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.msgpack.codec;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Codec of the object and primitive arrays, byte arrays excluded.
+ *
+ * @author Artur
+ */
+class ArrayCodec extends MsgPackCodec {
+
+    private final MsgPackCodecs codecs;
+    private final Class<?> componentType;
+    private final Type genericComponentType;
+    private final MsgPackCodec componentCodec;
+
+    ArrayCodec(MsgPackCodecs codecs, Type type) {
+        this.codecs = codecs;
+        if (type instanceof GenericArrayType) {
+            genericComponentType = ((GenericArrayType) type).getGenericComponentType();
+            componentType = MsgPackCodecs.rawType(genericComponentType);
+        } else {
+            componentType = ((Class<?>) type).getComponentType();
+            genericComponentType = componentType;
+        }
+        componentCodec = codecs.declared(genericComponentType);
+    }
+
+    @Override
+    public void write(Object value, MsgPackOutput out) throws IOException {
+        if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            out.writeArrayHeader(array.length);
+            for (Object element : array) {
+                codecs.write(element, componentCodec, out);
+            }
+        } else {
+            final int length = Array.getLength(value);
+            out.writeArrayHeader(length);
+            for (int i = 0; i < length; i++) {
+                componentCodec.write(Array.get(value, i), out);
+            }
+        }
+    }
+
+    @Override
+    public Object read(MsgPackInput in) throws IOException {
+        MsgPackCodec codec = componentCodec != null ? componentCodec : codecs.forType(genericComponentType);
+        final int size = in.readArrayHeader();
+        // the size is not trusted, the array is created once the elements were read
+        List<Object> values = new ArrayList<Object>(Math.min(size, 1024));
+        for (int i = 0; i < size; i++) {
+            values.add(MsgPackCodecs.read(codec, in));
+        }
+        Object array = Array.newInstance(componentType, values.size());
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i) != null || !componentType.isPrimitive()) {
+                Array.set(array, i, values.get(i));
+            }
+        }
+        return array;
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.msgpack.codec;
+
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.internal.$Gson$Types;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jaxygen.annotations.Ordinal;
+
+/**
+ * Codec of a bean. The properties are the fields bound by the JSON
+ * converters: all the non static, non transient fields of the class and its
+ * superclasses.
+ *
+ * The bean is written either as a map of the property names to the values,
+ * without the null properties, or as an array of the values in order of the
+ * properties, up to the last not null one. In the array form the fields of
+ * the superclasses go first. The fields of each class are ordered either by
+ * their {@link Ordinal}, if all of them have one, or else by their names;
+ * a class annotating only some of its fields is rejected.
+ *
+ * The array form is read leniently: the values past the known properties are
+ * skipped and the properties past the end of the array are left unset. So a
+ * field with the highest ordinal added to the last class of a hierarchy does
+ * not break the peers which do not know it yet. Adding a field to a class
+ * without the ordinals, or to a superclass, moves the later fields and is a
+ * breaking change of the form.
+ *
+ * @author Artur
+ */
+class BeanCodec extends MsgPackCodec {
+
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType CONSTRUCTOR = MethodType.methodType(Object.class);
+    private static final Comparator<Field> FIELD_ORDER = new Comparator<Field>() {
+        public int compare(Field a, Field b) {
+            Ordinal ordinalA = a.getAnnotation(Ordinal.class);
+            Ordinal ordinalB = b.getAnnotation(Ordinal.class);
+            if (ordinalA != null && ordinalB != null) {
+                return ordinalA.value() < ordinalB.value() ? -1 : (ordinalA.value() == ordinalB.value() ? 0 : 1);
+            }
+            return a.getName().compareTo(b.getName());
+        }
+    };
+
+    private static class Property {
+
+        private final String name;
+        private final byte[] key;
+        private final boolean primitive;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final MsgPackCodec writeCodec;
+        private final MsgPackCodec readCodec;
+
+        Property(MsgPackCodecs codecs, String name, Field field, Type fieldType, MethodHandles.Lookup lookup) throws IllegalAccessException {
+            this.name = name;
+            this.key = MsgPackOutput.encode(name);
+            this.primitive = field.getType().isPrimitive();
+            this.getter = lookup.unreflectGetter(field).asType(GETTER);
+            this.setter = lookup.unreflectSetter(field).asType(SETTER);
+            this.readCodec = codecs.forType(fieldType);
+            this.writeCodec = codecs.declared(fieldType);
+        }
+    }
+
+    private final MsgPackCodecs codecs;
+    private final Class<?> rawType;
+    private final boolean ordinal;
+    private final MethodHandle constructor;
+    private final Property[] properties;
+    private final Map<String, Property> byName = new HashMap<String, Property>();
+
+    /**
+     * @param type The bean class or a parameterization of a generic bean
+     * class, e.g. PaginableListResponseBaseDTO&lt;UserDTO&gt;.
+     * @param rawType The bean class.
+     * @param ordinal true to write the bean as an array, false as a map.
+     */
+    BeanCodec(MsgPackCodecs codecs, Type type, Class<?> rawType, boolean ordinal) {
+        this.codecs = codecs;
+        this.rawType = rawType;
+        this.ordinal = ordinal;
+        codecs.building(type, this);
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            Constructor<?> c = rawType.getDeclaredConstructor();
+            c.setAccessible(true);
+            this.constructor = lookup.unreflectConstructor(c).asType(CONSTRUCTOR);
+            List<Class<?>> hierarchy = new ArrayList<Class<?>>();
+            for (Class<?> raw = rawType; raw != Object.class; raw = raw.getSuperclass()) {
+                hierarchy.add(0, raw);
+            }
+            List<Property> bound = new ArrayList<Property>();
+            // the superclass fields first, so a field added to a subclass does not move the inherited ones
+            for (Class<?> raw : hierarchy) {
+                for (Field f : ordered(raw, ordinal)) {
+                    f.setAccessible(true);
+                    SerializedName serializedName = f.getAnnotation(SerializedName.class);
+                    // type variables of the generic superclasses are resolved as Gson does
+                    Type fieldType = $Gson$Types.resolve(type, rawType, f.getGenericType());
+                    Property p = new Property(codecs, serializedName != null ? serializedName.value() : f.getName(), f, fieldType, lookup);
+                    if (byName.put(p.name, p) != null) {
+                        throw new IllegalArgumentException(rawType + " declares multiple fields named " + p.name);
+                    }
+                    bound.add(p);
+                }
+            }
+            this.properties = bound.toArray(new Property[bound.size()]);
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalArgumentException("Class " + rawType.getName() + " has no default constructor", ex);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalArgumentException("Could not access fields of " + rawType.getName(), ex);
+        }
+    }
+
+    /**
+     * @return true if the objects of the class could be handled by the
+     * BeanCodec.
+     */
+    static boolean isBean(Class<?> raw) {
+        if (raw.isInterface() || raw.isArray() || raw.isAnonymousClass() || raw.isLocalClass()
+                || Modifier.isAbstract(raw.getModifiers()) || raw == Object.class) {
+            return false;
+        }
+        final String name = raw.getName();
+        if (name.startsWith("java.") || name.startsWith("javax.")) {
+            return false;
+        }
+        if (raw.isMemberClass() && !Modifier.isStatic(raw.getModifiers())) {
+            return false;
+        }
+        try {
+            raw.getDeclaredConstructor();
+            return true;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Get the bound fields declared by the class in the order defined by the
+     * {@link Ordinal} annotations or the field names, as the order of
+     * getDeclaredFields() is not specified.
+     *
+     * @param checked true to reject the classes with the ordinals on some of
+     * their fields only.
+     */
+    private static List<Field> ordered(Class<?> raw, boolean checked) {
+        List<Field> fields = new ArrayList<Field>();
+        int annotated = 0;
+        for (Field f : raw.getDeclaredFields()) {
+            if (isBound(f)) {
+                fields.add(f);
+                if (f.isAnnotationPresent(Ordinal.class)) {
+                    annotated++;
+                }
+            }
+        }
+        if (checked && annotated > 0 && annotated < fields.size()) {
+            throw new IllegalArgumentException(raw.getName() + " has the @Ordinal on " + annotated + " of its " + fields.size() + " fields, it must be on all or none of them");
+        }
+        Collections.sort(fields, FIELD_ORDER);
+        for (int i = 1; i < fields.size(); i++) {
+            Ordinal previous = fields.get(i - 1).getAnnotation(Ordinal.class);
+            Ordinal current = fields.get(i).getAnnotation(Ordinal.class);
+            if (previous != null && current != null && previous.value() == current.value()) {
+                throw new IllegalArgumentException(raw.getName() + " declares multiple fields of ordinal " + current.value());
+            }
+        }
+        return fields;
+    }
+
+    private static boolean isBound(Field f) {
+        int modifiers = f.getModifiers();
+        return !Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !f.isSynthetic();
+    }
+
+    @Override
+    public void write(Object value, MsgPackOutput out) throws IOException {
+        try {
+            if (ordinal) {
+                writeValues(value, out);
+            } else {
+                writeEntries(value, out);
+            }
+        } catch (IOException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new IOException("Could not write " + rawType.getName(), ex);
+        }
+    }
+
+    private void writeEntries(Object value, MsgPackOutput out) throws Throwable {
+        // the map header needs the number of the properties written, the getters are cheap enough to call twice
+        int count = 0;
+        for (Property p : properties) {
+            Object fieldValue = (Object) p.getter.invokeExact(value);
+            if (fieldValue != null && fieldValue != value) {
+                count++;
+            }
+        }
+        out.writeMapHeader(count);
+        for (Property p : properties) {
+            Object fieldValue = (Object) p.getter.invokeExact(value);
+            // the same check as Gson does, a self reference is skipped
+            if (fieldValue != null && fieldValue != value) {
+                out.write(p.key);
+                codecs.write(fieldValue, p.writeCodec, out);
+            }
+        }
+    }
+
+    private void writeValues(Object value, MsgPackOutput out) throws Throwable {
+        int length = 0;
+        for (int i = 0; i < properties.length; i++) {
+            Object fieldValue = (Object) properties[i].getter.invokeExact(value);
+            if (fieldValue != null && fieldValue != value) {
+                length = i + 1;
+            }
+        }
+        out.writeArrayHeader(length);
+        for (int i = 0; i < length; i++) {
+            Property p = properties[i];
+            Object fieldValue = (Object) p.getter.invokeExact(value);
+            codecs.write(fieldValue == value ? null : fieldValue, p.writeCodec, out);
+        }
+    }
+
+    @Override
+    public Object read(MsgPackInput in) throws IOException {
+        try {
+            Object bean = (Object) constructor.invokeExact();
+            if (ordinal) {
+                final int size = in.readArrayHeader();
+                for (int i = 0; i < size; i++) {
+                    if (i < properties.length) {
+                        readProperty(properties[i], bean, in);
+                    } else {
+                        in.skipValue();
+                    }
+                }
+            } else {
+                final int size = in.readMapHeader();
+                for (int i = 0; i < size; i++) {
+                    Property p = byName.get(in.readString());
+                    if (p == null) {
+                        in.skipValue();
+                    } else {
+                        readProperty(p, bean, in);
+                    }
+                }
+            }
+            return bean;
+        } catch (IOException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new IOException("Could not read " + rawType.getName(), ex);
+        }
+    }
+
+    private static void readProperty(Property p, Object bean, MsgPackInput in) throws Throwable {
+        Object fieldValue = MsgPackCodecs.read(p.readCodec, in);
+        if (fieldValue != null || !p.primitive) {
+            p.setter.invokeExact(bean, fieldValue);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.msgpack.codec;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool of the buffers of {@link MsgPackInput} and {@link MsgPackOutput}.
+ * The buffers are not kept per thread, as the calls running on virtual
+ * threads would allocate a new buffer for each call.
+ *
+ * @author Artur
+ */
+final class BufferPool {
+
+    static final int BUFFER_SIZE = 8192;
+    private static final int POOL_SIZE = 64;
+    private static final BlockingQueue<byte[]> idle = new ArrayBlockingQueue<byte[]>(POOL_SIZE);
+
+    private BufferPool() {
+    }
+
+    /**
+     * @return Idle or new buffer, to be returned by {@link #release(byte[])}.
+     */
+    static byte[] borrow() {
+        byte[] buffer = idle.poll();
+        return buffer != null ? buffer : new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * @param buffer Buffer obtained by {@link #borrow()}, dropped if the pool
+     * is full.
+     */
+    static void release(byte[] buffer) {
+        idle.offer(buffer);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.msgpack.codec;
+
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Codec of the collections, written as MessagePack arrays.
+ *
+ * @author Artur
+ */
+class CollectionCodec extends MsgPackCodec {
+
+    private final MsgPackCodecs codecs;
+    private final Class<?> rawType;
+    private final Type elementType;
+    private final MsgPackCodec elementCodec;
+
+    CollectionCodec(MsgPackCodecs codecs, Class<?> rawType, Type elementType) {
+        this.codecs = codecs;
+        this.rawType = rawType;
+        this.elementType = elementType;
+        this.elementCodec = codecs.declared(elementType);
+    }
+
+    @Override
+    public void write(Object value, MsgPackOutput out) throws IOException {
+        Collection<?> collection = (Collection<?>) value;
+        out.writeArrayHeader(collection.size());
+        for (Object element : collection) {
+            codecs.write(element, elementCodec, out);
+        }
+    }
+
+    @Override
+    public Object read(MsgPackInput in) throws IOException {
+        MsgPackCodec codec = elementCodec != null ? elementCodec : codecs.forType(elementType);
+        final int size = in.readArrayHeader();
+        Collection<Object> collection = newCollection();
+        for (int i = 0; i < size; i++) {
+            collection.add(MsgPackCodecs.read(codec, in));
+        }
+        return collection;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collection<Object> newCollection() throws IOException {
+        if (!rawType.isInterface() && !Modifier.isAbstract(rawType.getModifiers())) {
+            try {
+                return (Collection<Object>) rawType.newInstance();
+            } catch (Exception ex) {
+                throw new IOException("Could not create " + rawType.getName(), ex);
+            }
+        }
+        if (SortedSet.class.isAssignableFrom(rawType)) {
+            return new TreeSet<Object>();
+        }
+        if (Set.class.isAssignableFrom(rawType)) {
+            return new LinkedHashSet<Object>();
+        }
+        if (Queue.class.isAssignableFrom(rawType)) {
+            return new ArrayDeque<Object>();
+        }
+        return new ArrayList<Object>();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.msgpack.codec;
+
+import com.google.gson.annotations.SerializedName;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Codec of an enum, writing the constant names (or the names given by
+ * {@link SerializedName}, as the JSON converters do) as strings.
+ *
+ * @author Artur
+ */
+class EnumCodec extends MsgPackCodec {
+
+    private final byte[][] names;
+    private final Map<String, Object> constants = new HashMap<String, Object>();
+
+    EnumCodec(Class<?> type) {
+        Object[] values = type.getEnumConstants();
+        names = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            Enum<?> constant = (Enum<?>) values[i];
+            String name = constant.name();
+            try {
+                SerializedName annotation = type.getField(name).getAnnotation(SerializedName.class);
+                if (annotation != null) {
+                    name = annotation.value();
+                }
+            } catch (NoSuchFieldException ex) {
+                throw new IllegalStateException("Missing field of enum constant " + type.getName() + "." + name, ex);
+            }
+            names[i] = MsgPackOutput.encode(name);
+            constants.put(name, constant);
+        }
+    }
+
+    @Override
+    public void write(Object value, MsgPackOutput out) throws IOException {
+        out.write(names[((Enum<?>) value).ordinal()]);
+    }
+
+    @Override
+    public Object read(MsgPackInput in) throws IOException {
+        return constants.get(in.readString());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.msgpack.codec;
+
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Codec of the maps, written as MessagePack maps. Unlike in JSON the keys
+ * keep their types.
+ *
+ * @author Artur
+ */
+class MapCodec extends MsgPackCodec {
+
+    private final MsgPackCodecs codecs;
+    private final Class<?> rawType;
+    private final Type keyType;
+    private final Type valueType;
+    private final MsgPackCodec keyCodec;
+    private final MsgPackCodec valueCodec;
+
+    MapCodec(MsgPackCodecs codecs, Class<?> rawType, Type keyType, Type valueType) {
+        this.codecs = codecs;
+        this.rawType = rawType;
+        this.keyType = keyType;
+        this.valueType = valueType;
+        this.keyCodec = codecs.declared(keyType);
+        this.valueCodec = codecs.declared(valueType);
+    }
+
+    @Override
+    public void write(Object value, MsgPackOutput out) throws IOException {
+        Map<?, ?> map = (Map<?, ?>) value;
+        out.writeMapHeader(map.size());
+        for (Map.Entry<?, ?> e : map.entrySet()) {
+            codecs.write(e.getKey(), keyCodec, out);
+            codecs.write(e.getValue(), valueCodec, out);
+        }
+    }
+
+    @Override
+    public Object read(MsgPackInput in) throws IOException {
+        MsgPackCodec keys = keyCodec != null ? keyCodec : codecs.forType(keyType);
+        MsgPackCodec values = valueCodec != null ? valueCodec : codecs.forType(valueType);
+        final int size = in.readMapHeader();
+        Map<Object, Object> map = newMap();
+        for (int i = 0; i < size; i++) {
+            Object key = MsgPackCodecs.read(keys, in);
+            map.put(key, MsgPackCodecs.read(values, in));
+        }
+        return map;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Object, Object> newMap() throws IOException {
+        if (!rawType.isInterface() && !Modifier.isAbstract(rawType.getModifiers())) {
+            try {
+                return (Map<Object, Object>) rawType.newInstance();
+            } catch (Exception ex) {
+                throw new IOException("Could not create " + rawType.getName(), ex);
+            }
+        }
+        if (SortedMap.class.isAssignableFrom(rawType)) {
+            return new TreeMap<Object, Object>();
+        }
+        return new LinkedHashMap<Object, Object>();
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.msgpack.codec;
+
+import java.io.IOException;
+
+/**
+ * Reader and writer of the MessagePack form of a single type. The codecs are
+ * built once per type by {@link MsgPackCodecs} and are thread safe.
+ *
+ * @author Artur
+ */
+public abstract class MsgPackCodec {
+
+    /**
+     * Write the value.
+     *
+     * @param value Value of the codec type, not null.
+     * @param out Output.
+     * @throws IOException .
+     */
+    public abstract void write(Object value, MsgPackOutput out) throws IOException;
+
+    /**
+     * Read the value. The nil value is handled by the caller.
+     *
+     * @param in Input, positioned on a value other than nil.
+     * @return The value.
+     * @throws IOException .
+     */
+    public abstract Object read(MsgPackInput in) throws IOException;
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.msgpack.codec;
+
+import java.io.IOException;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.jaxygen.dto.ExceptionResponse;
+import org.jaxygen.dto.Response;
+
+/**
+ * Factory and cache of the {@link MsgPackCodec}s. Strings, numbers, booleans,
+ * enums, dates, byte arrays, arrays, collections, maps and beans with a no
+ * argument constructor are supported.
+ *
+ * There are two sets of the codecs, differing in the form of the beans and of
+ * the values declared as Object:
+ * <ul>
+ * <li>{@link #named()} - self describing form. Beans are maps of the property
+ * names to the values. Values declared as Object are written by their runtime
+ * class and read as the plain MessagePack values (see
+ * {@link MsgPackInput#readValue()}).</li>
+ * <li>{@link #ordinal()} - form driven by the schema of the classes, known to
+ * both peers. Beans are arrays of the property values (superclass fields
+ * first, see {@link org.jaxygen.annotations.Ordinal}), with the trailing
+ * nulls left out. Values declared as Object or by an abstract type are
+ * written as two element arrays of the class name and the value, so they
+ * are read back as the same classes.</li>
+ * </ul>
+ *
+ * The class names of such typed values come from the peer, so they are not
+ * trusted. The reader resolves only the classes whose codecs were already
+ * built from the declared types (e.g. the parameter and result types of the
+ * services, their fields and elements), the plain value classes, the common
+ * java.util collections and the response envelopes. Call
+ * {@link #forType(Type)} to accept more classes.
+ *
+ * @author Artur
+ */
+public final class MsgPackCodecs {
+
+    private static final MsgPackCodecs NAMED = new MsgPackCodecs(false);
+    private static final MsgPackCodecs ORDINAL = new MsgPackCodecs(true);
+    private final boolean ordinalBeans;
+    private final ConcurrentMap<Type, MsgPackCodec> codecs = new ConcurrentHashMap<Type, MsgPackCodec>();
+    // codecs under construction, visible to the building thread only, so recursive types resolve
+    private final Map<Type, MsgPackCodec> building = new HashMap<Type, MsgPackCodec>();
+    private final MsgPackCodec dynamic;
+    // classes with a codec built from the declared types, the only beans a peer may name in a typed value
+    private final ConcurrentMap<String, Class<?>> knownClasses = new ConcurrentHashMap<String, Class<?>>();
+    private static final Map<String, Class<?>> VALUE_CLASSES = new HashMap<String, Class<?>>();
+
+    static {
+        for (Class<?> c : new Class<?>[]{String.class, Boolean.class, Character.class, Byte.class, Short.class,
+            Integer.class, Long.class, Float.class, Double.class, BigDecimal.class, BigInteger.class, Date.class,
+            byte[].class, ArrayList.class, LinkedList.class, HashSet.class, LinkedHashSet.class, TreeSet.class,
+            HashMap.class, LinkedHashMap.class, TreeMap.class, Response.class, ExceptionResponse.class}) {
+            VALUE_CLASSES.put(c.getName(), c);
+        }
+    }
+
+    static final MsgPackCodec STRING = new MsgPackCodec() {
+        @Override
+        public void write(Object value, MsgPackOutput out) throws IOException {
+            out.writeString((String) value);
+        }
+
+        @Override
+        public Object read(MsgPackInput in) throws IOException {
+            return in.readString();
+        }
+    };
+    static final MsgPackCodec BOOLEAN = new MsgPackCodec() {
+        @Override
+        public void write(Object value, MsgPackOutput out) throws IOException {
+            out.writeBoolean((Boolean) value);
+        }
+
+        @Override
+        public Object read(MsgPackInput in) throws IOException {
+            return in.readBoolean();
+        }
+    };
+    static final MsgPackCodec CHARACTER = new MsgPackCodec() {
+        @Override
+        public void write(Object value, MsgPackOutput out) throws IOException {
+            out.writeString(String.valueOf(value));
+        }
+
+        @Override
+        public Object read(MsgPackInput in) throws IOException {
+            String s = in.readString();
+            if (s.length() != 1) {
+                throw new IOException("Expecting character, got: " + s);
+            }
+            return s.charAt(0);
+        }
+    };
+    static final MsgPackCodec BINARY = new MsgPackCodec() {
+        @Override
+        public void write(Object value, MsgPackOutput out) throws IOException {
+            out.writeBinary((byte[]) value);
+        }
+
+        @Override
+        public Object read(MsgPackInput in) throws IOException {
+            return in.readBinary();
+        }
+    };
+    static final MsgPackCodec DATE = new MsgPackCodec() {
+        @Override
+        public void write(Object value, MsgPackOutput out) throws IOException {
+            out.writeTimestamp(((Date) value).getTime());
+        }
+
+        @Override
+        public Object read(MsgPackInput in) throws IOException {
+            return new Date(in.readTimestamp());
+        }
+    };
+    private MsgPackCodecs(boolean ordinalBeans) {
+        this.ordinalBeans = ordinalBeans;
+        this.dynamic = ordinalBeans ? new TypedValueCodec(this) : new MsgPackCodec() {
+            @Override
+            public void write(Object value, MsgPackOutput out) throws IOException {
+                MsgPackCodecs.this.write(value, null, out);
+            }
+
+            @Override
+            public Object read(MsgPackInput in) throws IOException {
+                return in.readValue();
+            }
+        };
+    }
+
+    /**
+     * @return Codecs of the self describing form, with the bean properties
+     * identified by their names.
+     */
+    public static MsgPackCodecs named() {
+        return NAMED;
+    }
+
+    /**
+     * @return Codecs of the form driven by the schema of the classes, with
+     * the bean properties identified by their position.
+     */
+    public static MsgPackCodecs ordinal() {
+        return ORDINAL;
+    }
+
+    /**
+     * Get the codec of the type, building it on the first use.
+     *
+     * @param type Class or parameterized type.
+     * @return The codec.
+     * @throws IllegalArgumentException if the type could not be encoded.
+     */
+    public MsgPackCodec forType(Type type) {
+        MsgPackCodec codec = codecs.get(type);
+        if (codec == null) {
+            codec = build(type);
+        }
+        return codec;
+    }
+
+    /**
+     * Write the value, nil if it is null.
+     *
+     * @param value The value.
+     * @param declared Codec of the declared type, or null to use the codec of
+     * the value class.
+     * @param out Output.
+     * @throws IOException .
+     */
+    public void write(Object value, MsgPackCodec declared, MsgPackOutput out) throws IOException {
+        if (value == null) {
+            out.writeNil();
+        } else if (declared != null) {
+            declared.write(value, out);
+        } else {
+            forType(value.getClass()).write(value, out);
+        }
+    }
+
+    /**
+     * Read a value which might be nil.
+     *
+     * @param codec Codec of the value.
+     * @param in Input.
+     * @return The value or null.
+     * @throws IOException .
+     */
+    public static Object read(MsgPackCodec codec, MsgPackInput in) throws IOException {
+        return in.readNil() ? null : codec.read(in);
+    }
+
+    /**
+     * @param type Declared type of a property or element.
+     * @return Codec of the declared type if all its values are written by it,
+     * null if the codec depends on the runtime class. In the schema driven
+     * form the declared type always decides, as the reader knows nothing
+     * else.
+     */
+    MsgPackCodec declared(Type type) {
+        if (ordinalBeans) {
+            return forType(type);
+        }
+        Class<?> raw = rawType(type);
+        boolean monomorphic = raw.isPrimitive() || raw.isEnum() || raw == byte[].class
+                || (Modifier.isFinal(raw.getModifiers()) && !raw.isArray());
+        return monomorphic ? forType(type) : null;
+    }
+
+    private synchronized MsgPackCodec build(Type type) {
+        MsgPackCodec codec = codecs.get(type);
+        if (codec == null) {
+            codec = building.get(type);
+        }
+        if (codec != null) {
+            return codec;
+        }
+        try {
+            codec = create(type);
+        } finally {
+            building.remove(type);
+        }
+        codecs.put(type, codec);
+        if (type instanceof Class) {
+            knownClasses.put(((Class<?>) type).getName(), (Class<?>) type);
+        }
+        return codec;
+    }
+
+    /**
+     * Find the class named by the peer in a typed value.
+     *
+     * @param name Name of the class.
+     * @return The class or null if the peer is not allowed to send it.
+     */
+    Class<?> knownClass(String name) {
+        Class<?> clazz = knownClasses.get(name);
+        return clazz != null ? clazz : VALUE_CLASSES.get(name);
+    }
+
+    /**
+     * Called by the codecs which refer to themselves before their
+     * construction is finished.
+     */
+    void building(Type type, MsgPackCodec codec) {
+        building.put(type, codec);
+    }
+
+    private MsgPackCodec create(Type type) {
+        Class<?> raw = rawType(type);
+        if (raw == Object.class) {
+            return dynamic;
+        }
+        if (raw == String.class) {
+            return STRING;
+        }
+        if (raw == Boolean.class || raw == boolean.class) {
+            return BOOLEAN;
+        }
+        if (raw == Character.class || raw == char.class) {
+            return CHARACTER;
+        }
+        if (raw == byte[].class) {
+            return BINARY;
+        }
+        if (raw == Date.class) {
+            return DATE;
+        }
+        if (raw.isPrimitive() || raw == Integer.class || raw == Long.class || raw == Short.class || raw == Byte.class
+                || raw == Double.class || raw == Float.class || raw == BigDecimal.class || raw == BigInteger.class) {
+            return new NumberCodec(raw);
+        }
+        if (raw.isEnum()) {
+            return new EnumCodec(raw);
+        }
+        if (raw.isArray() || type instanceof GenericArrayType) {
+            return new ArrayCodec(this, type);
+        }
+        if (Collection.class.isAssignableFrom(raw)) {
+            return new CollectionCodec(this, raw, typeArgument(type, 0));
+        }
+        if (Map.class.isAssignableFrom(raw)) {
+            return new MapCodec(this, raw, typeArgument(type, 0), typeArgument(type, 1));
+        }
+        if (ordinalBeans && (raw.isInterface() || Modifier.isAbstract(raw.getModifiers()))) {
+            // the implementation is known from the value only
+            return dynamic;
+        }
+        if (BeanCodec.isBean(raw)) {
+            return new BeanCodec(this, type, raw, ordinalBeans);
+        }
+        throw new IllegalArgumentException("Class " + raw.getName() + " has no MessagePack form");
+    }
+
+    static Class<?> rawType(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        if (type instanceof GenericArrayType) {
+            return java.lang.reflect.Array.newInstance(rawType(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        }
+        if (type instanceof WildcardType) {
+            return rawType(((WildcardType) type).getUpperBounds()[0]);
+        }
+        if (type instanceof TypeVariable) {
+            return rawType(((TypeVariable<?>) type).getBounds()[0]);
+        }
+        return Object.class;
+    }
+
+    /**
+     * Get the type argument of a parameterized type.
+     *
+     * @return The argument or Object if the type is not parameterized.
+     */
+    static Type typeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType) {
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (index < arguments.length) {
+                return arguments[index];
+            }
+        }
+        return Object.class;
+    }
+}
@@ -0,0 +1,519 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.msgpack.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buffered reader of the MessagePack encoded values. The sizes read from the
+ * input are not trusted: nothing is allocated up front for more data than
+ * actually arrived and the nesting of the untyped values is limited.
+ *
+ * The buffer is taken from a shared pool and given back by
+ * {@link #release()}, as in {@link MsgPackOutput}.
+ *
+ * @author Artur
+ */
+public class MsgPackInput {
+
+    /**
+     * Maximal nesting of the arrays and maps read by
+     * {@link #readValue()} and {@link #skipValue()}.
+     */
+    public static final int MAX_DEPTH = 256;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int MAX_PREALLOCATED = 1024;
+    private final InputStream in;
+    private byte[] buffer = BufferPool.borrow();
+    private int position;
+    private int limit;
+
+    /**
+     * @param in Stream of the encoded values, it is not closed by the reader.
+     * The reader buffers the stream, so it might read past the last value.
+     */
+    public MsgPackInput(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Return the buffer to the pool. The reader can not be used anymore.
+     */
+    public void release() {
+        if (buffer != null) {
+            BufferPool.release(buffer);
+            buffer = null;
+        }
+    }
+
+    /**
+     * @return true if there is no more data in the stream.
+     * @throws IOException .
+     */
+    public boolean isEnd() throws IOException {
+        return position == limit && fill() <= 0;
+    }
+
+    /**
+     * Consume the nil value.
+     *
+     * @return true if the next value was nil and was consumed, false if it is
+     * some other value, which is left in the input.
+     * @throws IOException .
+     */
+    public boolean readNil() throws IOException {
+        require(1);
+        if ((buffer[position] & 0xff) == 0xc0) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the next value is an array.
+     * @throws IOException .
+     */
+    public boolean isArray() throws IOException {
+        require(1);
+        final int format = buffer[position] & 0xff;
+        return (format & 0xf0) == 0x90 || format == 0xdc || format == 0xdd;
+    }
+
+    public boolean readBoolean() throws IOException {
+        final int format = next();
+        if (format == 0xc3) {
+            return true;
+        }
+        if (format == 0xc2) {
+            return false;
+        }
+        throw unexpected(format, "boolean");
+    }
+
+    public long readLong() throws IOException {
+        final int format = next();
+        if (format < 0x80 || format >= 0xe0) {
+            return (byte) format;
+        }
+        switch (format) {
+            case 0xcc:
+                return next();
+            case 0xcd:
+                return get16();
+            case 0xce:
+                return get32() & 0xffffffffL;
+            case 0xcf:
+                long value = get64();
+                if (value < 0) {
+                    throw new IOException("Integer value out of the long range");
+                }
+                return value;
+            case 0xd0:
+                return (byte) next();
+            case 0xd1:
+                return (short) get16();
+            case 0xd2:
+                return get32();
+            case 0xd3:
+                return get64();
+            default:
+                throw unexpected(format, "integer");
+        }
+    }
+
+    public double readDouble() throws IOException {
+        require(1);
+        final int format = buffer[position] & 0xff;
+        if (format == 0xca) {
+            position++;
+            return Float.intBitsToFloat(get32());
+        }
+        if (format == 0xcb) {
+            position++;
+            return Double.longBitsToDouble(get64());
+        }
+        return readLong();
+    }
+
+    public String readString() throws IOException {
+        final int format = next();
+        final int length;
+        if ((format & 0xe0) == 0xa0) {
+            length = format & 0x1f;
+        } else if (format == 0xd9) {
+            length = next();
+        } else if (format == 0xda) {
+            length = get16();
+        } else if (format == 0xdb) {
+            length = size(get32());
+        } else {
+            throw unexpected(format, "string");
+        }
+        if (length <= buffer.length) {
+            require(length);
+            String value = new String(buffer, position, length, UTF8);
+            position += length;
+            return value;
+        }
+        return new String(readBytes(length), UTF8);
+    }
+
+    public byte[] readBinary() throws IOException {
+        final int format = next();
+        switch (format) {
+            case 0xc4:
+                return readBytes(next());
+            case 0xc5:
+                return readBytes(get16());
+            case 0xc6:
+                return readBytes(size(get32()));
+            default:
+                throw unexpected(format, "binary");
+        }
+    }
+
+    /**
+     * @return Number of the array elements which follow.
+     * @throws IOException .
+     */
+    public int readArrayHeader() throws IOException {
+        final int format = next();
+        if ((format & 0xf0) == 0x90) {
+            return format & 0x0f;
+        }
+        if (format == 0xdc) {
+            return get16();
+        }
+        if (format == 0xdd) {
+            return size(get32());
+        }
+        throw unexpected(format, "array");
+    }
+
+    /**
+     * @return Number of the map entries (key and value pairs) which follow.
+     * @throws IOException .
+     */
+    public int readMapHeader() throws IOException {
+        final int format = next();
+        if ((format & 0xf0) == 0x80) {
+            return format & 0x0f;
+        }
+        if (format == 0xde) {
+            return get16();
+        }
+        if (format == 0xdf) {
+            return size(get32());
+        }
+        throw unexpected(format, "map");
+    }
+
+    /**
+     * Read the MessagePack timestamp extension.
+     *
+     * @return Milliseconds since the epoch.
+     * @throws IOException .
+     */
+    public long readTimestamp() throws IOException {
+        final int format = next();
+        if (format == 0xd6 && (byte) next() == -1) {
+            return (get32() & 0xffffffffL) * 1000L;
+        }
+        if (format == 0xd7 && (byte) next() == -1) {
+            long value = get64();
+            return (value & 0x3ffffffffL) * 1000L + (value >>> 34) / 1000000L;
+        }
+        if (format == 0xc7 && next() == 12 && (byte) next() == -1) {
+            long nanos = get32() & 0xffffffffL;
+            return get64() * 1000L + nanos / 1000000L;
+        }
+        throw unexpected(format, "timestamp");
+    }
+
+    /**
+     * Read a value of any type. Integers are read as Long, floating point
+     * numbers as Double, arrays as List, maps as Map and timestamps as Date.
+     *
+     * @return The value.
+     * @throws IOException .
+     */
+    public Object readValue() throws IOException {
+        return readValue(0);
+    }
+
+    /**
+     * Skip the next value, with all its elements.
+     *
+     * @throws IOException .
+     */
+    public void skipValue() throws IOException {
+        skipValue(0);
+    }
+
+    private Object readValue(int depth) throws IOException {
+        require(1);
+        final int format = buffer[position] & 0xff;
+        if (format == 0xc0) {
+            position++;
+            return null;
+        }
+        if (format == 0xc2 || format == 0xc3) {
+            return readBoolean();
+        }
+        if (format == 0xca || format == 0xcb) {
+            return readDouble();
+        }
+        if ((format & 0xe0) == 0xa0 || (format >= 0xd9 && format <= 0xdb)) {
+            return readString();
+        }
+        if (format >= 0xc4 && format <= 0xc6) {
+            return readBinary();
+        }
+        if ((format & 0xf0) == 0x90 || format == 0xdc || format == 0xdd) {
+            checkDepth(depth);
+            final int size = readArrayHeader();
+            List<Object> list = new ArrayList<Object>(Math.min(size, MAX_PREALLOCATED));
+            for (int i = 0; i < size; i++) {
+                list.add(readValue(depth + 1));
+            }
+            return list;
+        }
+        if ((format & 0xf0) == 0x80 || format == 0xde || format == 0xdf) {
+            checkDepth(depth);
+            final int size = readMapHeader();
+            Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+            for (int i = 0; i < size; i++) {
+                Object key = readValue(depth + 1);
+                map.put(key, readValue(depth + 1));
+            }
+            return map;
+        }
+        if (format == 0xd6 || format == 0xd7 || format == 0xc7) {
+            return new Date(readTimestamp());
+        }
+        return readLong();
+    }
+
+    private void skipValue(int depth) throws IOException {
+        final int format = next();
+        if (format < 0x80 || format >= 0xe0 || format == 0xc0 || format == 0xc2 || format == 0xc3) {
+            return;
+        }
+        if (format < 0x90) {
+            skipEntries(format & 0x0f, depth);
+        } else if (format < 0xa0) {
+            skipElements(format & 0x0f, depth);
+        } else if (format < 0xc0) {
+            skip(format & 0x1f);
+        } else {
+            switch (format) {
+                case 0xc4:
+                case 0xcc:
+                case 0xd0:
+                case 0xd9:
+                    skip(format == 0xcc || format == 0xd0 ? 1 : next());
+                    break;
+                case 0xc5:
+                case 0xda:
+                    skip(get16());
+                    break;
+                case 0xc6:
+                case 0xdb:
+                    skip(size(get32()));
+                    break;
+                case 0xc7:
+                    skip(next() + 1);
+                    break;
+                case 0xc8:
+                    skip(get16() + 1);
+                    break;
+                case 0xc9:
+                    skip(size(get32()) + 1L);
+                    break;
+                case 0xcd:
+                case 0xd1:
+                    skip(2);
+                    break;
+                case 0xca:
+                case 0xce:
+                case 0xd2:
+                    skip(4);
+                    break;
+                case 0xcb:
+                case 0xcf:
+                case 0xd3:
+                    skip(8);
+                    break;
+                case 0xd4:
+                case 0xd5:
+                case 0xd6:
+                case 0xd7:
+                case 0xd8:
+                    skip(1 + (1 << (format - 0xd4)));
+                    break;
+                case 0xdc:
+                    skipElements(get16(), depth);
+                    break;
+                case 0xdd:
+                    skipElements(size(get32()), depth);
+                    break;
+                case 0xde:
+                    skipEntries(get16(), depth);
+                    break;
+                case 0xdf:
+                    skipEntries(size(get32()), depth);
+                    break;
+                default:
+                    throw unexpected(format, "value");
+            }
+        }
+    }
+
+    private void skipElements(int size, int depth) throws IOException {
+        checkDepth(depth);
+        for (int i = 0; i < size; i++) {
+            skipValue(depth + 1);
+        }
+    }
+
+    private void skipEntries(int size, int depth) throws IOException {
+        skipElements(size, depth);
+        for (int i = 0; i < size; i++) {
+            skipValue(depth + 1);
+        }
+    }
+
+    private static void checkDepth(int depth) throws IOException {
+        if (depth >= MAX_DEPTH) {
+            throw new IOException("Values nested deeper than " + MAX_DEPTH + " levels");
+        }
+    }
+
+    private static int size(int value) throws IOException {
+        if (value < 0) {
+            throw new IOException("Size " + (value & 0xffffffffL) + " exceeds the supported limit");
+        }
+        return value;
+    }
+
+    private static IOException unexpected(int format, String expected) {
+        return new IOException("Expected " + expected + " but found the format 0x" + Integer.toHexString(format));
+    }
+
+    private byte[] readBytes(int length) throws IOException {
+        if (length <= buffer.length) {
+            require(length);
+            byte[] bytes = new byte[length];
+            System.arraycopy(buffer, position, bytes, 0, length);
+            position += length;
+            return bytes;
+        }
+        // grows with the data actually received, not with the declared length
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(buffer.length);
+        int remaining = length;
+        while (remaining > 0) {
+            if (position == limit && fill() <= 0) {
+                throw new EOFException("Unexpected end of the input");
+            }
+            int n = Math.min(remaining, limit - position);
+            bytes.write(buffer, position, n);
+            position += n;
+            remaining -= n;
+        }
+        return bytes.toByteArray();
+    }
+
+    private void skip(long length) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            if (position == limit && fill() <= 0) {
+                throw new EOFException("Unexpected end of the input");
+            }
+            int n = (int) Math.min(remaining, limit - position);
+            position += n;
+            remaining -= n;
+        }
+    }
+
+    private int next() throws IOException {
+        require(1);
+        return buffer[position++] & 0xff;
+    }
+
+    private int get16() throws IOException {
+        require(2);
+        int value = (buffer[position] & 0xff) << 8 | (buffer[position + 1] & 0xff);
+        position += 2;
+        return value;
+    }
+
+    private int get32() throws IOException {
+        require(4);
+        int value = (buffer[position] & 0xff) << 24 | (buffer[position + 1] & 0xff) << 16
+                | (buffer[position + 2] & 0xff) << 8 | (buffer[position + 3] & 0xff);
+        position += 4;
+        return value;
+    }
+
+    private long get64() throws IOException {
+        long high = get32();
+        return high << 32 | (get32() & 0xffffffffL);
+    }
+
+    /**
+     * Make sure the next length bytes are in the buffer.
+     */
+    private void require(int length) throws IOException {
+        if (limit - position >= length) {
+            return;
+        }
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        while (limit < length) {
+            int n = in.read(buffer, limit, buffer.length - limit);
+            if (n < 0) {
+                throw new EOFException("Unexpected end of the input");
+            }
+            limit += n;
+        }
+    }
+
+    private int fill() throws IOException {
+        position = 0;
+        limit = 0;
+        int n;
+        do {
+            n = in.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n > 0) {
+            limit = n;
+        }
+        return n;
+    }
+}
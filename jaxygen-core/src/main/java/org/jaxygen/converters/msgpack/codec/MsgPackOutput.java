@@ -0,0 +1,357 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.msgpack.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Buffered writer of the MessagePack encoded values. Integers, strings,
+ * arrays and maps are always written in their shortest form.
+ *
+ * The writer must be used by one thread. Its buffer is taken from a shared
+ * pool and given back by {@link #release()}; a writer which is not released
+ * just leaves its buffer to the garbage collector.
+ *
+ * @author Artur
+ */
+public class MsgPackOutput {
+
+    private final OutputStream out;
+    private byte[] buffer = BufferPool.borrow();
+    private int position;
+
+    /**
+     * @param out Stream receiving the encoded values, it is flushed by
+     * {@link #flush()} but never closed.
+     */
+    public MsgPackOutput(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Get the encoded form of a string, e.g. of a property name written
+     * before each value.
+     *
+     * @param value The string.
+     * @return Bytes written by {@link #writeString(String)}.
+     */
+    public static byte[] encode(String value) {
+        final int length = utf8Length(value);
+        byte[] bytes = new byte[headerLength(length) + length];
+        encodeUtf8(value, bytes, putStringHeader(length, bytes, 0));
+        return bytes;
+    }
+
+    public void writeNil() throws IOException {
+        write(0xc0);
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+        write(value ? 0xc3 : 0xc2);
+    }
+
+    public void writeLong(long value) throws IOException {
+        ensure(9);
+        if (value >= -32 && value < 128) {
+            buffer[position++] = (byte) value;
+        } else if (value >= 0) {
+            if (value < 0x100) {
+                buffer[position++] = (byte) 0xcc;
+                buffer[position++] = (byte) value;
+            } else if (value < 0x10000) {
+                buffer[position++] = (byte) 0xcd;
+                put16((int) value);
+            } else if (value < 0x100000000L) {
+                buffer[position++] = (byte) 0xce;
+                put32((int) value);
+            } else {
+                buffer[position++] = (byte) 0xcf;
+                put64(value);
+            }
+        } else if (value >= Byte.MIN_VALUE) {
+            buffer[position++] = (byte) 0xd0;
+            buffer[position++] = (byte) value;
+        } else if (value >= Short.MIN_VALUE) {
+            buffer[position++] = (byte) 0xd1;
+            put16((int) value);
+        } else if (value >= Integer.MIN_VALUE) {
+            buffer[position++] = (byte) 0xd2;
+            put32((int) value);
+        } else {
+            buffer[position++] = (byte) 0xd3;
+            put64(value);
+        }
+    }
+
+    public void writeFloat(float value) throws IOException {
+        ensure(5);
+        buffer[position++] = (byte) 0xca;
+        put32(Float.floatToIntBits(value));
+    }
+
+    public void writeDouble(double value) throws IOException {
+        ensure(9);
+        buffer[position++] = (byte) 0xcb;
+        put64(Double.doubleToLongBits(value));
+    }
+
+    public void writeString(String value) throws IOException {
+        final int chars = value.length();
+        if (chars < 32 && chars <= buffer.length - position - 1) {
+            // short ASCII strings are copied directly, the most common case of the DTOs
+            int p = position + 1;
+            for (int i = 0; i < chars; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    writeEncoded(value);
+                    return;
+                }
+                buffer[p++] = (byte) c;
+            }
+            buffer[position] = (byte) (0xa0 | chars);
+            position = p;
+        } else {
+            writeEncoded(value);
+        }
+    }
+
+    public void writeBinary(byte[] value) throws IOException {
+        final int length = value.length;
+        ensure(5);
+        if (length < 0x100) {
+            buffer[position++] = (byte) 0xc4;
+            buffer[position++] = (byte) length;
+        } else if (length < 0x10000) {
+            buffer[position++] = (byte) 0xc5;
+            put16(length);
+        } else {
+            buffer[position++] = (byte) 0xc6;
+            put32(length);
+        }
+        write(value);
+    }
+
+    public void writeArrayHeader(int size) throws IOException {
+        writeContainerHeader(size, 0x90, 0xdc);
+    }
+
+    public void writeMapHeader(int size) throws IOException {
+        writeContainerHeader(size, 0x80, 0xde);
+    }
+
+    /**
+     * Write a point in time as the MessagePack timestamp extension (type -1).
+     *
+     * @param millis Milliseconds since the epoch.
+     * @throws IOException .
+     */
+    public void writeTimestamp(long millis) throws IOException {
+        final long seconds = Math.floorDiv(millis, 1000L);
+        final long nanos = Math.floorMod(millis, 1000L) * 1000000L;
+        ensure(15);
+        if (seconds >> 34 == 0) {
+            if (nanos == 0 && seconds >> 32 == 0) {
+                buffer[position++] = (byte) 0xd6;
+                buffer[position++] = (byte) -1;
+                put32((int) seconds);
+            } else {
+                buffer[position++] = (byte) 0xd7;
+                buffer[position++] = (byte) -1;
+                put64(nanos << 34 | seconds);
+            }
+        } else {
+            buffer[position++] = (byte) 0xc7;
+            buffer[position++] = 12;
+            buffer[position++] = (byte) -1;
+            put32((int) nanos);
+            put64(seconds);
+        }
+    }
+
+    /**
+     * Write already encoded bytes.
+     *
+     * @param bytes The bytes.
+     * @throws IOException .
+     */
+    public void write(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - position) {
+            drain();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /**
+     * Write the buffered data to the stream and flush it.
+     *
+     * @throws IOException .
+     */
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    /**
+     * Return the buffer to the pool. The data not flushed yet is lost and the
+     * writer can not be used anymore.
+     */
+    public void release() {
+        if (buffer != null) {
+            BufferPool.release(buffer);
+            buffer = null;
+        }
+    }
+
+    private void write(int b) throws IOException {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    private void writeEncoded(String value) throws IOException {
+        final int length = utf8Length(value);
+        if (headerLength(length) + length > buffer.length - position) {
+            drain();
+            if (headerLength(length) + length > buffer.length) {
+                write(encode(value));
+                return;
+            }
+        }
+        position = putStringHeader(length, buffer, position);
+        position = encodeUtf8(value, buffer, position);
+    }
+
+    private void writeContainerHeader(int size, int fixed, int format) throws IOException {
+        ensure(5);
+        if (size < 16) {
+            buffer[position++] = (byte) (fixed | size);
+        } else if (size < 0x10000) {
+            buffer[position++] = (byte) format;
+            put16(size);
+        } else {
+            buffer[position++] = (byte) (format + 1);
+            put32(size);
+        }
+    }
+
+    private static int headerLength(int length) {
+        return length < 32 ? 1 : length < 0x100 ? 2 : length < 0x10000 ? 3 : 5;
+    }
+
+    private static int putStringHeader(int length, byte[] bytes, int p) {
+        if (length < 32) {
+            bytes[p++] = (byte) (0xa0 | length);
+        } else if (length < 0x100) {
+            bytes[p++] = (byte) 0xd9;
+            bytes[p++] = (byte) length;
+        } else if (length < 0x10000) {
+            bytes[p++] = (byte) 0xda;
+            bytes[p++] = (byte) (length >> 8);
+            bytes[p++] = (byte) length;
+        } else {
+            bytes[p++] = (byte) 0xdb;
+            bytes[p++] = (byte) (length >> 24);
+            bytes[p++] = (byte) (length >> 16);
+            bytes[p++] = (byte) (length >> 8);
+            bytes[p++] = (byte) length;
+        }
+        return p;
+    }
+
+    private static int utf8Length(String value) {
+        final int chars = value.length();
+        int length = chars;
+        for (int i = 0; i < chars; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    length += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    // the pair takes 4 bytes instead of 2 chars
+                    length += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    length += 2;
+                }
+            }
+        }
+        return length;
+    }
+
+    private static int encodeUtf8(String value, byte[] bytes, int p) {
+        final int chars = value.length();
+        for (int i = 0; i < chars; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes[p++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[p++] = (byte) (0xc0 | (c >> 6));
+                bytes[p++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                bytes[p++] = (byte) (0xf0 | (cp >> 18));
+                bytes[p++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                bytes[p++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                bytes[p++] = (byte) (0x80 | (cp & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate, encoded as String.getBytes does it
+                bytes[p++] = '?';
+            } else {
+                bytes[p++] = (byte) (0xe0 | (c >> 12));
+                bytes[p++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                bytes[p++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return p;
+    }
+
+    private void ensure(int length) throws IOException {
+        if (buffer.length - position < length) {
+            drain();
+        }
+    }
+
+    private void put16(int value) {
+        buffer[position++] = (byte) (value >> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    private void put32(int value) {
+        buffer[position++] = (byte) (value >> 24);
+        buffer[position++] = (byte) (value >> 16);
+        buffer[position++] = (byte) (value >> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    private void put64(long value) {
+        put32((int) (value >> 32));
+        put32((int) value);
+    }
+
+    private void drain() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.msgpack.codec;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Codec of the primitive numbers and their wrappers, written as MessagePack
+ * integers and floats. The big numbers are written as strings, so they do not
+ * lose precision.
+ *
+ * @author Artur
+ */
+class NumberCodec extends MsgPackCodec {
+
+    private enum Kind {
+        INT, LONG, SHORT, BYTE, DOUBLE, FLOAT, BIG_DECIMAL, BIG_INTEGER
+    }
+    private final Kind kind;
+
+    NumberCodec(Class<?> type) {
+        if (type == int.class || type == Integer.class) {
+            kind = Kind.INT;
+        } else if (type == long.class || type == Long.class) {
+            kind = Kind.LONG;
+        } else if (type == short.class || type == Short.class) {
+            kind = Kind.SHORT;
+        } else if (type == byte.class || type == Byte.class) {
+            kind = Kind.BYTE;
+        } else if (type == double.class || type == Double.class) {
+            kind = Kind.DOUBLE;
+        } else if (type == float.class || type == Float.class) {
+            kind = Kind.FLOAT;
+        } else if (type == BigDecimal.class) {
+            kind = Kind.BIG_DECIMAL;
+        } else if (type == BigInteger.class) {
+            kind = Kind.BIG_INTEGER;
+        } else {
+            throw new IllegalArgumentException("Not a number type: " + type);
+        }
+    }
+
+    @Override
+    public void write(Object value, MsgPackOutput out) throws IOException {
+        switch (kind) {
+            case DOUBLE:
+                out.writeDouble((Double) value);
+                break;
+            case FLOAT:
+                out.writeFloat((Float) value);
+                break;
+            case BIG_DECIMAL:
+            case BIG_INTEGER:
+                out.writeString(value.toString());
+                break;
+            default:
+                out.writeLong(((Number) value).longValue());
+        }
+    }
+
+    @Override
+    public Object read(MsgPackInput in) throws IOException {
+        switch (kind) {
+            case INT:
+                return (int) in.readLong();
+            case LONG:
+                return in.readLong();
+            case SHORT:
+                return (short) in.readLong();
+            case BYTE:
+                return (byte) in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return (float) in.readDouble();
+            case BIG_DECIMAL:
+                return new BigDecimal(in.readString());
+            default:
+                return new BigInteger(in.readString());
+        }
+    }
+}
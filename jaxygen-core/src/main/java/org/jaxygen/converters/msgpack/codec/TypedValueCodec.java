@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.msgpack.codec;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Codec of the values declared as Object in the schema driven form. The value
+ * is written as an array of its class name and of the value itself, so the
+ * reader builds the object of the same class. Only the classes accepted by
+ * {@link MsgPackCodecs#knownClass(String)} could be read this way.
+ *
+ * @author Artur
+ */
+class TypedValueCodec extends MsgPackCodec {
+
+    private final MsgPackCodecs codecs;
+    private final ConcurrentMap<Class<?>, byte[]> names = new ConcurrentHashMap<Class<?>, byte[]>();
+    // filled by the resolved names only, so the unknown names sent by a peer do not grow it
+    private final ConcurrentMap<String, MsgPackCodec> byName = new ConcurrentHashMap<String, MsgPackCodec>();
+
+    TypedValueCodec(MsgPackCodecs codecs) {
+        this.codecs = codecs;
+    }
+
+    @Override
+    public void write(Object value, MsgPackOutput out) throws IOException {
+        final Class<?> type = value.getClass();
+        byte[] name = names.get(type);
+        if (name == null) {
+            name = MsgPackOutput.encode(type.getName());
+            names.put(type, name);
+        }
+        out.writeArrayHeader(2);
+        out.write(name);
+        codecs.forType(type).write(value, out);
+    }
+
+    @Override
+    public Object read(MsgPackInput in) throws IOException {
+        if (in.readArrayHeader() != 2) {
+            throw new IOException("Expected the class name and the value");
+        }
+        final String name = in.readString();
+        MsgPackCodec codec = byName.get(name);
+        if (codec == null) {
+            codec = resolve(name);
+            byName.put(name, codec);
+        }
+        return MsgPackCodecs.read(codec, in);
+    }
+
+    private MsgPackCodec resolve(String name) throws IOException {
+        // the name comes from the peer, so no class is loaded by it
+        Class<?> type = codecs.knownClass(name);
+        if (type == null) {
+            throw new IOException("Class " + name + " is not expected in the message");
+        }
+        MsgPackCodec codec;
+        try {
+            codec = codecs.forType(type);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Class " + name + " could not be read", ex);
+        }
+        if (codec == this) {
+            throw new IOException("Class " + name + " is not a concrete class");
+        }
+        return codec;
+    }
+}
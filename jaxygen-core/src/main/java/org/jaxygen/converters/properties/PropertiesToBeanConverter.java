@@ -15,7 +15,6 @@
  */
 package org.jaxygen.converters.properties;
 
-import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
@@ -23,8 +22,12 @@ import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.apache.commons.beanutils.ConvertUtils;
 import org.apache.commons.beanutils.Converter;
 import org.apache.commons.beanutils.converters.BooleanConverter;
@@ -37,6 +40,7 @@ import org.apache.commons.beanutils.converters.LongConverter;
 import org.apache.commons.beanutils.converters.ShortConverter;
 import org.apache.commons.beanutils.converters.StringConverter;
 import org.jaxygen.converters.exceptions.DeserialisationError;
+import org.jaxygen.converters.PreparableConverter;
 import org.jaxygen.converters.RequestConverter;
 import org.jaxygen.network.UploadedFile;
 import org.jaxygen.exceptions.WrongProperyIndex;
@@ -46,7 +50,7 @@ import org.jaxygen.http.HttpRequestParams;
  *
  * @author Artur Keska
  */
-public class PropertiesToBeanConverter implements RequestConverter {
+public class PropertiesToBeanConverter implements RequestConverter, PreparableConverter {
 
   static final Map<Class<?>, Converter> converters = new HashMap<Class<?>, Converter>();
 
@@ -75,6 +79,11 @@ public class PropertiesToBeanConverter implements RequestConverter {
     }
   }
 
+  /** Bean properties of the converted classes. Introspector does not cache
+   * the BeanInfo taken with a stop class, so it is kept here.
+   */
+  private static final ConcurrentMap<Class<?>, PropertyDescriptor[]> descriptors = new ConcurrentHashMap<Class<?>, PropertyDescriptor[]>();
+
   static public boolean isCovertable(Class<?> c) {
     return converters.containsKey(c);
   }
@@ -89,6 +98,36 @@ public class PropertiesToBeanConverter implements RequestConverter {
     }
   }
 
+  public void prepare(Class<?> type) throws IntrospectionException {
+    introspect(type, new HashSet<Class<?>>());
+  }
+
+  /** Load the bean properties of the class and of the classes of its bean
+   * properties into the cache used by the later calls.
+   */
+  private static void introspect(Class<?> c, Set<Class<?>> visited) throws IntrospectionException {
+    while (c.isArray()) {
+      c = c.getComponentType();
+    }
+    if (c.isPrimitive() || c.isEnum() || isCovertable(c) || c.getName().startsWith("java.") || !visited.add(c)) {
+      return;
+    }
+    for (PropertyDescriptor pd : propertyDescriptors(c)) {
+      if (pd.getPropertyType() != null) {
+        introspect(pd.getPropertyType(), visited);
+      }
+    }
+  }
+
+  private static PropertyDescriptor[] propertyDescriptors(Class<?> c) throws IntrospectionException {
+    PropertyDescriptor[] pds = descriptors.get(c);
+    if (pds == null) {
+      pds = Introspector.getBeanInfo(c, Object.class).getPropertyDescriptors();
+      descriptors.putIfAbsent(c, pds);
+    }
+    return pds;
+  }
+
   /**
    * Applies a collection of properties to a JavaBean. Converts String and String[] values to correct property types
    *
@@ -167,7 +206,7 @@ public class PropertiesToBeanConverter implements RequestConverter {
       bean = beanClass.newInstance();
     }
     Class<?> c = beanClass;
-    BeanInfo beanInfo = Introspector.getBeanInfo(c, Object.class);
+    PropertyDescriptor[] pds = propertyDescriptors(c);
     final String childName = name.substring(name.indexOf(".") + 1);
     String path[] = name.split("\\.");
 
@@ -177,14 +216,14 @@ public class PropertiesToBeanConverter implements RequestConverter {
       int bracketStart = fieldName.indexOf("[");
       int len = fieldName.length();
       if (bracketStart > 0) {
-        fillBeanArrayField(name, value, bean, beanInfo, path, fieldName,
+        fillBeanArrayField(name, value, bean, pds, path, fieldName,
                 bracketStart, len);
       } else {
         throw new WrongProperyIndex(name);
       }
     } else {
       // parse non arrays
-      for (PropertyDescriptor pd : beanInfo.getPropertyDescriptors()) {
+      for (PropertyDescriptor pd : pds) {
         if (pd.getName().equals(fieldName)) {
           Method writter = pd.getWriteMethod();
           Method reader = pd.getReadMethod();
@@ -209,7 +248,7 @@ public class PropertiesToBeanConverter implements RequestConverter {
   }
 
   private static void fillBeanArrayField(final String name, Object value,
-          Object bean, BeanInfo beanInfo, String[] path, final String fieldName,
+          Object bean, PropertyDescriptor[] pds, String[] path, final String fieldName,
           int bracketStart, int len)
           throws IllegalAccessException, InvocationTargetException,
           IntrospectionException, InstantiationException, IllegalArgumentException,
@@ -223,7 +262,7 @@ public class PropertiesToBeanConverter implements RequestConverter {
       childName = name.substring(firstDot + 1);
     }
 
-    for (PropertyDescriptor pd : beanInfo.getPropertyDescriptors()) {
+    for (PropertyDescriptor pd : pds) {
       if (pd.getName().equals(propertyName)) {
         Method writter = pd.getWriteMethod();
         Method reader = pd.getReadMethod();
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.xml;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+/**
+ * StAX reader failing on documents nested deeper than the given limit.
+ *
+ * @author Artur
+ */
+public class DepthLimitedReader extends StreamReaderDelegate {
+
+    private final int maxDepth;
+    private int depth;
+
+    /**
+     * @param reader Reader positioned before the root element.
+     * @param maxDepth Maximal nesting depth, the root element is at depth 1.
+     */
+    public DepthLimitedReader(XMLStreamReader reader, int maxDepth) {
+        super(reader);
+        this.maxDepth = maxDepth;
+    }
+
+    @Override
+    public int next() throws XMLStreamException {
+        int event = super.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+            if (++depth > maxDepth) {
+                throw new XMLStreamException("XML document is nested deeper than " + maxDepth + " elements", getLocation());
+            }
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+            depth--;
+        }
+        return event;
+    }
+
+    @Override
+    public int nextTag() throws XMLStreamException {
+        // implemented on top of next(), so the depth is tracked
+        int event = next();
+        while ((event == XMLStreamConstants.CHARACTERS && isWhiteSpace())
+                || event == XMLStreamConstants.SPACE || event == XMLStreamConstants.COMMENT
+                || event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+            event = next();
+        }
+        if (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT) {
+            throw new XMLStreamException("Expected start or end tag", getLocation());
+        }
+        return event;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.xml;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+/**
+ * Cache of the JAXB contexts, one per bound class, with pools of their
+ * marshallers and unmarshallers. Creating a context takes milliseconds, so
+ * it is done once per class; marshallers are not thread safe, so each call
+ * borrows one from the pool and returns it when done.
+ *
+ * @author Artur
+ */
+public class JAXBContexts {
+
+    private static final int MAX_POOLED = 32;
+
+    private static class Entry {
+
+        private final JAXBContext context;
+        private final Queue<Marshaller> marshallers = new ConcurrentLinkedQueue<Marshaller>();
+        private final AtomicInteger pooledMarshallers = new AtomicInteger();
+        private final Queue<Unmarshaller> unmarshallers = new ConcurrentLinkedQueue<Unmarshaller>();
+        private final AtomicInteger pooledUnmarshallers = new AtomicInteger();
+
+        Entry(JAXBContext context) {
+            this.context = context;
+        }
+    }
+
+    private static final ConcurrentMap<Class<?>, Entry> entries = new ConcurrentHashMap<Class<?>, Entry>();
+
+    private JAXBContexts() {
+    }
+
+    /**
+     * Get the context bound to the class, creating it on the first use.
+     *
+     * @param c Root class of the XML document.
+     * @return The shared context.
+     * @throws JAXBException if the class could not be bound.
+     */
+    public static JAXBContext getContext(Class<?> c) throws JAXBException {
+        return entry(c).context;
+    }
+
+    /**
+     * Write the object as XML document.
+     *
+     * @param o The object, its class is the root of the document.
+     * @param out Output stream.
+     * @param formatted true for indented output.
+     * @throws JAXBException .
+     */
+    public static void marshal(Object o, OutputStream out, boolean formatted) throws JAXBException {
+        Entry entry = entry(o.getClass());
+        Marshaller marshaller = entry.marshallers.poll();
+        if (marshaller == null) {
+            marshaller = entry.context.createMarshaller();
+        } else {
+            entry.pooledMarshallers.decrementAndGet();
+        }
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, formatted);
+        marshaller.marshal(o, out);
+        // a marshaller which failed is dropped, it might be left in a broken state
+        if (entry.pooledMarshallers.incrementAndGet() <= MAX_POOLED) {
+            entry.marshallers.offer(marshaller);
+        } else {
+            entry.pooledMarshallers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Read the XML document.
+     *
+     * @param is Input stream.
+     * @param c Root class of the document.
+     * @return The read object.
+     * @throws JAXBException .
+     */
+    public static Object unmarshal(InputStream is, Class<?> c) throws JAXBException {
+        Entry entry = entry(c);
+        Unmarshaller unmarshaller = borrowUnmarshaller(entry);
+        Object rc = unmarshaller.unmarshal(is);
+        returnUnmarshaller(entry, unmarshaller);
+        return rc;
+    }
+
+    static Unmarshaller borrowUnmarshaller(Class<?> c) throws JAXBException {
+        return borrowUnmarshaller(entry(c));
+    }
+
+    static void returnUnmarshaller(Class<?> c, Unmarshaller unmarshaller) throws JAXBException {
+        returnUnmarshaller(entry(c), unmarshaller);
+    }
+
+    private static Unmarshaller borrowUnmarshaller(Entry entry) throws JAXBException {
+        Unmarshaller unmarshaller = entry.unmarshallers.poll();
+        if (unmarshaller == null) {
+            return entry.context.createUnmarshaller();
+        }
+        entry.pooledUnmarshallers.decrementAndGet();
+        return unmarshaller;
+    }
+
+    private static void returnUnmarshaller(Entry entry, Unmarshaller unmarshaller) {
+        if (entry.pooledUnmarshallers.incrementAndGet() <= MAX_POOLED) {
+            entry.unmarshallers.offer(unmarshaller);
+        } else {
+            entry.pooledUnmarshallers.decrementAndGet();
+        }
+    }
+
+    private static Entry entry(Class<?> c) throws JAXBException {
+        Entry entry = entries.get(c);
+        if (entry == null) {
+            entry = new Entry(JAXBContext.newInstance(c));
+            Entry current = entries.putIfAbsent(c, entry);
+            if (current != null) {
+                entry = current;
+            }
+        }
+        return entry;
+    }
+}
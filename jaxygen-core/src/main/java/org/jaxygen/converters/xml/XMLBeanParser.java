@@ -16,9 +16,7 @@
 package org.jaxygen.converters.xml;
 
 import java.io.InputStream;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
 
 /**
  *
@@ -35,9 +33,6 @@ public class XMLBeanParser {
      */
     static public Object parseXMLtoBean(InputStream is, Class<?> c)
             throws JAXBException {
-        Class<?> classes[] = new Class<?>[]{c};
-        JAXBContext jc = JAXBContext.newInstance(classes);
-        Unmarshaller unmarshaler = jc.createUnmarshaller();
-        return unmarshaler.unmarshal(is);
+        return JAXBContexts.unmarshal(is, c);
     }
 }
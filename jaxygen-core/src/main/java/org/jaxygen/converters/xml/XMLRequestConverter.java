@@ -0,0 +1,225 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.converters.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.Map;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.jaxygen.converters.PreparableConverter;
+import org.jaxygen.converters.StreamingRequestConverter;
+import org.jaxygen.converters.exceptions.DeserialisationError;
+import org.jaxygen.exceptions.InvalidRequestParameter;
+import org.jaxygen.http.HttpRequestParams;
+import org.jaxygen.http.LimitedInputStream;
+import org.jaxygen.network.UploadedFile;
+
+/**
+ * Binds the method parameters from XML read by a StAX reader, using the
+ * JAXB contexts cached by {@link JAXBContexts}. The document is read from
+ * the application/xml request body, or for each parameter from the uploaded
+ * file or the request parameter named after the parameter class.
+ *
+ * For methods with a single parameter the root element of the body is the
+ * parameter. Methods with more parameters take a root element wrapping the
+ * parameters, matched by the element name (parameter name or simple class
+ * name) or, if the name does not match, by position.
+ *
+ * The size and the nesting depth of the documents are limited. DTDs and
+ * external entities are not processed.
+ *
+ * @author Artur
+ */
+public class XMLRequestConverter implements StreamingRequestConverter, PreparableConverter {
+
+  public final static String NAME = "XML";
+  public final static int DEFAULT_MAX_DEPTH = 64;
+  public final static long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+  private static final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+  static {
+    inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+  }
+  private final int maxDepth;
+  private final long maxBytes;
+
+  public XMLRequestConverter() {
+    this(DEFAULT_MAX_DEPTH, DEFAULT_MAX_BYTES);
+  }
+
+  /**
+   * @param maxDepth Maximal nesting depth of the elements.
+   * @param maxBytes Maximal size of a document.
+   */
+  public XMLRequestConverter(int maxDepth, long maxBytes) {
+    this.maxDepth = maxDepth;
+    this.maxBytes = maxBytes;
+  }
+
+  public String getName() {
+    return NAME;
+  }
+
+  public Object[] deserialise(InputStream body, String charset, Class<?>[] parameterTypes, String[] parameterNames) throws DeserialisationError {
+    Object[] parameters = new Object[parameterTypes.length];
+    if (parameterTypes.length == 0) {
+      return parameters;
+    }
+    try {
+      XMLStreamReader reader = open(body, charset);
+      try {
+        if (reader.nextTag() != XMLStreamConstants.START_ELEMENT) {
+          throw new XMLStreamException("Missing root element", reader.getLocation());
+        }
+        if (parameterTypes.length == 1) {
+          parameters[0] = unmarshal(reader, parameterTypes[0]);
+        } else {
+          int position = 0;
+          boolean advance = true;
+          while (nextElement(reader, advance)) {
+            int index = indexOf(reader.getLocalName(), parameterTypes, parameterNames);
+            if (index < 0) {
+              index = position;
+            }
+            if (index < parameterTypes.length) {
+              parameters[index] = unmarshal(reader, parameterTypes[index]);
+              // JAXB leaves the reader on the event following the element
+              advance = false;
+            } else {
+              skipElement(reader);
+              advance = true;
+            }
+            position++;
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (Exception ex) {
+      throw new DeserialisationError("Could not parse XML request body", ex);
+    }
+    return parameters;
+  }
+
+  public Object deserialise(HttpRequestParams params, Class<?> beanClass) throws DeserialisationError {
+    try {
+      Map<String, UploadedFile> files = params.getFiles();
+      UploadedFile file = files == null ? null : files.get(beanClass.getName());
+      if (file != null) {
+        InputStream is = file.getInputStream();
+        try {
+          return unmarshalDocument(open(is, null), beanClass);
+        } finally {
+          is.close();
+        }
+      } else {
+        // the parameter is already decoded, so the encoding declared by the document does not apply
+        String xml = params.getAsString(beanClass.getName(), 1, Integer.MAX_VALUE, true);
+        return unmarshalDocument(open(xml), beanClass);
+      }
+    } catch (InvalidRequestParameter ex) {
+      throw new DeserialisationError("Could not obtain field data for class " + beanClass.getName(), ex);
+    } catch (Exception ex) {
+      throw new DeserialisationError("Could not parse XML for class " + beanClass.getName(), ex);
+    }
+  }
+
+  /**
+   * Create the JAXB context of the parameter class.
+   */
+  public void prepare(Class<?> type) throws Exception {
+    if (!type.isPrimitive() && !type.getName().startsWith("java.")) {
+      JAXBContexts.getContext(type);
+    }
+  }
+
+  private XMLStreamReader open(InputStream is, String charset) throws XMLStreamException {
+    InputStream limited = new LimitedInputStream(is, maxBytes);
+    XMLStreamReader reader = charset == null ? inputFactory.createXMLStreamReader(limited)
+            : inputFactory.createXMLStreamReader(limited, charset);
+    return new DepthLimitedReader(reader, maxDepth);
+  }
+
+  private XMLStreamReader open(String xml) throws XMLStreamException, IOException {
+    // a character takes at least one byte
+    if (xml.length() > maxBytes) {
+      throw new IOException("Request parameter exceeds the limit of " + maxBytes + " bytes");
+    }
+    return new DepthLimitedReader(inputFactory.createXMLStreamReader(new StringReader(xml)), maxDepth);
+  }
+
+  private static Object unmarshalDocument(XMLStreamReader reader, Class<?> type) throws Exception {
+    try {
+      reader.nextTag();
+      return unmarshal(reader, type);
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Bind the element the reader is positioned on, the reader is left after
+   * the end of the element.
+   */
+  private static Object unmarshal(XMLStreamReader reader, Class<?> type) throws Exception {
+    Unmarshaller unmarshaller = JAXBContexts.borrowUnmarshaller(type);
+    Object rc = unmarshaller.unmarshal(reader, type).getValue();
+    JAXBContexts.returnUnmarshaller(type, unmarshaller);
+    return rc;
+  }
+
+  /**
+   * Move to the start of the next child element.
+   *
+   * @param advance false if the current event was not processed yet.
+   * @return false if the end of the parent element was reached.
+   */
+  private static boolean nextElement(XMLStreamReader reader, boolean advance) throws XMLStreamException {
+    int event = advance ? reader.nextTag() : reader.getEventType();
+    while (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT) {
+      event = reader.nextTag();
+    }
+    return event == XMLStreamConstants.START_ELEMENT;
+  }
+
+  private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+  }
+
+  private static int indexOf(String element, Class<?>[] parameterTypes, String[] parameterNames) {
+    for (int i = 0; i < parameterTypes.length; i++) {
+      if (element.equals(parameterTypes[i].getSimpleName())
+              || (parameterNames != null && element.equals(parameterNames[i]))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -17,40 +17,37 @@ package org.jaxygen.converters.xml;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.Marshaller;
+import org.jaxygen.converters.PreparableConverter;
 import org.jaxygen.converters.ResponseConverter;
 import org.jaxygen.converters.exceptions.SerializationError;
+import org.jaxygen.dto.Response;
 
 /**
  *
  * @author artur
  */
-public class XMLResponseConverter implements ResponseConverter {
+public class XMLResponseConverter implements ResponseConverter, PreparableConverter {
 
  public final static String NAME = "XML";
+ private final boolean formatted;
+
+ public XMLResponseConverter() {
+  this(true);
+ }
+
+ /**
+  * @param formatted true if the XML is indented.
+  */
+ public XMLResponseConverter(boolean formatted) {
+  this.formatted = formatted;
+ }
 
  public void serialize(Object msg, OutputStream writter) throws SerializationError {
   if (msg != null) {
       try {
-        // get the list of already registered classes
-        List<Class<?>> registeredClasses = new ArrayList<Class<?>>();
-        registeredClasses.add(msg.getClass()); // add
-        
-
-        Class<?> classes[] = new Class<?>[registeredClasses.size()];
-        JAXBContext jc = JAXBContext.newInstance((Class<?>[]) registeredClasses.toArray(classes));
-
-        Marshaller marshaler = jc.createMarshaller();
-        marshaler.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-        
-
-        marshaler.marshal(msg, writter);
-        
+        JAXBContexts.marshal(msg, writter, formatted);
       } catch (Exception e) {
         Logger.getLogger(XMLResponseConverter.class.getName()).log(Level.SEVERE, "Serialize error : ", e);
         try {
@@ -62,6 +59,16 @@ public class XMLResponseConverter implements ResponseConverter {
     }
  }
 
+ /**
+  * Create the JAXB context of the response wrapper classes. The responses
+  * are always wrapped, so the service result classes need no own contexts.
+  */
+ public void prepare(Class<?> type) throws Exception {
+  if (Response.class.isAssignableFrom(type)) {
+   JAXBContexts.getContext(type);
+  }
+ }
+
  public String getName() {
   return NAME;
  }
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.dto;
+
+/**
+ * Response to a batch request. It contains the responses of the batched
+ * calls, in the order of the calls in the request. Each of them is either a
+ * {@link Response} or an {@link ExceptionResponse}.
+ *
+ * @author Artur
+ */
+public class BatchResponse extends Response {
+
+    private static final long serialVersionUID = 3320817694583250917L;
+    private Response[] responses;
+
+    public BatchResponse() {
+    }
+
+    public BatchResponse(Response[] responses) {
+        this.responses = responses;
+    }
+
+    public Response[] getResponses() {
+        return responses;
+    }
+
+    public void setResponses(Response[] responses) {
+        this.responses = responses;
+    }
+}
@@ -26,6 +26,8 @@ import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jaxygen.annotations.NetAPI;
@@ -45,6 +47,16 @@ import org.jaxygen.dto.properties.PropertyDTO;
  */
 public class ExceptionResponse extends Response {
 
+    /**
+     * Stack trace depth printing the whole stack trace, as
+     * Throwable.printStackTrace does.
+     */
+    public static final int FULL_STACK_TRACE = -1;
+    private static final int MAX_CAUSES = 16;
+    private static final PropertyDescriptor[] NO_PROPERTIES = new PropertyDescriptor[0];
+    // NetAPI properties of the exception classes, introspected once per class
+    private static final ConcurrentMap<Class<?>, PropertyDescriptor[]> argumentProperties = new ConcurrentHashMap<Class<?>, PropertyDescriptor[]>();
+
     public static class ExceptionData implements Serializable {
 
         private static final long serialVersionUID = 133887542L;
@@ -107,34 +119,65 @@ public class ExceptionResponse extends Response {
     }
 
     public ExceptionResponse(Throwable ex, final String message) {
+        this(ex, message, FULL_STACK_TRACE);
+    }
+
+    /**
+     * @param ex The exception.
+     * @param message Description of the error.
+     * @param stackTraceDepth Number of the stack frames of the exception and
+     * of each of its causes sent to the client, 0 to send no stack trace,
+     * {@link #FULL_STACK_TRACE} to send all of them.
+     */
+    public ExceptionResponse(Throwable ex, final String message, int stackTraceDepth) {
         exception.setName(ex.toString());
         exception.setDescription(message);
         exception.setExceptionClass(ex.getClass().getCanonicalName());
         setArgs(ex);
 
-        ByteArrayOutputStream bo = new ByteArrayOutputStream();
-        final PrintWriter printWriter = new PrintWriter(bo);
-        ex.printStackTrace(printWriter);
-        printWriter.flush();
-        exception.setStackTrace(new String(bo.toByteArray(), Charset.defaultCharset()));
+        if (stackTraceDepth < 0) {
+            ByteArrayOutputStream bo = new ByteArrayOutputStream();
+            final PrintWriter printWriter = new PrintWriter(bo);
+            ex.printStackTrace(printWriter);
+            printWriter.flush();
+            exception.setStackTrace(new String(bo.toByteArray(), Charset.defaultCharset()));
+        } else if (stackTraceDepth > 0) {
+            exception.setStackTrace(stackTrace(ex, stackTraceDepth));
+        }
+    }
+
+    private static String stackTrace(Throwable ex, int depth) {
+        StringBuilder sb = new StringBuilder();
+        Throwable t = ex;
+        for (int i = 0; t != null && i < MAX_CAUSES; i++) {
+            if (i > 0) {
+                sb.append("Caused by: ");
+            }
+            sb.append(t).append('\n');
+            StackTraceElement[] trace = t.getStackTrace();
+            int frames = Math.min(depth, trace.length);
+            for (int f = 0; f < frames; f++) {
+                sb.append("\tat ").append(trace[f]).append('\n');
+            }
+            if (trace.length > frames) {
+                sb.append("\t... ").append(trace.length - frames).append(" more\n");
+            }
+            t = t.getCause() == t ? null : t.getCause();
+        }
+        return sb.toString();
     }
 
     private void setArgs(Throwable ex) {
         try {
-            List<PropertyDTO> args = new ArrayList<PropertyDTO>();
-            BeanInfo info = Introspector.getBeanInfo(ex.getClass());
-            PropertyDescriptor[] descriptor = info.getPropertyDescriptors();
-            for (PropertyDescriptor pd : descriptor) {
-                if (pd.getReadMethod().isAnnotationPresent(NetAPI.class)) {
-                    PropertyDTO arg = new PropertyDTO();
-                    arg.setKey(pd.getName());
-                    arg.setValue(pd.getReadMethod().invoke(ex));
-                    args.add(arg);
-                }
+            PropertyDescriptor[] properties = getArgumentProperties(ex.getClass());
+            List<PropertyDTO> args = new ArrayList<PropertyDTO>(properties.length);
+            for (PropertyDescriptor pd : properties) {
+                PropertyDTO arg = new PropertyDTO();
+                arg.setKey(pd.getName());
+                arg.setValue(pd.getReadMethod().invoke(ex));
+                args.add(arg);
             }
             exception.setArguments(args.toArray(new PropertyDTO[args.size()]));
-        } catch (IntrospectionException ex1) {
-            Logger.getLogger(ExceptionResponse.class.getName()).log(Level.WARNING, "Could not populate bean properties", ex1);
         } catch (IllegalAccessException ex1) {
             Logger.getLogger(ExceptionResponse.class.getName()).log(Level.WARNING, "Could not populate bean properties", ex1);
         } catch (IllegalArgumentException ex1) {
@@ -144,6 +187,30 @@ public class ExceptionResponse extends Response {
         }
     }
 
+    /**
+     * Get the properties of the exception class with the read method
+     * annotated by {@link NetAPI}.
+     */
+    private static PropertyDescriptor[] getArgumentProperties(Class<?> exceptionClass) {
+        PropertyDescriptor[] properties = argumentProperties.get(exceptionClass);
+        if (properties == null) {
+            List<PropertyDescriptor> annotated = new ArrayList<PropertyDescriptor>();
+            try {
+                BeanInfo info = Introspector.getBeanInfo(exceptionClass);
+                for (PropertyDescriptor pd : info.getPropertyDescriptors()) {
+                    if (pd.getReadMethod() != null && pd.getReadMethod().isAnnotationPresent(NetAPI.class)) {
+                        annotated.add(pd);
+                    }
+                }
+            } catch (IntrospectionException ex) {
+                Logger.getLogger(ExceptionResponse.class.getName()).log(Level.WARNING, "Could not populate bean properties", ex);
+            }
+            properties = annotated.toArray(NO_PROPERTIES);
+            argumentProperties.putIfAbsent(exceptionClass, properties);
+        }
+        return properties;
+    }
+
     public ExceptionData getExceptionData() {
         return exception;
     }
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.dto;
+
+/** Interface might be implemented by the method result if it knows the
+ * version of the data it carries, e.g. a modification counter of a database
+ * row. The version is used as the ETag of the response, so a matching
+ * If-None-Match request is answered without serializing the result.
+ *
+ * @author Artur
+ */
+public interface Versioned {
+  /**
+   * @return Version of the data, changing each time the data changes.
+   */
+  String getVersion();
+}
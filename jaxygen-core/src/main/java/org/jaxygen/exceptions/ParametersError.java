@@ -21,6 +21,10 @@ package org.jaxygen.exceptions;
  */
 public class ParametersError extends Exception {
 
+    public ParametersError(String message) {
+        super(message);
+    }
+
     public ParametersError(String message, Exception ex) {
         super(message,ex);
     }
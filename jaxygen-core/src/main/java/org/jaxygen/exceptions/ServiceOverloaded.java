@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.exceptions;
+
+import org.jaxygen.annotations.NetAPI;
+
+/** Thrown when the concurrency limit of the method is reached and the call
+ * could not be accepted in the configured time.
+ *
+ * @author Artur
+ */
+@NetAPI(description = "The method is executed by too many callers at once, try again later")
+public class ServiceOverloaded extends BasicException {
+
+    private static final long serialVersionUID = 8126645539120981632L;
+
+    public ServiceOverloaded(String description) {
+        super(description);
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Response body stream compressing the data on the fly with gzip or deflate
+ * content encoding. Bodies shorter than the threshold are sent as they are:
+ * the data is buffered until the threshold is crossed, only then
+ * {@link #compressionStarted()} is called, so the Content-Encoding header
+ * could be set, and the compression starts.
+ *
+ * The stream must be ended by {@link #close()}, which finishes the
+ * compressed data but leaves the underlying stream open.
+ *
+ * @author Artur
+ */
+public class CompressingOutputStream extends OutputStream {
+
+    /**
+     * Content encoding supported by the stream.
+     */
+    public enum Encoding {
+
+        gzip, deflate
+    }
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private final OutputStream raw;
+    private final Encoding encoding;
+    private final DeflaterPool pool;
+    private final int threshold;
+    private ByteArrayOutputStream buffer;
+    private Deflater deflater;
+    private DeflaterOutputStream compressed;
+    private CRC32 crc;
+    private boolean closed;
+
+    /**
+     * @param out Stream of the response body.
+     * @param encoding Encoding accepted by the client.
+     * @param pool Pool of the deflaters matching the encoding (nowrap for
+     * gzip).
+     * @param threshold Minimal size of the compressed body.
+     */
+    public CompressingOutputStream(OutputStream out, Encoding encoding, DeflaterPool pool, int threshold) {
+        this.raw = out;
+        this.encoding = encoding;
+        this.pool = pool;
+        this.threshold = threshold;
+        this.buffer = new ByteArrayOutputStream(Math.min(Math.max(threshold, 32), 8192));
+    }
+
+    /**
+     * Pick the encoding accepted by the client. Each coding gets the q value
+     * given to it, or to the * if it is not listed; the coding with the
+     * highest positive q value wins.
+     *
+     * @param acceptEncoding Value of the Accept-Encoding header.
+     * @return gzip or deflate, gzip preferred on equal q values; null if none
+     * is accepted.
+     */
+    public static Encoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.trim().split(";");
+            String name = parts[0].trim().toLowerCase();
+            double q = quality(parts);
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = Math.max(gzip, q);
+            } else if (name.equals("deflate")) {
+                deflate = Math.max(deflate, q);
+            } else if (name.equals("*")) {
+                any = Math.max(any, q);
+            }
+        }
+        // the * applies only to the codings not listed
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+        if (gzip <= 0 && deflate <= 0) {
+            return null;
+        }
+        return gzip >= deflate ? Encoding.gzip : Encoding.deflate;
+    }
+
+    /**
+     * @return The q value of the coding, 1 if not given, 0 if malformed.
+     */
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String p = parts[i].trim();
+            if (p.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(p.substring(2).trim());
+                } catch (NumberFormatException ex) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (compressed != null) {
+            writeCompressed(b, off, len);
+        } else if (buffer.size() + len < threshold) {
+            buffer.write(b, off, len);
+        } else {
+            startCompression();
+            writeCompressed(b, off, len);
+        }
+    }
+
+    /**
+     * Send the data written so far. The compressed data is flushed with
+     * {@link Deflater#SYNC_FLUSH}; the data buffered below the threshold is
+     * kept, as it is not known yet if the body is compressed.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (compressed != null) {
+            compressed.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (compressed != null) {
+            try {
+                compressed.finish();
+                if (encoding == Encoding.gzip) {
+                    writeTrailer();
+                }
+            } finally {
+                pool.release(deflater);
+                deflater = null;
+            }
+        } else {
+            buffer.writeTo(raw);
+        }
+        buffer = null;
+        raw.flush();
+    }
+
+    /**
+     * @return true if the body is being compressed.
+     */
+    public boolean isCompressing() {
+        return compressed != null;
+    }
+
+    /**
+     * Called once the body is known to be compressed, before the first byte
+     * is written to the underlying stream.
+     *
+     * @throws IOException .
+     */
+    protected void compressionStarted() throws IOException {
+    }
+
+    /**
+     * @return Encoding of the compressed body.
+     */
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    private void startCompression() throws IOException {
+        compressionStarted();
+        deflater = pool.borrow();
+        if (encoding == Encoding.gzip) {
+            raw.write(GZIP_HEADER);
+            crc = new CRC32();
+        }
+        compressed = new DeflaterOutputStream(raw, deflater, 8192, true);
+        if (buffer.size() > 0) {
+            byte[] data = buffer.toByteArray();
+            writeCompressed(data, 0, data.length);
+        }
+        buffer.reset();
+    }
+
+    private void writeCompressed(byte[] b, int off, int len) throws IOException {
+        if (crc != null) {
+            crc.update(b, off, len);
+        }
+        compressed.write(b, off, len);
+    }
+
+    private void writeTrailer() throws IOException {
+        writeInt(raw, (int) crc.getValue());
+        writeInt(raw, (int) deflater.getBytesRead());
+    }
+
+    private static void writeInt(OutputStream out, int v) throws IOException {
+        out.write(v & 0xff);
+        out.write((v >> 8) & 0xff);
+        out.write((v >> 16) & 0xff);
+        out.write((v >> 24) & 0xff);
+    }
+}
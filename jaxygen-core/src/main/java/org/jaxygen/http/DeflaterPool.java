@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.http;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Pool of the Deflater instances, so each compressed response does not
+ * allocate and release the native zlib state.
+ *
+ * @author Artur
+ */
+public class DeflaterPool {
+
+    private final int level;
+    private final boolean nowrap;
+    private final BlockingQueue<Deflater> idle;
+
+    /**
+     * @param level Compression level, 0-9 or Deflater.DEFAULT_COMPRESSION.
+     * @param nowrap true for the raw deflate data (used by gzip), false for
+     * the zlib format.
+     * @param size Maximal number of the idle deflaters kept by the pool.
+     */
+    public DeflaterPool(int level, boolean nowrap, int size) {
+        this.level = level;
+        this.nowrap = nowrap;
+        this.idle = new ArrayBlockingQueue<Deflater>(size);
+    }
+
+    /**
+     * @return Idle or new deflater, must be returned by
+     * {@link #release(Deflater)}.
+     */
+    public Deflater borrow() {
+        Deflater deflater = idle.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, nowrap);
+        }
+        return deflater;
+    }
+
+    /**
+     * @param deflater Deflater obtained by {@link #borrow()}.
+     */
+    public void release(Deflater deflater) {
+        deflater.reset();
+        if (!idle.offer(deflater)) {
+            deflater.end();
+        }
+    }
+}
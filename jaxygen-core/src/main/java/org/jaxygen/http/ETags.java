@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.http;
+
+import java.nio.charset.Charset;
+
+/**
+ * Builds and compares the HTTP entity tags.
+ *
+ * @author Artur
+ */
+public class ETags {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private ETags() {
+    }
+
+    /**
+     * @param body Serialized response.
+     * @return Strong ETag computed from the 64 bit FNV-1a hash of the bytes.
+     */
+    public static String fromBytes(byte[] body) {
+        return quote(fnv(FNV_OFFSET, body));
+    }
+
+    /**
+     * @param version Version of the data.
+     * @param variant Name of the representation, e.g. the output converter,
+     * so different formats of the same data have different tags.
+     * @return ETag of the given version of the data.
+     */
+    public static String fromVersion(String version, String variant) {
+        long hash = fnv(FNV_OFFSET, version.getBytes(UTF8));
+        hash = fnv(hash, new byte[]{0});
+        return quote(fnv(hash, variant.getBytes(UTF8)));
+    }
+
+    /**
+     * @param etag Strong or weak ETag.
+     * @return The weak form of the tag, e.g. for a representation sent with
+     * different content encodings.
+     */
+    public static String weak(String etag) {
+        return etag.startsWith("W/") ? etag : "W/" + etag;
+    }
+
+    /**
+     * Check the If-None-Match header using the weak comparison.
+     *
+     * @param ifNoneMatch Value of the header, might be null.
+     * @param etag Current ETag of the resource.
+     * @return true if the client already has the current representation.
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        final String opaque = opaque(etag);
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*") || opaque(tag).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static long fnv(long hash, byte[] bytes) {
+        for (byte b : bytes) {
+            hash ^= (b & 0xff);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static String quote(long hash) {
+        return "\"" + Long.toHexString(hash) + "\"";
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.http;
+
+import java.lang.reflect.Method;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jaxygen.converters.xml.XMLDateAdapter;
+import org.jaxygen.exceptions.InvalidRequestParameter;
+import org.jaxygen.network.UploadedFile;
+
+/**
+ * Request parameters given as a map of names and values, e.g. a single entry
+ * of a batch request. The values are interpreted the same way as by
+ * {@link HttpRequestParser}.
+ *
+ * @author Artur
+ */
+public class MapRequestParams implements HttpRequestParams {
+
+    private static final long serialVersionUID = 2814367096138452173L;
+    private final Map<String, String> parameters;
+
+    /**
+     * @param parameters Parameter names and values.
+     */
+    public MapRequestParams(Map<String, String> parameters) {
+        this.parameters = new HashMap<String, String>(parameters);
+    }
+
+    @Override
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    @Override
+    public Map<String, UploadedFile> getFiles() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public String getAsString(String paramName, int minLen, int maxLen,
+            boolean mandatory) throws InvalidRequestParameter {
+        String rc = parameters.get(paramName);
+        if (rc == null && mandatory) {
+            throw new InvalidRequestParameter("Missing mandatory parameter :" + paramName);
+        }
+        return checkLength(paramName, rc, minLen, maxLen);
+    }
+
+    @Override
+    public String getAsString(String paramName, int minLen, int maxLen,
+            String defaultValue) throws InvalidRequestParameter {
+        String rc = parameters.get(paramName);
+        if (rc == null) {
+            rc = defaultValue;
+        }
+        return checkLength(paramName, rc, minLen, maxLen);
+    }
+
+    @Override
+    public boolean getAsBoolean(String paramName, boolean mandatory)
+            throws InvalidRequestParameter {
+        String value = getAsString(paramName, 0, 20, mandatory);
+        return value != null && value.toUpperCase().equals("TRUE");
+    }
+
+    @Override
+    public boolean getAsBooleanWithDefault(String paramName, boolean defaultVal)
+            throws InvalidRequestParameter {
+        String value = getAsString(paramName, 0, 20, false);
+        if (value == null || value.length() == 0) {
+            return defaultVal;
+        }
+        return value.toUpperCase().equals("TRUE");
+    }
+
+    @Override
+    public Date getAsDate(String paramName, boolean mandatory)
+            throws InvalidRequestParameter {
+        String s = parameters.get(paramName);
+        if (s != null && s.length() > 0) {
+            DateFormat dateFormater = XMLDateAdapter.dateFormater;
+            try {
+                synchronized (dateFormater) {
+                    return dateFormater.parse(s);
+                }
+            } catch (Exception e) {
+                throw new InvalidRequestParameter("Invalid date format of the parameter " + paramName);
+            }
+        } else if (mandatory) {
+            throw new InvalidRequestParameter("Missing mandatory parameter :" + paramName);
+        }
+        return null;
+    }
+
+    @Override
+    public int getAsInt(String paramName, int min, int max, int defaultValue)
+            throws InvalidRequestParameter {
+        String valStr = parameters.get(paramName);
+        if (valStr != null && valStr.length() > 0) {
+            return parseInt(paramName, valStr);
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public int getAsInt(String paramName, int min, int max, boolean mandatory)
+            throws InvalidRequestParameter {
+        String valStr = parameters.get(paramName);
+        if (valStr != null && valStr.length() > 0) {
+            return parseInt(paramName, valStr);
+        } else if (mandatory) {
+            throw new InvalidRequestParameter("Missing mandatory parameter :" + paramName);
+        }
+        return 0;
+    }
+
+    @Override
+    public Object getAsEnum(String paramName, Class<?> enumClass,
+            boolean mandatory) throws InvalidRequestParameter {
+        String value = parameters.get(paramName);
+        if (value != null && value.length() > 0) {
+            try {
+                return enumValue(enumClass, value);
+            } catch (Exception e) {
+                throw new InvalidRequestParameter(
+                        "Could not determinalte value of parameter " + paramName + " for enum class " + enumClass.getName());
+            }
+        } else if (mandatory) {
+            throw new InvalidRequestParameter("Missing mandatory parameter :" + paramName);
+        }
+        return null;
+    }
+
+    @Override
+    public Object getAsEnum(String paramName, Class<?> enumClass,
+            Object defaultValue) throws InvalidRequestParameter {
+        Object rc = getAsEnum(paramName, enumClass, false);
+        if (rc == null) {
+            rc = defaultValue;
+        }
+        return rc;
+    }
+
+    @Override
+    public List<Integer> getAsListOfInt(String listName)
+            throws InvalidRequestParameter {
+        List<Integer> rc = new ArrayList<Integer>();
+        for (String s : getAsListOfStrings(listName)) {
+            rc.add(Integer.decode(s));
+        }
+        return rc;
+    }
+
+    @Override
+    public List<String> getAsListOfStrings(String listName)
+            throws InvalidRequestParameter {
+        List<String> rc = new ArrayList<String>();
+        for (int i = 0; parameters.containsKey(listName + "[" + i + "]"); i++) {
+            String value = parameters.get(listName + "[" + i + "]");
+            if (value != null && value.length() > 0) {
+                rc.add(value);
+            }
+        }
+        return rc;
+    }
+
+    @Override
+    public List<?> getAsEnums(String name, Class<?> clazz)
+            throws InvalidRequestParameter {
+        List<Object> rc = new ArrayList<Object>();
+        try {
+            for (String value : getAsListOfStrings(name)) {
+                rc.add(enumValue(clazz, value));
+            }
+        } catch (Exception e) {
+            throw new InvalidRequestParameter(name);
+        }
+        return rc;
+    }
+
+    /**
+     * Nothing to release, the parameters do not carry files.
+     */
+    @Override
+    public void dispose() {
+    }
+
+    private static String checkLength(String paramName, String rc, int minLen, int maxLen) throws InvalidRequestParameter {
+        if (rc != null && rc.length() > maxLen) {
+            throw new InvalidRequestParameter("String value of parameter " + paramName + " to long. (maximal size is " + maxLen + ")");
+        }
+        if (rc != null && rc.length() < minLen) {
+            throw new InvalidRequestParameter("String value of parameter " + paramName + " too short. The minilam expected length is " + minLen);
+        }
+        return rc;
+    }
+
+    private static int parseInt(String paramName, String valStr) throws InvalidRequestParameter {
+        try {
+            return Integer.parseInt(valStr);
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestParameter("Value of parameter " + paramName + " is not in valid numerical format");
+        }
+    }
+
+    private static Object enumValue(Class<?> enumClass, String value) throws Exception {
+        Method m = enumClass.getDeclaredMethod("valueOf", String.class);
+        return m.invoke(null, value);
+    }
+}
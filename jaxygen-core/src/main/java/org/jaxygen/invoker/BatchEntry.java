@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.invoker;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jaxygen.converters.properties.PropertiesToBeanConverter;
+import org.jaxygen.exceptions.InvalidRequestParameter;
+
+/**
+ * Single call of a batch request. The batch is a JSON array of objects:
+ * <pre>
+ * [{"class": "UserService", "method": "getUser", "inputType": "JSON",
+ *   "payload": {"com.example.UserRequestDTO": {"id": 10}}}]
+ * </pre>
+ * The class name is relative to the servicePath, the same as in the URL of a
+ * single call. The payload entries are the request parameters of the call;
+ * values which are not JSON strings are passed as their JSON text.
+ *
+ * @author Artur
+ */
+class BatchEntry {
+
+    private final String className;
+    private final String methodName;
+    private final String inputType;
+    private final Map<String, String> payload;
+
+    BatchEntry(String className, String methodName, String inputType, Map<String, String> payload) {
+        this.className = className;
+        this.methodName = methodName;
+        this.inputType = inputType;
+        this.payload = payload;
+    }
+
+    /**
+     * Parse the batch request.
+     *
+     * @param json JSON array of calls.
+     * @param maxCalls Maximal number of calls accepted in one batch.
+     * @return Calls in the request order.
+     * @throws InvalidRequestParameter if the batch has no valid form.
+     */
+    static List<BatchEntry> parse(String json, int maxCalls) throws InvalidRequestParameter {
+        JsonElement root;
+        try {
+            root = new JsonParser().parse(json);
+        } catch (RuntimeException ex) {
+            throw new InvalidRequestParameter("Batch request is not a valid JSON");
+        }
+        if (!root.isJsonArray()) {
+            throw new InvalidRequestParameter("Batch request must be a JSON array");
+        }
+        JsonArray calls = root.getAsJsonArray();
+        if (calls.size() > maxCalls) {
+            throw new InvalidRequestParameter("Batch request contains " + calls.size() + " calls, the limit is " + maxCalls);
+        }
+        List<BatchEntry> entries = new ArrayList<BatchEntry>(calls.size());
+        for (JsonElement call : calls) {
+            if (!call.isJsonObject()) {
+                throw new InvalidRequestParameter("Batch call must be a JSON object");
+            }
+            JsonObject o = call.getAsJsonObject();
+            Map<String, String> payload = new HashMap<String, String>();
+            JsonElement payloadElement = o.get("payload");
+            if (payloadElement != null && payloadElement.isJsonObject()) {
+                for (Map.Entry<String, JsonElement> e : payloadElement.getAsJsonObject().entrySet()) {
+                    payload.put(e.getKey(), asText(e.getValue()));
+                }
+            }
+            String inputType = asText(o.get("inputType"));
+            entries.add(new BatchEntry(asText(o.get("class")), asText(o.get("method")),
+                    inputType != null ? inputType : PropertiesToBeanConverter.NAME, payload));
+        }
+        return entries;
+    }
+
+    private static String asText(JsonElement e) {
+        if (e == null || e.isJsonNull()) {
+            return null;
+        }
+        if (e.isJsonPrimitive() && e.getAsJsonPrimitive().isString()) {
+            return e.getAsString();
+        }
+        return e.toString();
+    }
+
+    String getClassName() {
+        return className;
+    }
+
+    String getMethodName() {
+        return methodName;
+    }
+
+    String getInputType() {
+        return inputType;
+    }
+
+    Map<String, String> getPayload() {
+        return payload;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.invoker;
+
+import org.jaxygen.converters.ConvertersFactory;
+import org.jaxygen.converters.RequestConverter;
+import org.jaxygen.converters.ResponseConverter;
+import org.jaxygen.converters.json.JsonResponseConverter;
+
+/**
+ * Converters resolved for the calls of a {@link ServiceEndpoint} with given
+ * input and output types. The resolved pairs are kept by the endpoint, so
+ * the subsequent calls do not query the {@link ConvertersFactory} at all.
+ *
+ * @author Artur
+ */
+class EndpointConverters {
+
+    private static final ResponseConverter DEFAULT_RESPONSE_CONVERTER = new JsonResponseConverter();
+    private final String inputType;
+    private final String outputType;
+    private final int revision;
+    private final RequestConverter requestConverter;
+    private final ResponseConverter responseConverter;
+
+    private EndpointConverters(String inputType, String outputType, int revision) {
+        this.inputType = inputType;
+        this.outputType = outputType;
+        this.revision = revision;
+        this.requestConverter = ConvertersFactory.getRequestConverter(inputType);
+        this.responseConverter = responseConverter(outputType);
+    }
+
+    /**
+     * Resolve the converters in the current state of the
+     * {@link ConvertersFactory}.
+     */
+    static EndpointConverters resolve(String inputType, String outputType) {
+        // the revision is read first, so a concurrent registration makes the pair stale rather than wrong
+        return new EndpointConverters(inputType, outputType, ConvertersFactory.getRevision());
+    }
+
+    /**
+     * @param outputType Name of the response converter.
+     * @return The converter or the JSON one if there is no converter of that
+     * name.
+     */
+    static ResponseConverter responseConverter(String outputType) {
+        ResponseConverter converter = ConvertersFactory.getResponseConverter(outputType);
+        return converter != null ? converter : DEFAULT_RESPONSE_CONVERTER;
+    }
+
+    /**
+     * @return true if the converters were resolved for these types and no
+     * converter was registered since then.
+     */
+    boolean matches(String inputType, String outputType, int revision) {
+        return this.revision == revision && this.inputType.equals(inputType) && this.outputType.equals(outputType);
+    }
+
+    /**
+     * @return true if the pair was resolved in the same revision of the
+     * registry as the other one.
+     */
+    boolean isCurrent(EndpointConverters other) {
+        return revision == other.revision;
+    }
+
+    /**
+     * @return true if both the types name registered converters.
+     */
+    boolean isKnown() {
+        return requestConverter != null && responseConverter != DEFAULT_RESPONSE_CONVERTER;
+    }
+
+    /**
+     * @return Converter of the inputType, null if there is no such converter.
+     */
+    RequestConverter getRequestConverter() {
+        return requestConverter;
+    }
+
+    /**
+     * @return Converter of the outputType, the JSON one if there is no such
+     * converter.
+     */
+    ResponseConverter getResponseConverter() {
+        return responseConverter;
+    }
+}
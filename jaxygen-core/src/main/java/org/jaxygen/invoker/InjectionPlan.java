@@ -0,0 +1,163 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.invoker;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.servlet.http.HttpSession;
+import org.jaxygen.annotations.ClientIp;
+import org.jaxygen.annotations.SessionContext;
+import org.jaxygen.security.SecurityProfile;
+import org.jaxygen.security.annotations.SecurityContext;
+
+/**
+ * List of the fields of a class which are filled by the {@link ServiceInvoker}
+ * before the service method is called. These are the fields annotated by
+ * {@link SecurityContext}, {@link SessionContext} and {@link ClientIp},
+ * declared by the class itself or inherited from its superclasses.
+ *
+ * The plan is computed once per class, the fields are made accessible while
+ * the plan is created, so injecting the values is just a sequence of
+ * Field.set calls.
+ *
+ * @author Artur
+ */
+public class InjectionPlan {
+
+    private static final Field[] NO_FIELDS = new Field[0];
+    private static final ConcurrentMap<Class<?>, InjectionPlan> plans = new ConcurrentHashMap<Class<?>, InjectionPlan>();
+    private final Field[] securityContextFields;
+    private final Field[] sessionContextFields;
+    private final Field[] clientIpFields;
+
+    private InjectionPlan(Class<?> clazz) {
+        List<Field> securityContext = new ArrayList<Field>();
+        List<Field> sessionContext = new ArrayList<Field>();
+        List<Field> clientIp = new ArrayList<Field>();
+        for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field f : c.getDeclaredFields()) {
+                if (f.isAnnotationPresent(SecurityContext.class)) {
+                    securityContext.add(accessible(f));
+                }
+                if (f.isAnnotationPresent(SessionContext.class)) {
+                    sessionContext.add(accessible(f));
+                }
+                if (f.isAnnotationPresent(ClientIp.class)) {
+                    clientIp.add(accessible(f));
+                }
+            }
+        }
+        securityContextFields = securityContext.toArray(NO_FIELDS);
+        sessionContextFields = sessionContext.toArray(NO_FIELDS);
+        clientIpFields = clientIp.toArray(NO_FIELDS);
+    }
+
+    /**
+     * Get the injection plan of the class.
+     *
+     * @param clazz Class of the injected object.
+     * @return The plan, shared by all the objects of the given class.
+     */
+    public static InjectionPlan forClass(Class<?> clazz) {
+        InjectionPlan plan = plans.get(clazz);
+        if (plan == null) {
+            plan = new InjectionPlan(clazz);
+            InjectionPlan current = plans.putIfAbsent(clazz, plan);
+            if (current != null) {
+                plan = current;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * @return true if the class has a field annotated by
+     * {@link SecurityContext}.
+     */
+    public boolean hasSecurityContext() {
+        return securityContextFields.length > 0;
+    }
+
+    /**
+     * @return true if the class has a field annotated by
+     * {@link SessionContext}.
+     */
+    public boolean hasSessionContext() {
+        return sessionContextFields.length > 0;
+    }
+
+    /**
+     * @return true if the class has a field annotated by {@link ClientIp}.
+     */
+    public boolean hasClientIp() {
+        return clientIpFields.length > 0;
+    }
+
+    /**
+     * Fill the {@link SecurityContext} and {@link SessionContext} fields.
+     *
+     * @param target Injected object.
+     * @param session Current session.
+     * @param profile Security profile attached to the session.
+     * @throws IllegalAccessException .
+     */
+    public void injectContext(Object target, HttpSession session, SecurityProfile profile) throws IllegalAccessException {
+        for (Field f : securityContextFields) {
+            f.set(target, profile);
+        }
+        for (Field f : sessionContextFields) {
+            f.set(target, session);
+        }
+    }
+
+    /**
+     * Fill the {@link ClientIp} fields.
+     *
+     * @param target Injected object.
+     * @param ip Client IP address.
+     * @throws IllegalAccessException .
+     */
+    public void injectClientIp(Object target, String ip) throws IllegalAccessException {
+        for (Field f : clientIpFields) {
+            f.set(target, ip);
+        }
+    }
+
+    /**
+     * Read the security profile configured by the service method.
+     *
+     * @param target The service object.
+     * @return Value of the last {@link SecurityContext} field.
+     * @throws IllegalAccessException .
+     */
+    public SecurityProfile readSecurityProfile(Object target) throws IllegalAccessException {
+        SecurityProfile profile = null;
+        for (Field f : securityContextFields) {
+            profile = (SecurityProfile) f.get(target);
+        }
+        return profile;
+    }
+
+    private static Field accessible(Field f) {
+        if (!f.isAccessible()) {
+            f.setAccessible(true);
+        }
+        return f;
+    }
+}
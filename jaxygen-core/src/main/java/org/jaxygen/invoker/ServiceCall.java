@@ -0,0 +1,252 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.invoker;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import org.jaxygen.bulkhead.Bulkhead;
+import org.jaxygen.cache.SingleFlight;
+import org.jaxygen.converters.RequestConverter;
+import org.jaxygen.converters.ResponseConverter;
+import org.jaxygen.converters.StreamingRequestConverter;
+import org.jaxygen.http.HttpRequestParams;
+import org.jaxygen.metrics.Phase;
+import org.jaxygen.network.UploadedFile;
+
+/**
+ * State of a single call processed by the {@link ServiceInvoker}. The call
+ * might be finished on a different thread than the one which received the
+ * request, so everything needed to send the response is kept together.
+ *
+ * @author Artur
+ */
+class ServiceCall {
+
+    private final ServiceEndpoint endpoint;
+    private final HttpServletRequest request;
+    private final HttpServletResponse response;
+    private final HttpSession session;
+    private final HttpRequestParams params;
+    private final String inputFormat;
+    private final RequestConverter requestConverter;
+    private final ResponseConverter responseConverter;
+    private final boolean bodyStreamed;
+    private final long startNanos;
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private final AtomicReference<Thread> responder = new AtomicReference<Thread>();
+    private boolean inBulkhead;
+    private String cacheKey;
+    private SingleFlight.Flight flight;
+
+    ServiceCall(ServiceEndpoint endpoint, HttpServletRequest request, HttpServletResponse response,
+            HttpSession session, HttpRequestParams params, String inputFormat, RequestConverter requestConverter,
+            ResponseConverter responseConverter, boolean batched) {
+        this.endpoint = endpoint;
+        this.request = request;
+        this.response = response;
+        this.session = session;
+        this.params = params;
+        this.inputFormat = inputFormat;
+        this.requestConverter = requestConverter;
+        this.responseConverter = responseConverter;
+        // the calls of a batch share the body, so they use the request parameters instead
+        this.bodyStreamed = !batched && requestConverter instanceof StreamingRequestConverter;
+        this.startNanos = endpoint.getMetrics().callStarted();
+    }
+
+    /**
+     * Enter the bulkhead of the endpoint, if it has one. The bulkhead is left
+     * by {@link #finished(boolean)}.
+     *
+     * @param wait true to wait up to the maxWaitMillis of the bulkhead, false
+     * to reject the call at once.
+     * @return false if the call was rejected by the bulkhead.
+     */
+    boolean enterBulkhead(boolean wait) {
+        Bulkhead bulkhead = endpoint.getBulkhead();
+        if (bulkhead == null) {
+            return true;
+        }
+        inBulkhead = bulkhead.tryAcquire(wait);
+        return inBulkhead;
+    }
+
+    /**
+     * Take the right to write the response. A call running on a virtual
+     * thread might be timed out by the container while the method is still
+     * executing, so the response is written only by the thread which claimed
+     * it first.
+     *
+     * @return true if the current thread may write the response.
+     */
+    boolean claimResponse() {
+        final Thread current = Thread.currentThread();
+        return responder.compareAndSet(null, current) || responder.get() == current;
+    }
+
+    /**
+     * Build the key of the response cache: the endpoint, the converters and
+     * the request parameters in a canonical order. Calls with uploaded files
+     * or with the parameters streamed from the request body are not cached.
+     *
+     * @param perSession true if the session id is a part of the key.
+     * @return The key or null if the response of this call must not be
+     * cached.
+     */
+    String buildCacheKey(boolean perSession) {
+        Map<String, UploadedFile> files = params.getFiles();
+        if ((files != null && !files.isEmpty()) || isBodyStreamed()) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(endpoint.getPath());
+        sb.append('|').append(inputFormat).append('|').append(responseConverter.getName()).append('|');
+        if (perSession) {
+            sb.append(session == null ? "" : session.getId()).append('|');
+        }
+        for (Map.Entry<String, String> e : new TreeMap<String, String>(params.getParameters()).entrySet()) {
+            final String name = e.getKey();
+            if (!"inputType".equals(name) && !"outputType".equals(name)) {
+                // length prefixes keep the key unambiguous whatever the values contain
+                String value = e.getValue() == null ? "" : e.getValue();
+                sb.append(name.length()).append(':').append(name).append(value.length()).append(':').append(value);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return Key under which the response of this call is cached, null if
+     * it is not cached.
+     */
+    String getCacheKey() {
+        return cacheKey;
+    }
+
+    void setCacheKey(String cacheKey) {
+        this.cacheKey = cacheKey;
+    }
+
+    /**
+     * @return Flight led by this call, null if the call is not coalesced or
+     * it waited for another one.
+     */
+    SingleFlight.Flight getFlight() {
+        return flight;
+    }
+
+    void setFlight(SingleFlight.Flight flight) {
+        this.flight = flight;
+    }
+
+    /**
+     * Record the duration of a processing step.
+     *
+     * @param phase The step.
+     * @param phaseStartNanos System.nanoTime() taken when the step started.
+     */
+    void phaseEnded(Phase phase, long phaseStartNanos) {
+        phaseTook(phase, System.nanoTime() - phaseStartNanos);
+    }
+
+    void phaseTook(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+        endpoint.getMetrics().recordPhase(phase, nanos);
+    }
+
+    /**
+     * @return Value of the Server-Timing header describing the steps
+     * finished so far, e.g. "parse;dur=0.412, invoke;dur=12.3".
+     */
+    String getServerTiming() {
+        StringBuilder sb = new StringBuilder();
+        for (Phase phase : Phase.values()) {
+            long nanos = phaseNanos[phase.ordinal()];
+            if (nanos > 0) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(phase.getLabel()).append(";dur=").append(nanos / 1000 / 1000.0);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Record the end of the call in the endpoint metrics. Must be called
+     * exactly once for each call.
+     *
+     * @param failed true if the call ended with an error.
+     */
+    void finished(boolean failed) {
+        if (flight != null) {
+            // the waiting calls invoke the method on their own if nothing was shared
+            flight.release();
+        }
+        if (inBulkhead) {
+            inBulkhead = false;
+            endpoint.getBulkhead().release();
+        }
+        endpoint.getMetrics().callFinished(startNanos, failed);
+    }
+
+    /**
+     * @return true if the parameters are read by a
+     * {@link StreamingRequestConverter} from the request body.
+     */
+    boolean isBodyStreamed() {
+        return bodyStreamed;
+    }
+
+    ServiceEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    HttpServletRequest getRequest() {
+        return request;
+    }
+
+    HttpServletResponse getResponse() {
+        return response;
+    }
+
+    HttpSession getSession() {
+        return session;
+    }
+
+    HttpRequestParams getParams() {
+        return params;
+    }
+
+    String getInputFormat() {
+        return inputFormat;
+    }
+
+    /**
+     * @return Converter of the inputFormat, null if there is no such
+     * converter.
+     */
+    RequestConverter getRequestConverter() {
+        return requestConverter;
+    }
+
+    ResponseConverter getResponseConverter() {
+        return responseConverter;
+    }
+}
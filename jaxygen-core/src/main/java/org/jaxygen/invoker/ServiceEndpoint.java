@@ -0,0 +1,391 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.invoker;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import org.jaxygen.annotations.Coalesce;
+import org.jaxygen.annotations.NetAPI;
+import org.jaxygen.annotations.ResponseCache;
+import org.jaxygen.annotations.RunOnVirtualThread;
+import org.jaxygen.bulkhead.Bulkhead;
+import org.jaxygen.bulkhead.BulkheadRegistry;
+import org.jaxygen.cache.ResultCache;
+import org.jaxygen.cache.SingleFlight;
+import org.jaxygen.converters.ConvertersFactory;
+import org.jaxygen.invoker.methods.MethodInvokerFactory;
+import org.jaxygen.invoker.methods.MethodInvoker;
+import org.jaxygen.metrics.EndpointMetrics;
+import org.jaxygen.security.annotations.LoginMethod;
+import org.jaxygen.security.annotations.LogoutMethod;
+import org.jaxygen.security.annotations.Secured;
+
+/**
+ * Resolved descriptor of a single NetAPI method exposed by the
+ * {@link ServiceInvoker}. All the reflection lookups required to call the
+ * method are done once, when the descriptor is created, so the request
+ * processing does not need to inspect the service class anymore.
+ *
+ * @author Artur
+ */
+public class ServiceEndpoint {
+
+    private static final int MAX_CONVERTERS = 16;
+    private final String path;
+    private final Class<?> serviceClass;
+    private final String serviceClassName;
+    private final Method method;
+    private final MethodInvoker invoker;
+    private final Class<?>[] parameterTypes;
+    private final String[] parameterNames;
+    private final Class<?> responseType;
+    private final Class<?> resultType;
+    private final boolean asynchronous;
+    private final boolean virtualThread;
+    private final boolean secured;
+    private final boolean loginMethod;
+    private final boolean logoutMethod;
+    private final InjectionPlan injectionPlan;
+    private final InjectionPlan[] parameterInjectionPlans;
+    private final boolean clientIpInjected;
+    private final boolean sessionRequired;
+    private final boolean sessionUsed;
+    private final EndpointMetrics metrics = new EndpointMetrics();
+    private final Bulkhead bulkhead;
+    private final ResultCache cache;
+    private final boolean cachePerSession;
+    private final SingleFlight singleFlight;
+    private final boolean coalescePerSession;
+    // converter pairs used by the calls so far, replaced as a whole when a pair is added
+    private volatile EndpointConverters[] converters = new EndpointConverters[0];
+
+    /**
+     * @param path Route under which the method is exposed (in form
+     * class/method).
+     * @param serviceClass Class implementing the service.
+     * @param method NetAPI method of the serviceClass.
+     */
+    public ServiceEndpoint(final String path, final Class<?> serviceClass, final Method method) {
+        this.path = path;
+        this.serviceClass = serviceClass;
+        this.serviceClassName = serviceClass.getCanonicalName();
+        this.method = method;
+        this.invoker = MethodInvokerFactory.create(method);
+        this.parameterTypes = method.getParameterTypes();
+        this.parameterNames = parameterNames(method);
+        this.responseType = method.getReturnType();
+        this.asynchronous = CompletionStage.class.isAssignableFrom(responseType);
+        this.resultType = asynchronous ? completionType(method) : responseType;
+        this.virtualThread = method.isAnnotationPresent(RunOnVirtualThread.class) || serviceClass.isAnnotationPresent(RunOnVirtualThread.class);
+        this.secured = method.isAnnotationPresent(Secured.class);
+        this.loginMethod = method.isAnnotationPresent(LoginMethod.class);
+        this.logoutMethod = method.isAnnotationPresent(LogoutMethod.class);
+        this.injectionPlan = InjectionPlan.forClass(serviceClass);
+        this.parameterInjectionPlans = new InjectionPlan[parameterTypes.length];
+        boolean clientIp = false;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            parameterInjectionPlans[i] = InjectionPlan.forClass(parameterTypes[i]);
+            clientIp |= parameterInjectionPlans[i].hasClientIp();
+        }
+        this.clientIpInjected = clientIp;
+        this.sessionRequired = loginMethod || injectionPlan.hasSecurityContext() || injectionPlan.hasSessionContext();
+        ResponseCache cacheConfig = method.getAnnotation(ResponseCache.class);
+        // results of the secured and session bound methods depend on the user, so they are never shared
+        final boolean userBound = secured || injectionPlan.hasSecurityContext() || injectionPlan.hasSessionContext();
+        // responses changing the session state can not be reused
+        if (cacheConfig != null && !loginMethod && !logoutMethod) {
+            this.cache = new ResultCache(cacheConfig.maxEntries(), cacheConfig.ttlMillis());
+            this.cachePerSession = cacheConfig.perSession() || userBound;
+        } else {
+            this.cache = null;
+            this.cachePerSession = false;
+        }
+        Coalesce coalesce = method.getAnnotation(Coalesce.class);
+        if (coalesce != null && !loginMethod && !logoutMethod) {
+            this.singleFlight = new SingleFlight(coalesce.maxWaitMillis());
+            this.coalescePerSession = coalesce.perSession() || userBound;
+        } else {
+            this.singleFlight = null;
+            this.coalescePerSession = false;
+        }
+        this.sessionUsed = sessionRequired || secured || logoutMethod || cachePerSession || coalescePerSession;
+        this.bulkhead = bulkhead(serviceClass, method);
+    }
+
+    /**
+     * @return Route under which the method is exposed (class/method).
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public Class<?> getServiceClass() {
+        return serviceClass;
+    }
+
+    /**
+     * @return Canonical name of the service class, as used by the
+     * {@link org.jaxygen.security.SecurityProfile}.
+     */
+    public String getServiceClassName() {
+        return serviceClassName;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return Invoker calling the method on the service object.
+     */
+    public MethodInvoker getInvoker() {
+        return invoker;
+    }
+
+    public String getMethodName() {
+        return method.getName();
+    }
+
+    public Class<?>[] getParameterTypes() {
+        return parameterTypes;
+    }
+
+    /**
+     * @return Names of the method parameters or null if the class was compiled
+     * without the -parameters option.
+     */
+    public String[] getParameterNames() {
+        return parameterNames;
+    }
+
+    public Class<?> getResponseType() {
+        return responseType;
+    }
+
+    /**
+     * @return Type of the value produced by the method. For asynchronous
+     * methods this is the type of the value completing the returned stage.
+     */
+    public Class<?> getResultType() {
+        return resultType;
+    }
+
+    /**
+     * @return true if the method returns a {@link CompletionStage}.
+     */
+    public boolean isAsynchronous() {
+        return asynchronous;
+    }
+
+    /**
+     * @return true if the method or its class is annotated by
+     * {@link RunOnVirtualThread}.
+     */
+    public boolean isVirtualThread() {
+        return virtualThread;
+    }
+
+    /**
+     * @return true if the method is annotated by {@link Secured}.
+     */
+    public boolean isSecured() {
+        return secured;
+    }
+
+    /**
+     * @return true if the method is annotated by {@link LoginMethod}.
+     */
+    public boolean isLoginMethod() {
+        return loginMethod;
+    }
+
+    /**
+     * @return true if the method is annotated by {@link LogoutMethod}.
+     */
+    public boolean isLogoutMethod() {
+        return logoutMethod;
+    }
+
+    /**
+     * @return Injection plan of the service class.
+     */
+    public InjectionPlan getInjectionPlan() {
+        return injectionPlan;
+    }
+
+    /**
+     * @return Injection plans of the method parameter classes, in order of
+     * the parameters.
+     */
+    public InjectionPlan[] getParameterInjectionPlans() {
+        return parameterInjectionPlans;
+    }
+
+    /**
+     * @return true if any of the parameter classes has a field annotated by
+     * {@link org.jaxygen.annotations.ClientIp}.
+     */
+    public boolean isClientIpInjected() {
+        return clientIpInjected;
+    }
+
+    /**
+     * @return true if the call must create the session: the method is a
+     * {@link LoginMethod} or the service class has session or security
+     * context fields.
+     */
+    public boolean isSessionRequired() {
+        return sessionRequired;
+    }
+
+    /**
+     * @return true if the call reads an existing session (the method is
+     * {@link Secured} or {@link LogoutMethod}) or requires one.
+     */
+    public boolean isSessionUsed() {
+        return sessionUsed;
+    }
+
+    /**
+     * @return Call statistics of the method.
+     */
+    public EndpointMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return Bulkhead limiting the concurrent calls of the method or null if
+     * the calls are not limited.
+     */
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    /**
+     * @return Cache of the method responses or null if the method is not
+     * annotated by {@link ResponseCache}.
+     */
+    public ResultCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return true if the responses are cached separately for each session.
+     */
+    public boolean isCachePerSession() {
+        return cachePerSession;
+    }
+
+    /**
+     * @return Registry of the calls in progress or null if the method is not
+     * annotated by {@link Coalesce}.
+     */
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * @return true if only the calls of the same session are coalesced.
+     */
+    public boolean isCoalescePerSession() {
+        return coalescePerSession;
+    }
+
+    /**
+     * Get the converters of a call. The pairs of converters are resolved once
+     * and remembered, until another converter is registered.
+     *
+     * @param inputType Name of the request converter.
+     * @param outputType Name of the response converter.
+     * @return The converters.
+     */
+    EndpointConverters getConverters(String inputType, String outputType) {
+        final int revision = ConvertersFactory.getRevision();
+        EndpointConverters[] known = converters;
+        for (EndpointConverters c : known) {
+            if (c.matches(inputType, outputType, revision)) {
+                return c;
+            }
+        }
+        EndpointConverters resolved = EndpointConverters.resolve(inputType, outputType);
+        // unknown names are not remembered, so they can not fill the table
+        if (resolved.isKnown()) {
+            List<EndpointConverters> updated = new ArrayList<EndpointConverters>(known.length + 1);
+            for (EndpointConverters c : known) {
+                if (c.isCurrent(resolved)) {
+                    updated.add(c);
+                }
+            }
+            if (updated.size() < MAX_CONVERTERS) {
+                updated.add(resolved);
+                // a pair added by a concurrent call might be lost here, it is resolved again then
+                converters = updated.toArray(new EndpointConverters[updated.size()]);
+            }
+        }
+        return resolved;
+    }
+
+    private static Bulkhead bulkhead(Class<?> serviceClass, Method method) {
+        NetAPI methodApi = method.getAnnotation(NetAPI.class);
+        if (methodApi != null && methodApi.maxConcurrency() > 0) {
+            return BulkheadRegistry.register(serviceClass.getName() + "." + method.getName(), methodApi.maxConcurrency(), methodApi.maxWaitMillis());
+        }
+        NetAPI classApi = serviceClass.getAnnotation(NetAPI.class);
+        if (classApi != null && classApi.maxConcurrency() > 0) {
+            return BulkheadRegistry.register(serviceClass.getName(), classApi.maxConcurrency(), classApi.maxWaitMillis());
+        }
+        return null;
+    }
+
+    private static String[] parameterNames(Method method) {
+        Parameter[] parameters = method.getParameters();
+        String[] names = new String[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            if (!parameters[i].isNamePresent()) {
+                return null;
+            }
+            names[i] = parameters[i].getName();
+        }
+        return names;
+    }
+
+    private static Class<?> completionType(Method method) {
+        Type type = method.getGenericReturnType();
+        if (type instanceof ParameterizedType) {
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (arguments.length == 1) {
+                Type argument = arguments[0];
+                if (argument instanceof ParameterizedType) {
+                    argument = ((ParameterizedType) argument).getRawType();
+                }
+                if (argument instanceof Class) {
+                    return (Class<?>) argument;
+                }
+            }
+        }
+        return Object.class;
+    }
+
+    @Override
+    public String toString() {
+        return serviceClassName + "." + method.getName();
+    }
+}
@@ -1,12 +1,35 @@
 package org.jaxygen.invoker;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.lang.reflect.Field;
+import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 import java.util.logging.Level;
+import java.util.zip.Deflater;
 import java.util.logging.Logger;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -15,37 +38,53 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
 import org.apache.commons.io.IOUtils;
-import org.jaxygen.annotations.ClientIp;
-import org.jaxygen.annotations.NetAPI;
-import org.jaxygen.annotations.SessionContext;
-import org.jaxygen.annotations.Validable;
+import org.jaxygen.annotations.RunOnVirtualThread;
 import org.jaxygen.objectsbuilder.ObjectBuilder;
 import org.jaxygen.objectsbuilder.ObjectBuilderFactory;
+import org.jaxygen.objectsbuilder.ScopedObjectBuilder;
+import org.jaxygen.cache.CachedResponse;
+import org.jaxygen.cache.SingleFlight;
 import org.jaxygen.converters.ConvertersFactory;
 import org.jaxygen.converters.RequestConverter;
 import org.jaxygen.converters.ResponseConverter;
+import org.jaxygen.converters.StreamingRequestConverter;
 import org.jaxygen.converters.exceptions.SerializationError;
+import org.jaxygen.converters.json.CompiledJsonRequestConverter;
+import org.jaxygen.converters.json.CompiledJsonResponseConverter;
+import org.jaxygen.converters.json.JsonBodyRequestConverter;
 import org.jaxygen.converters.json.JsonHRResponseConverter;
 import org.jaxygen.converters.json.JsonMultipartRequestConverter;
 import org.jaxygen.converters.json.JsonRequestConverter;
 import org.jaxygen.converters.json.JsonResponseConverter;
+import org.jaxygen.converters.msgpack.MsgPackRequestConverter;
+import org.jaxygen.converters.msgpack.MsgPackResponseConverter;
+import org.jaxygen.converters.msgpack.SchemaMsgPackRequestConverter;
+import org.jaxygen.converters.msgpack.SchemaMsgPackResponseConverter;
 import org.jaxygen.converters.properties.PropertiesToBeanConverter;
 import org.jaxygen.converters.sjo.SJORRequestConverter;
 import org.jaxygen.converters.sjo.SJOResponseConverter;
+import org.jaxygen.converters.xml.XMLRequestConverter;
 import org.jaxygen.converters.xml.XMLResponseConverter;
+import org.jaxygen.dto.BatchResponse;
 import org.jaxygen.dto.Downloadable;
 import org.jaxygen.dto.ExceptionResponse;
 import org.jaxygen.dto.Response;
+import org.jaxygen.dto.Versioned;
 import org.jaxygen.dto.security.SecurityProfileDTO;
 import org.jaxygen.exceptions.InvalidPropertyFormat;
+import org.jaxygen.exceptions.InvalidRequestParameter;
 import org.jaxygen.exceptions.ParametersError;
+import org.jaxygen.exceptions.ServiceOverloaded;
+import org.jaxygen.http.CompressingOutputStream;
+import org.jaxygen.http.DeflaterPool;
+import org.jaxygen.http.ETags;
 import org.jaxygen.http.HttpRequestParams;
 import org.jaxygen.http.HttpRequestParser;
+import org.jaxygen.http.MapRequestParams;
+import org.jaxygen.metrics.EndpointMetrics;
+import org.jaxygen.metrics.MetricsWriter;
+import org.jaxygen.metrics.Phase;
 import org.jaxygen.security.SecurityProfile;
-import org.jaxygen.security.annotations.LoginMethod;
-import org.jaxygen.security.annotations.LogoutMethod;
-import org.jaxygen.security.annotations.Secured;
-import org.jaxygen.security.annotations.SecurityContext;
 import org.jaxygen.security.exceptions.NotAlowed;
 import org.jaxygen.util.BeanUtil;
 
@@ -54,7 +93,126 @@ public class ServiceInvoker extends HttpServlet {
     private static final long serialVersionUID = 566338505269576162L;
     private static final Logger log = Logger.getLogger(ServiceInvoker.class.getCanonicalName());
     public static final String SERVICE_PATH = "servicePath";
+    public static final String CLASS_REGISTRY = "classRegistry";
+    /**
+     * Time in milliseconds after which an asynchronous call is reported as
+     * failed. Zero or less waits forever.
+     */
+    public static final String ASYNC_TIMEOUT = "asyncTimeout";
+    /**
+     * Number of threads sending the results of the asynchronous calls. If not
+     * set, the result is sent by the thread which completed the call.
+     */
+    public static final String ASYNC_THREADS = "asyncThreads";
+    /**
+     * If set to true, all the NetAPI methods are executed on virtual threads,
+     * as if they were annotated by {@link RunOnVirtualThread}.
+     */
+    public static final String VIRTUAL_THREADS = "virtualThreads";
+    /**
+     * Number of threads executing the calls of the batch requests in parallel.
+     * If not set, the calls of a batch are executed one by one in the request
+     * order.
+     */
+    public static final String BATCH_THREADS = "batchThreads";
+    /**
+     * Maximal number of calls accepted in a single batch request.
+     */
+    public static final String BATCH_MAX_CALLS = "batchMaxCalls";
+    /**
+     * Path of the batch requests. The calls are passed as a JSON array in the
+     * {@link #BATCH_PARAMETER} request parameter.
+     */
+    public static final String BATCH_PATH = "/_batch";
+    public static final String BATCH_PARAMETER = "batch";
+    /**
+     * Path under which the call statistics of the endpoints are published,
+     * e.g. /_metrics. The statistics are written in the Prometheus text format,
+     * or as JSON if the format=json parameter is given. Not published if the
+     * parameter is not set; protect the path by the web.xml security
+     * constraints if the service is public.
+     */
+    public static final String METRICS_PATH = "metricsPath";
+    /**
+     * If set to true, the responses carry the Server-Timing header with the
+     * durations of the request processing steps.
+     */
+    public static final String SERVER_TIMING = "serverTiming";
+    /**
+     * If set to true, the responses to GET requests carry the ETag header and
+     * the If-None-Match requests are answered by 304 Not Modified without the
+     * body. The tag is computed from the serialized response, or from the
+     * version of the result if it implements {@link Versioned}.
+     */
+    public static final String ETAG = "etag";
+    /**
+     * If set to true, the responses are compressed with gzip or deflate,
+     * depending on the Accept-Encoding header of the request. The compression
+     * is off by default. When it is on, the ETags are weak, as they do not
+     * depend on the content encoding.
+     */
+    public static final String COMPRESSION = "compression";
+    /**
+     * Minimal size in bytes of the compressed response body, default 1024.
+     */
+    public static final String COMPRESSION_THRESHOLD = "compressionThreshold";
+    /**
+     * Compression level 1-9, the zlib default (6) if not set.
+     */
+    public static final String COMPRESSION_LEVEL = "compressionLevel";
+    /**
+     * Init parameter turning off the preparation of the converters metadata
+     * of all registered services on startup. Set it to false to speed up the
+     * startup during development.
+     */
+    public static final String WARM_UP = "warmUp";
+    /**
+     * Init parameter limiting the number of stack frames sent to the client
+     * in the error responses: 0 sends no stack trace, -1 (the default) the
+     * whole one. Production systems should use 0 or a small number, printing
+     * deep stack traces is the most expensive part of an error response.
+     */
+    public static final String STACK_TRACE_DEPTH = "stackTraceDepth";
+    /**
+     * Init parameter turning off the indentation of the XML responses, it is
+     * on by default.
+     */
+    public static final String XML_FORMATTED = "xmlFormatted";
+    /**
+     * Init parameters limiting the nesting depth (64 by default) and the size
+     * in bytes (16MB by default) of the XML request documents.
+     */
+    public static final String XML_MAX_DEPTH = "xmlMaxDepth";
+    public static final String XML_MAX_BYTES = "xmlMaxBytes";
+    /**
+     * If set to true, the requests without the inputType parameter are read
+     * by the body converter of their Content-Type: JSON/BODY for
+     * application/json, XML for application/xml and text/xml, MSGPACK for
+     * application/x-msgpack. Off by default, all such requests are read by
+     * the PROPERTIES converter.
+     */
+    public static final String INPUT_TYPE_BY_CONTENT_TYPE = "inputTypeByContentType";
+    private static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+    private static final int DEFLATER_POOL_SIZE = 64;
+    private static final long DEFAULT_ASYNC_TIMEOUT = 30000;
+    private static final int DEFAULT_BATCH_MAX_CALLS = 64;
     private String beensPath = null;
+    private ServiceRoutingTable routingTable;
+    private long asyncTimeout = DEFAULT_ASYNC_TIMEOUT;
+    private ExecutorService asyncExecutor;
+    private boolean allOnVirtualThreads;
+    private ExecutorService virtualThreadExecutor;
+    private ExecutorService batchExecutor;
+    private int batchMaxCalls = DEFAULT_BATCH_MAX_CALLS;
+    private String metricsPath;
+    private boolean serverTiming;
+    private boolean inputTypeByContentType;
+    private boolean etags;
+    private boolean compression;
+    private int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+    private DeflaterPool gzipDeflaters;
+    private DeflaterPool zlibDeflaters;
+    private int stackTraceDepth = ExceptionResponse.FULL_STACK_TRACE;
 
     static {
         // Register default converters
@@ -66,12 +224,131 @@ public class ServiceInvoker extends HttpServlet {
         ConvertersFactory.registerResponseConverter(new SJOResponseConverter());
         ConvertersFactory.registerResponseConverter(new XMLResponseConverter());
         ConvertersFactory.registerResponseConverter(new JsonHRResponseConverter());
+        ConvertersFactory.registerRequestConverter(new CompiledJsonRequestConverter());
+        ConvertersFactory.registerResponseConverter(new CompiledJsonResponseConverter());
+        ConvertersFactory.registerRequestConverter(new JsonBodyRequestConverter());
+        ConvertersFactory.registerRequestConverter(new XMLRequestConverter());
+        ConvertersFactory.registerRequestConverter(new MsgPackRequestConverter());
+        ConvertersFactory.registerResponseConverter(new MsgPackResponseConverter());
+        ConvertersFactory.registerRequestConverter(new SchemaMsgPackRequestConverter());
+        ConvertersFactory.registerResponseConverter(new SchemaMsgPackResponseConverter());
     }
 
     @Override
     public void init(ServletConfig config) throws ServletException {
         super.init(config);
-        beensPath = config.getInitParameter(SERVICE_PATH);
+        final long initStart = System.nanoTime();
+        beensPath = getParameter(config, SERVICE_PATH);
+        routingTable = new ServiceRoutingTable(beensPath, openClassRegistry(getParameter(config, CLASS_REGISTRY)));
+        asyncTimeout = getLongParameter(config, ASYNC_TIMEOUT, DEFAULT_ASYNC_TIMEOUT);
+        int asyncThreads = (int) getLongParameter(config, ASYNC_THREADS, 0);
+        if (asyncThreads > 0) {
+            asyncExecutor = newThreadPool("jaxygen-async-", asyncThreads);
+        }
+        allOnVirtualThreads = Boolean.parseBoolean(getParameter(config, VIRTUAL_THREADS));
+        int batchThreads = (int) getLongParameter(config, BATCH_THREADS, 0);
+        if (batchThreads > 0) {
+            batchExecutor = newThreadPool("jaxygen-batch-", batchThreads);
+        }
+        batchMaxCalls = (int) getLongParameter(config, BATCH_MAX_CALLS, DEFAULT_BATCH_MAX_CALLS);
+        metricsPath = getParameter(config, METRICS_PATH);
+        serverTiming = Boolean.parseBoolean(getParameter(config, SERVER_TIMING));
+        inputTypeByContentType = Boolean.parseBoolean(getParameter(config, INPUT_TYPE_BY_CONTENT_TYPE));
+        etags = Boolean.parseBoolean(getParameter(config, ETAG));
+        compression = Boolean.parseBoolean(getParameter(config, COMPRESSION));
+        if (compression) {
+            compressionThreshold = (int) getLongParameter(config, COMPRESSION_THRESHOLD, DEFAULT_COMPRESSION_THRESHOLD);
+            int level = (int) getLongParameter(config, COMPRESSION_LEVEL, Deflater.DEFAULT_COMPRESSION);
+            if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION)) {
+                throw new ServletException("Invalid value '" + level + "' of " + COMPRESSION_LEVEL + " parameter, must be 1-9. Please check your web.xml");
+            }
+            gzipDeflaters = new DeflaterPool(level, true, DEFLATER_POOL_SIZE);
+            zlibDeflaters = new DeflaterPool(level, false, DEFLATER_POOL_SIZE);
+        }
+        stackTraceDepth = (int) getLongParameter(config, STACK_TRACE_DEPTH, ExceptionResponse.FULL_STACK_TRACE);
+        if ("false".equalsIgnoreCase(getParameter(config, XML_FORMATTED))) {
+            ConvertersFactory.registerResponseConverter(new XMLResponseConverter(false));
+        }
+        if (getParameter(config, XML_MAX_DEPTH) != null || getParameter(config, XML_MAX_BYTES) != null) {
+            ConvertersFactory.registerRequestConverter(new XMLRequestConverter(
+                    (int) getLongParameter(config, XML_MAX_DEPTH, XMLRequestConverter.DEFAULT_MAX_DEPTH),
+                    getLongParameter(config, XML_MAX_BYTES, XMLRequestConverter.DEFAULT_MAX_BYTES)));
+        }
+        if (!"false".equalsIgnoreCase(getParameter(config, WARM_UP))) {
+            final long warmUpStart = System.nanoTime();
+            int classes = new WarmUp().run(routingTable.getRegisteredEndpoints());
+            log.log(Level.INFO, "Prepared {0} classes of {1} methods in {2} ms",
+                    new Object[]{classes, routingTable.getRegisteredEndpoints().size(), (System.nanoTime() - warmUpStart) / 1000000});
+        }
+        log.log(Level.INFO, "Service invoker started in {0} ms", (System.nanoTime() - initStart) / 1000000);
+    }
+
+    private static ExecutorService newThreadPool(final String namePrefix, int threads) {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, namePrefix + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        if (asyncExecutor != null) {
+            asyncExecutor.shutdown();
+            asyncExecutor = null;
+        }
+        if (batchExecutor != null) {
+            batchExecutor.shutdown();
+            batchExecutor = null;
+        }
+        synchronized (this) {
+            if (virtualThreadExecutor != null) {
+                virtualThreadExecutor.shutdown();
+                virtualThreadExecutor = null;
+            }
+        }
+        super.destroy();
+    }
+
+    private long getLongParameter(ServletConfig config, final String name, long defaultValue) throws ServletException {
+        String value = getParameter(config, name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new ServletException("Invalid value '" + value + "' of " + name + " parameter. Please check your web.xml", ex);
+        }
+    }
+
+    private String getParameter(ServletConfig config, final String name) {
+        String value = config.getInitParameter(name);
+        if (value == null) {
+            value = getServletContext().getInitParameter(name);
+        }
+        return value;
+    }
+
+    private ClassRegistry openClassRegistry(String registryClassName) throws ServletException {
+        ClassRegistry registry = null;
+        if (registryClassName != null) {
+            try {
+                Class<?> registryClass = Thread.currentThread().getContextClassLoader().loadClass(registryClassName);
+                registry = (ClassRegistry) registryClass.newInstance();
+            } catch (InstantiationException ex) {
+                throw new ServletException("Cann not instantiate class registy " + registryClassName + ". Please check classRegistry property in your web.xml <context-param> section", ex);
+            } catch (IllegalAccessException ex) {
+                throw new ServletException("Class registry provider not found. Please check classRegistry property in your web.xml <context-param> section", ex);
+            } catch (ClassNotFoundException ex) {
+                throw new ServletException("Class registry provider not found. Please check classRegistry property in your web.xml <context-param> section", ex);
+            }
+        }
+        return registry;
     }
 
     @Override
@@ -80,35 +357,36 @@ public class ServiceInvoker extends HttpServlet {
 
         request.setCharacterEncoding("UTF-8");
 
+        if (metricsPath != null && metricsPath.equals(request.getPathInfo())) {
+            sendMetrics(request, response);
+            return;
+        }
+
         HttpRequestParams params = null;
-        HttpSession session = request.getSession(true);
+        final long parseStart = System.nanoTime();
         try {
             params = new HttpRequestParser(request);
         } catch (Exception ex) {
             throwError(response, new JsonResponseConverter(), "Could not parse properties", ex);
+            return;
         }
-        if (beensPath == null) {
-            beensPath = getServletContext().getInitParameter(SERVICE_PATH);
-        }
+        final long parseNanos = System.nanoTime() - parseStart;
         final String resourcePath = request.getPathInfo();
-        final String queryString = request.getQueryString();
 
-        final String inputFormat = params.getAsString("inputType", 0, 32, PropertiesToBeanConverter.NAME);
+        final String inputFormat = params.getAsString("inputType", 0, 32, defaultInputFormat(request));
         final String outputFormat = params.getAsString("outputType", 0, 32, JsonResponseConverter.NAME);
 
-        ResponseConverter responseConverter = ConvertersFactory.getResponseConverter(outputFormat);
-        if (responseConverter == null) {
-            responseConverter = new JsonResponseConverter();
-        }
-
-        String query = "";
+        log("Requesting resource" + resourcePath);
 
-        if (queryString != null) {
-            query = URLDecoder.decode(queryString, "UTF-8");
+        if (BATCH_PATH.equals(resourcePath)) {
+            try {
+                invokeBatch(request, response, params, EndpointConverters.responseConverter(outputFormat));
+            } finally {
+                params.dispose();
+            }
+            return;
         }
 
-        log("Requesting resource" + resourcePath);
-
         String[] chunks = resourcePath.split("/");
 
         if (chunks.length < 2) {
@@ -116,111 +394,891 @@ public class ServiceInvoker extends HttpServlet {
             throw new ServletException("Invalid '" + resourcePath + "' request, must be in format class/method");
         }
         final String methodName = chunks[chunks.length - 1];
-        final String className = beensPath + "." + chunks[chunks.length - 2];
+        final String className = chunks[chunks.length - 2];
+
+        boolean asynchronous = false;
+        ServiceCall call = null;
+        try {
+            ServiceEndpoint endpoint = routingTable.lookup(className, methodName);
+            if (endpoint != null) {
+                HttpSession session = openSession(request, endpoint);
+                EndpointConverters converters = endpoint.getConverters(inputFormat, outputFormat);
+                call = new ServiceCall(endpoint, request, response, session, params, inputFormat,
+                        converters.getRequestConverter(), converters.getResponseConverter(), false);
+                call.phaseTook(Phase.PARSE, parseNanos);
+                if ((allOnVirtualThreads || endpoint.isVirtualThread()) && request.isAsyncSupported()) {
+                    // the bulkhead is entered by the virtual thread, which may wait for a slot
+                    asynchronous = dispatchToVirtualThread(call, null);
+                } else if (!call.enterBulkhead(false)) {
+                    // the container thread does not wait for a slot
+                    throwError(response, call.getResponseConverter(), HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Call to " + endpoint + " rejected", overloaded(endpoint));
+                } else {
+                    asynchronous = invoke(call);
+                }
+            } else {
+                routeNotFound(response, EndpointConverters.responseConverter(outputFormat), new ExceptionResponse("InvalidRequest", "Method " + beensPath + "." + className + "." + methodName + " not found"));
+            }
+        } catch (ClassNotFoundException ex) {
+            routeNotFound(response, EndpointConverters.responseConverter(outputFormat), new ExceptionResponse(ex, "Class '" + beensPath + "." + className + "' not fount", stackTraceDepth));
+
+        } finally {
+            // asynchronous calls are ended once the result is sent
+            if (!asynchronous) {
+                if (call != null) {
+                    endCall(call);
+                } else {
+                    params.dispose();
+                }
+            }
+        }
+
+    }
+
+    private void sendMetrics(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Map<String, EndpointMetrics> metrics = new TreeMap<String, EndpointMetrics>();
+        for (ServiceEndpoint endpoint : routingTable.getEndpoints()) {
+            metrics.put(endpoint.getPath(), endpoint.getMetrics());
+        }
+        response.setCharacterEncoding("UTF-8");
+        if ("json".equalsIgnoreCase(request.getParameter("format"))) {
+            response.setContentType("application/json");
+            MetricsWriter.writeJson(metrics, response.getWriter());
+        } else {
+            response.setContentType("text/plain; version=0.0.4");
+            MetricsWriter.writePrometheus(metrics, response.getWriter());
+        }
+    }
+
+    /**
+     * Get the session only if the endpoint uses it, so the anonymous calls do
+     * not create sessions. It must be called on the container thread, before
+     * the response is committed.
+     *
+     * @return The session or null if the endpoint does not use it or the
+     * client has no session yet.
+     */
+    private HttpSession openSession(HttpServletRequest request, ServiceEndpoint endpoint) {
+        if (endpoint.isSessionRequired()) {
+            return request.getSession(true);
+        } else if (endpoint.isSessionUsed()) {
+            return request.getSession(false);
+        }
+        return null;
+    }
+
+    /**
+     * Release the container thread and call the service method on a virtual
+     * thread. The call is processed exactly as on the container thread. If
+     * the call times out, the response is written either by the virtual
+     * thread or by the timeout handler, whichever claims it first. The
+     * bulkhead and the parameters are released by the one which finishes
+     * last.
+     *
+     * @param flight Flight the call follows, it waits for the leader on the
+     * virtual thread; null to invoke the method.
+     * @return Always true, the response is completed by the virtual thread.
+     */
+    private boolean dispatchToVirtualThread(final ServiceCall call, final SingleFlight.Flight flight) {
+        final HttpServletRequest request = call.getRequest();
+        final AsyncContext context = request.startAsync(request, call.getResponse());
+        context.setTimeout(asyncTimeout);
+        final AtomicReference<Future<?>> task = new AtomicReference<Future<?>>();
+        // the call ends once both the virtual thread and the response are done
+        final AtomicInteger pending = new AtomicInteger(2);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        // a task cancelled before it started never runs, so it is ended by the listener
+        final AtomicBoolean started = new AtomicBoolean(false);
+        context.addListener(new AsyncListener() {
+
+            public void onComplete(AsyncEvent event) throws IOException {
+            }
+
+            public void onTimeout(AsyncEvent event) throws IOException {
+                // the method might be still running, it does not write the response anymore
+                if (call.claimResponse()) {
+                    failed.set(true);
+                    stop(task.get(), started, call, pending, failed);
+                    try {
+                        throwError(call.getResponse(), call.getResponseConverter(), "Call to bean failed : " + call.getEndpoint() + " did not complete in " + asyncTimeout + "ms",
+                                new TimeoutException("Call to " + call.getEndpoint() + " timed out"));
+                    } catch (ServletException ex) {
+                        log.log(Level.SEVERE, "Server was unable to inform peer about timeout", ex);
+                    } finally {
+                        context.complete();
+                        endCallIfLast(call, pending, failed);
+                    }
+                }
+            }
+
+            public void onError(AsyncEvent event) throws IOException {
+                if (call.claimResponse()) {
+                    failed.set(true);
+                    stop(task.get(), started, call, pending, failed);
+                    log.log(Level.SEVERE, "Call to " + call.getEndpoint() + " failed", event.getThrowable());
+                    context.complete();
+                    endCallIfLast(call, pending, failed);
+                }
+            }
+
+            public void onStartAsync(AsyncEvent event) throws IOException {
+            }
+        });
+        task.set(virtualThreadExecutor().submit(new Runnable() {
+
+            public void run() {
+                if (!started.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    if (flight != null) {
+                        // a follower, it has entered the bulkhead already
+                        followFlight(call, flight);
+                    } else if (call.enterBulkhead(true)) {
+                        invoke(call);
+                    } else if (call.claimResponse()) {
+                        throwError(call.getResponse(), call.getResponseConverter(), HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Call to " + call.getEndpoint() + " rejected", overloaded(call.getEndpoint()));
+                    }
+                } catch (Exception ex) {
+                    log.log(Level.SEVERE, "Could not send result of " + call.getEndpoint(), ex);
+                } finally {
+                    if (call.claimResponse()) {
+                        // the response was written here, not by the timeout handler
+                        failed.set(call.getResponse().getStatus() >= HttpServletResponse.SC_BAD_REQUEST);
+                        context.complete();
+                        endCallIfLast(call, pending, failed);
+                    }
+                    // the method is not executed anymore
+                    endCallIfLast(call, pending, failed);
+                }
+            }
+        }));
+        return true;
+    }
+
+    private static void endCallIfLast(ServiceCall call, AtomicInteger pending, AtomicBoolean failed) {
+        if (pending.decrementAndGet() == 0) {
+            call.finished(failed.get());
+            call.getParams().dispose();
+        }
+    }
+
+    /**
+     * Stop the virtual thread task of the call: end its part of the call if
+     * it did not start yet, interrupt it otherwise.
+     */
+    private static void stop(Future<?> task, AtomicBoolean started, ServiceCall call, AtomicInteger pending, AtomicBoolean failed) {
+        if (started.compareAndSet(false, true)) {
+            endCallIfLast(call, pending, failed);
+        } else {
+            cancel(task);
+        }
+    }
+
+    private static void cancel(Future<?> task) {
+        if (task != null) {
+            task.cancel(true);
+        }
+    }
+
+    private synchronized ExecutorService virtualThreadExecutor() {
+        if (virtualThreadExecutor == null) {
+            virtualThreadExecutor = VirtualThreads.newExecutor();
+        }
+        return virtualThreadExecutor;
+    }
+
+    /**
+     * Call the service method.
+     *
+     * @return true if the method returned a CompletionStage which will be
+     * completed later on the AsyncContext of the request.
+     */
+    private boolean invoke(final ServiceCall call) throws ServletException, IOException {
+        final ServiceEndpoint endpoint = call.getEndpoint();
+        boolean asynchronous = false;
+        try {
+            checkMethodAllowed(call.getSession(), endpoint);
+            if (endpoint.getCache() != null) {
+                call.setCacheKey(call.buildCacheKey(endpoint.isCachePerSession()));
+                CachedResponse cached = call.getCacheKey() != null ? endpoint.getCache().get(call.getCacheKey()) : null;
+                if (cached != null) {
+                    sendBuffered(call, cached.getBody(), isConditional(call) ? cached.getETag() : null);
+                    return false;
+                }
+            }
+            if (endpoint.getSingleFlight() != null) {
+                SingleFlight.Flight flight = joinFlight(call);
+                if (flight != null) {
+                    final HttpServletRequest request = call.getRequest();
+                    if (request.isAsyncSupported() && !request.isAsyncStarted()) {
+                        // the container thread does not wait for the leader
+                        return dispatchToVirtualThread(call, flight);
+                    }
+                    if (sendShared(call, flight)) {
+                        return false;
+                    }
+                }
+            }
+            asynchronous = invokeMethod(call);
+        } catch (Exception ex) {
+            failCall(call, "Cann not intanitiate class " + endpoint.getServiceClassName(), ex);
+        }
+        return asynchronous;
+    }
+
+    /**
+     * Wait for the leader of the flight and send its response, or invoke the
+     * method if the leader did not share one. Runs on a virtual thread.
+     */
+    private void followFlight(ServiceCall call, SingleFlight.Flight flight) throws ServletException, IOException {
+        try {
+            if (!sendShared(call, flight)) {
+                invokeMethod(call);
+            }
+        } catch (Exception ex) {
+            failCall(call, "Cann not intanitiate class " + call.getEndpoint().getServiceClassName(), ex);
+        }
+    }
+
+    /**
+     * Create the service object and call the method on it.
+     *
+     * @return true if the method returned a CompletionStage which will be
+     * completed later on the AsyncContext of the request.
+     */
+    private boolean invokeMethod(final ServiceCall call) throws Exception {
+        final ServiceEndpoint endpoint = call.getEndpoint();
+        boolean asynchronous = false;
+        Object[] parameters = prepareParameters(call);
+        ObjectBuilder ob = ObjectBuilderFactory.instance();
+        Object been = ob.create(endpoint.getServiceClass());
+        CompletableFuture<?> future = null;
+        try {
+            injectClientIp(endpoint, parameters, call.getRequest());
+            injectSecutityProfile(endpoint, been, call.getSession());
+            final long invokeStart = System.nanoTime();
+            Object o = endpoint.getInvoker().invoke(been, parameters);
+            if (endpoint.isAsynchronous() && o != null) {
+                future = ((CompletionStage<?>) o).toCompletableFuture();
+                asynchronous = completeAsync(call, ob, been, future, invokeStart);
+            } else {
+                call.phaseEnded(Phase.INVOKE, invokeStart);
+                sendResult(call, been, endpoint.getResultType(), o);
+            }
+        } catch (InvocationTargetException ex) {
+            failCall(call, "Call to bean failed : " + ex.getTargetException().getMessage(), ex.getTargetException());
+        } catch (Exception ex) {
+            failCall(call, "Call to bean failed : " + ex.getMessage(), ex);
+        } finally {
+            if (!asynchronous) {
+                releaseBean(ob, endpoint, been, future);
+            }
+        }
+        return asynchronous;
+    }
+
+    /**
+     * Send the error response, unless the response of the call was already
+     * claimed by the timeout handler.
+     */
+    private void failCall(ServiceCall call, String message, Throwable ex) throws ServletException, IOException {
+        if (call.claimResponse()) {
+            throwError(call.getResponse(), call.getResponseConverter(), message, ex);
+        } else {
+            log.log(Level.SEVERE, message, ex);
+        }
+    }
+
+    private Object[] prepareParameters(ServiceCall call) throws ParametersError, IllegalAccessException, InvocationTargetException, InvalidPropertyFormat {
+        long start = System.nanoTime();
+        Object[] parameters = call.isBodyStreamed() ? readBody(call)
+                : parseParameters(call.getEndpoint().getParameterTypes(), call.getRequestConverter(), call.getInputFormat(), call.getParams());
+        call.phaseEnded(Phase.DESERIALIZE, start);
+        start = System.nanoTime();
+        validate(parameters);
+        call.phaseEnded(Phase.VALIDATE, start);
+        return parameters;
+    }
+
+    private void sendResult(ServiceCall call, Object been, Class<?> responseType, Object o) throws SerializationError, IOException, ServletException, IllegalAccessException {
+        if (!call.claimResponse()) {
+            // the call timed out and the error is already sent
+            return;
+        }
+        final ServiceEndpoint endpoint = call.getEndpoint();
+        final HttpServletResponse response = call.getResponse();
+        final ResponseConverter responseConverter = call.getResponseConverter();
+        if (serverTiming) {
+            // the header goes before the body, so it can not contain the serialization time
+            response.setHeader("Server-Timing", call.getServerTiming());
+        }
+        final long serializeStart = System.nanoTime();
+        if (o instanceof Downloadable) {
+            postFile(response, (Downloadable) o);
+        } else {
+            response.setCharacterEncoding("UTF-8");
+            final boolean conditional = isConditional(call);
+            final boolean cacheable = call.getCacheKey() != null && !(o instanceof SecurityProfile);
+            final boolean shared = call.getFlight() != null && !(o instanceof SecurityProfile);
+            String etag = null;
+            if (conditional && o instanceof Versioned && ((Versioned) o).getVersion() != null) {
+                etag = ETags.fromVersion(((Versioned) o).getVersion(), responseConverter.getName());
+            }
+            if (etag != null && checkNotModified(call, etag)) {
+                // the client has this version already, nothing to serialize
+            } else if (conditional || cacheable || shared) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                responseConverter.serialize(toResponse(responseType, o), buffer);
+                byte[] body = buffer.toByteArray();
+                if (cacheable) {
+                    endpoint.getCache().put(call.getCacheKey(), body);
+                }
+                if (shared) {
+                    call.getFlight().complete(body);
+                }
+                if (etag != null || !conditional || !checkNotModified(call, ETags.fromBytes(body))) {
+                    OutputStream out = openBody(call.getRequest(), response);
+                    try {
+                        out.write(body);
+                    } finally {
+                        closeBody(out);
+                    }
+                }
+            } else {
+                OutputStream out = openBody(call.getRequest(), response);
+                try {
+                    responseConverter.serialize(toResponse(responseType, o), out);
+                } finally {
+                    closeBody(out);
+                }
+            }
+        }
+        call.phaseEnded(Phase.SERIALIZE, serializeStart);
+        if (!updateSession(endpoint, been, call.getSession(), o)) {
+            throwError(response, responseConverter, "Incompatible interface", incompatibleLoginMessage(endpoint));
+        }
+    }
+
+    /**
+     * Join the calls in progress with the same parameters. The first call
+     * becomes the leader of the flight and goes on with the invocation, the
+     * next ones wait for the response of the leader.
+     *
+     * @return The flight to wait for, null if the call is the leader or is
+     * not coalesced.
+     */
+    private SingleFlight.Flight joinFlight(ServiceCall call) {
+        final ServiceEndpoint endpoint = call.getEndpoint();
+        String key = endpoint.getCache() != null && endpoint.isCachePerSession() == endpoint.isCoalescePerSession()
+                ? call.getCacheKey() : call.buildCacheKey(endpoint.isCoalescePerSession());
+        if (key == null) {
+            return null;
+        }
+        SingleFlight.Flight flight = endpoint.getSingleFlight().join(key);
+        if (flight.isLeader()) {
+            call.setFlight(flight);
+            return null;
+        }
+        return flight;
+    }
+
+    /**
+     * Wait for the leader of the flight and send its response.
+     *
+     * @return true if the response of the leader was sent.
+     */
+    private boolean sendShared(ServiceCall call, SingleFlight.Flight flight) throws IOException, InterruptedException {
+        byte[] body = flight.await();
+        if (body == null) {
+            return false;
+        }
+        sendBuffered(call, body, isConditional(call) ? ETags.fromBytes(body) : null);
+        return true;
+    }
+
+    /**
+     * Send a response serialized by another call.
+     *
+     * @param etag ETag of the body, null if the response is not conditional.
+     */
+    private void sendBuffered(ServiceCall call, byte[] body, String etag) throws IOException {
+        if (!call.claimResponse()) {
+            return;
+        }
+        final HttpServletResponse response = call.getResponse();
+        if (serverTiming) {
+            response.setHeader("Server-Timing", call.getServerTiming());
+        }
+        final long serializeStart = System.nanoTime();
+        response.setCharacterEncoding("UTF-8");
+        if (etag == null || !checkNotModified(call, etag)) {
+            OutputStream out = openBody(call.getRequest(), response);
+            try {
+                out.write(body);
+            } finally {
+                closeBody(out);
+            }
+        }
+        call.phaseEnded(Phase.SERIALIZE, serializeStart);
+    }
+
+    /**
+     * Get the stream for the response body, compressed if the compression is
+     * turned on and the client accepts it.
+     */
+    private OutputStream openBody(HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        if (compression) {
+            response.addHeader("Vary", "Accept-Encoding");
+            CompressingOutputStream.Encoding encoding = CompressingOutputStream.negotiate(request.getHeader("Accept-Encoding"));
+            if (encoding != null) {
+                DeflaterPool pool = encoding == CompressingOutputStream.Encoding.gzip ? gzipDeflaters : zlibDeflaters;
+                return new CompressingOutputStream(response.getOutputStream(), encoding, pool, compressionThreshold) {
+
+                    @Override
+                    protected void compressionStarted() {
+                        response.setHeader("Content-Encoding", getEncoding().name());
+                    }
+                };
+            }
+        }
+        return response.getOutputStream();
+    }
+
+    private static void closeBody(OutputStream out) throws IOException {
+        // the servlet stream is left open for the container
+        if (out instanceof CompressingOutputStream) {
+            out.close();
+        }
+    }
+
+    /**
+     * @return true if the response of the call gets the ETag header, i.e. it
+     * is turned on and the call is a GET or HEAD request.
+     */
+    private boolean isConditional(ServiceCall call) {
+        if (!etags) {
+            return false;
+        }
+        final String method = call.getRequest().getMethod();
+        return "GET".equals(method) || "HEAD".equals(method);
+    }
+
+    /**
+     * Set the ETag of the response and check it against If-None-Match.
+     *
+     * @return true if the client has the current representation; the
+     * response status is set to 304 and the body must not be written.
+     */
+    private boolean checkNotModified(ServiceCall call, String etag) {
+        final HttpServletResponse response = call.getResponse();
+        if (compression) {
+            // the same tag describes both the compressed and the identity body
+            etag = ETags.weak(etag);
+        }
+        response.setHeader("ETag", etag);
+        if (ETags.matches(call.getRequest().getHeader("If-None-Match"), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        return false;
+    }
 
-        ClassLoader cl = Thread.currentThread().getContextClassLoader();
-        Method[] methods;
+    private Response toResponse(Class<?> responseType, Object o) {
+        if (o instanceof SecurityProfile) {
+            SecurityProfileDTO profileDto = new SecurityProfileDTO();
+            SecurityProfile profile = (SecurityProfile) o;
+            profileDto.setGroups(profile.getUserGroups());
+            profileDto.setAllowedMethods(profile.getAllowedMethodDescriptors());
+            return new Response(SecurityProfileDTO.class, profileDto);
+        }
+        return new Response(responseType, o);
+    }
+
+    /**
+     * Apply the session changes of the login and logout methods.
+     *
+     * @return false if the login method did not provide a security profile.
+     */
+    private boolean updateSession(ServiceEndpoint endpoint, Object been, HttpSession session, Object o) throws IllegalAccessException {
+        boolean rc = true;
+        if (endpoint.isLoginMethod()) {
+            boolean profileConfigured = updateSessionSecurityProfile(endpoint, been, session);
+            rc = profileConfigured || o instanceof SecurityProfile;
+            if (o instanceof SecurityProfile) {
+                attachSecurityContextToSession(session, (SecurityProfile) o);
+            }
+        }
+        if (endpoint.isLogoutMethod()) {
+            detachSecurityContext(session);
+        }
+        return rc;
+    }
+
+    private static String incompatibleLoginMessage(ServiceEndpoint endpoint) {
+        return "Method " + endpoint.getServiceClass() + "." + endpoint.getMethodName() + " is annotated with @Login but does not return " + SecurityProfile.class.getCanonicalName();
+    }
+
+    /**
+     * Execute the calls of a batch request and send their responses as a
+     * single {@link BatchResponse}. Each call goes through the same security
+     * check, conversion and validation as a single call. Failed calls are
+     * reported by an {@link ExceptionResponse} at their position.
+     */
+    private void invokeBatch(HttpServletRequest request, HttpServletResponse response, HttpRequestParams params,
+            ResponseConverter responseConverter) throws ServletException, IOException {
+        final List<BatchEntry> entries;
         try {
-            Class clazz = cl.loadClass(className);
-            if (clazz != null) {
-                boolean methodFound = false;
-                methods = clazz.getMethods();
-                for (Method m : methods) {
-                    if (m.isAnnotationPresent(NetAPI.class)
-                            && m.getName().equals(methodName)) {
+            entries = BatchEntry.parse(params.getAsString(BATCH_PARAMETER, 1, Integer.MAX_VALUE, true), batchMaxCalls);
+        } catch (InvalidRequestParameter ex) {
+            throwError(response, responseConverter, "Invalid batch request", ex);
+            return;
+        }
+        final Response[] responses = new Response[entries.size()];
+        final ServiceCall[] calls = new ServiceCall[entries.size()];
+        for (int i = 0; i < calls.length; i++) {
+            BatchEntry entry = entries.get(i);
+            if (entry.getClassName() == null || entry.getMethodName() == null) {
+                responses[i] = errorResponse("InvalidRequest", "Batch call " + i + " must be in format {class, method, inputType, payload}");
+                continue;
+            }
+            try {
+                ServiceEndpoint endpoint = routingTable.lookup(entry.getClassName(), entry.getMethodName());
+                if (endpoint != null) {
+                    // sessions are opened here, on the container thread
+                    calls[i] = new ServiceCall(endpoint, request, response, openSession(request, endpoint),
+                            new MapRequestParams(entry.getPayload()), entry.getInputType(),
+                            ConvertersFactory.getRequestConverter(entry.getInputType()), responseConverter, true);
+                } else {
+                    responses[i] = errorResponse("InvalidRequest", "Method " + beensPath + "." + entry.getClassName() + "." + entry.getMethodName() + " not found");
+                }
+            } catch (ClassNotFoundException ex) {
+                responses[i] = errorResponse("Class '" + beensPath + "." + entry.getClassName() + "' not fount", ex);
+            }
+        }
+
+        if (batchExecutor == null) {
+            for (int i = 0; i < calls.length; i++) {
+                if (calls[i] != null) {
+                    responses[i] = invokeInBatch(calls[i]);
+                }
+            }
+        } else {
+            List<Future<Response>> results = new ArrayList<Future<Response>>(calls.length);
+            for (int i = 0; i < calls.length; i++) {
+                final ServiceCall call = calls[i];
+                Future<Response> result = null;
+                if (call != null) {
+                    try {
+                        result = batchExecutor.submit(new Callable<Response>() {
+
+                            public Response call() {
+                                return invokeInBatch(call);
+                            }
+                        });
+                    } catch (RejectedExecutionException ex) {
+                        // the call will never run, so it is ended here
+                        call.finished(true);
+                        responses[i] = errorResponse("Call to " + call.getEndpoint() + " rejected", ex);
+                    }
+                }
+                results.add(result);
+            }
+            for (int i = 0; i < calls.length; i++) {
+                Future<Response> result = results.get(i);
+                if (result != null) {
+                    try {
+                        responses[i] = result.get();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        result.cancel(true);
+                        responses[i] = errorResponse("Call to bean interrupted : " + calls[i].getEndpoint(), ex);
+                    } catch (ExecutionException ex) {
+                        responses[i] = errorResponse("Call to bean failed : " + ex.getCause().getMessage(), ex.getCause());
+                    }
+                }
+            }
+        }
+
+        response.setCharacterEncoding("UTF-8");
+        try {
+            OutputStream out = openBody(request, response);
+            try {
+                responseConverter.serialize(new BatchResponse(responses), out);
+            } finally {
+                closeBody(out);
+            }
+        } catch (SerializationError ex) {
+            throwError(response, responseConverter, "Could not serialize batch response", ex);
+        }
+    }
+
+    /**
+     * Execute one call of a batch request.
+     *
+     * @return Response of the call or an {@link ExceptionResponse} if it failed.
+     */
+    private Response invokeInBatch(ServiceCall call) {
+        boolean failed = true;
+        try {
+            // the batch holds the container thread, so it does not wait for a slot
+            if (!call.enterBulkhead(false)) {
+                return errorResponse("Call to " + call.getEndpoint() + " rejected", overloaded(call.getEndpoint()));
+            }
+            Response rc = executeInBatch(call);
+            failed = rc instanceof ExceptionResponse;
+            return rc;
+        } finally {
+            call.finished(failed);
+        }
+    }
+
+    private Response executeInBatch(ServiceCall call) {
+        final ServiceEndpoint endpoint = call.getEndpoint();
+        try {
+            checkMethodAllowed(call.getSession(), endpoint);
+            Object[] parameters = prepareParameters(call);
+            ObjectBuilder ob = ObjectBuilderFactory.instance();
+            Object been = ob.create(endpoint.getServiceClass());
+            CompletableFuture<?> future = null;
+            try {
+                injectClientIp(endpoint, parameters, call.getRequest());
+                injectSecutityProfile(endpoint, been, call.getSession());
+                final long invokeStart = System.nanoTime();
+                Object o = endpoint.getInvoker().invoke(been, parameters);
+                if (endpoint.isAsynchronous() && o != null) {
+                    future = ((CompletionStage<?>) o).toCompletableFuture();
+                    o = awaitResult(future);
+                }
+                call.phaseEnded(Phase.INVOKE, invokeStart);
+                if (o instanceof Downloadable) {
+                    ((Downloadable) o).dispose();
+                    return errorResponse("InvalidRequest", "Method " + endpoint + " returns a file, it can not be called in a batch");
+                }
+                Response rc = toResponse(endpoint.getResultType(), o);
+                if (!updateSession(endpoint, been, call.getSession(), o)) {
+                    return errorResponse("Incompatible interface", incompatibleLoginMessage(endpoint));
+                }
+                return rc;
+            } catch (InvocationTargetException ex) {
+                return errorResponse("Call to bean failed : " + ex.getTargetException().getMessage(), ex.getTargetException());
+            } catch (Exception ex) {
+                return errorResponse("Call to bean failed : " + ex.getMessage(), ex);
+            } finally {
+                releaseBean(ob, endpoint, been, future);
+            }
+        } catch (Exception ex) {
+            return errorResponse("Cann not intanitiate class " + endpoint.getServiceClassName(), ex);
+        }
+    }
+
+    /**
+     * Wait for the result of an asynchronous method on the calling thread.
+     */
+    private Object awaitResult(CompletableFuture<?> future) throws Exception {
+        try {
+            return asyncTimeout > 0 ? future.get(asyncTimeout, TimeUnit.MILLISECONDS) : future.get();
+        } catch (ExecutionException ex) {
+            throw new InvocationTargetException(ex.getCause());
+        }
+    }
+
+    /**
+     * Send the result of the CompletionStage once it is completed. The
+     * container thread is released by putting the request into asynchronous
+     * mode. If the servlet is not configured with
+     * &lt;async-supported&gt;true&lt;/async-supported&gt;, or the call already runs
+     * on a virtual thread, the calling thread waits for the result instead.
+     *
+     * @return true if the request was put into asynchronous mode.
+     */
+    private boolean completeAsync(final ServiceCall call, final ObjectBuilder ob, final Object been, final CompletableFuture<?> future, final long invokeStart) throws Exception {
+        final ServiceEndpoint endpoint = call.getEndpoint();
+        final HttpServletRequest request = call.getRequest();
+        final HttpServletResponse response = call.getResponse();
+        final ResponseConverter responseConverter = call.getResponseConverter();
+        // when already dispatched to a virtual thread, just wait for the result here
+        if (!request.isAsyncSupported() || request.isAsyncStarted()) {
+            Object o = awaitResult(future);
+            call.phaseEnded(Phase.INVOKE, invokeStart);
+            sendResult(call, been, endpoint.getResultType(), o);
+            return false;
+        }
+
+        final AsyncContext context = request.startAsync(request, response);
+        context.setTimeout(asyncTimeout);
+        // only the first of completion and timeout may write the response
+        final AtomicBoolean completed = new AtomicBoolean(false);
+        context.addListener(new AsyncListener() {
+
+            public void onComplete(AsyncEvent event) throws IOException {
+            }
+
+            public void onTimeout(AsyncEvent event) throws IOException {
+                // the stage is not cancelled, it would not stop the work but release the bean still in use
+                if (completed.compareAndSet(false, true)) {
+                    try {
+                        throwError(response, responseConverter, "Call to bean failed : " + endpoint + " did not complete in " + asyncTimeout + "ms",
+                                new TimeoutException("Call to " + endpoint + " timed out"));
+                    } catch (ServletException ex) {
+                        log.log(Level.SEVERE, "Server was unable to inform peer about timeout", ex);
+                    } finally {
+                        finish(call, context);
+                    }
+                }
+            }
+
+            public void onError(AsyncEvent event) throws IOException {
+                if (completed.compareAndSet(false, true)) {
+                    log.log(Level.SEVERE, "Asynchronous call to " + endpoint + " failed", event.getThrowable());
+                    finish(call, context);
+                }
+            }
+
+            public void onStartAsync(AsyncEvent event) throws IOException {
+            }
+        });
+
+        BiConsumer<Object, Throwable> completion = new BiConsumer<Object, Throwable>() {
+
+            public void accept(Object o, Throwable failure) {
+                try {
+                    if (completed.compareAndSet(false, true)) {
+                        call.phaseEnded(Phase.INVOKE, invokeStart);
                         try {
-                            methodFound = true;
-                            checkMethodAllowed(session, clazz.getCanonicalName(), m);
-                            final Class<?>[] parameterTypes = m.getParameterTypes();
-                            Object[] parameters = parseParameters(parameterTypes, inputFormat, params, query);
-                            ObjectBuilder ob = ObjectBuilderFactory.instance();
-                            Object been = ob.create(clazz);
-                            validate(parameters);
-                            try {
-                                injectClientIp(parameterTypes, parameters, request);
-                                injectSecutityProfile(been, session);
-                                Class<?> responseType = m.getReturnType();
-                                Object o = m.invoke(been, parameters);
-                                if (o instanceof Downloadable) {
-                                    postFile(response, (Downloadable) o);
-                                } else {
-                                    if (o instanceof SecurityProfile) {
-                                        SecurityProfileDTO profileDto = new SecurityProfileDTO();
-                                        SecurityProfile profile = (SecurityProfile) o;
-                                        profileDto.setGroups(profile.getUserGroups());
-                                        profileDto.setAllowedMethods(profile.getAllowedMethodDescriptors());
-                                        response.setCharacterEncoding("UTF-8");
-                                        sendSerializedResponse(SecurityProfileDTO.class, profileDto, responseConverter, response);
-                                    } else {
-                                        response.setCharacterEncoding("UTF-8");
-                                        sendSerializedResponse(responseType, o, responseConverter, response);
-                                    }
-                                }
-                                if (m.isAnnotationPresent(LoginMethod.class)) {
-                                    boolean profileConfigured = updateSessionSecurityProfile(been, session);
-                                    if (!profileConfigured && !(o instanceof SecurityProfile)) {
-                                        throwError(response, responseConverter, "Incompatible interface", "Method " + clazz + "." + methodName + " is annotated with @Login but does not return " + SecurityProfile.class.getCanonicalName());
-                                    }
-                                    if (o instanceof SecurityProfile) {
-                                        attachSecurityContextToSession(session, (SecurityProfile) o);
-                                    }
-                                }
-                                if (m.isAnnotationPresent(LogoutMethod.class)) {
-                                    detachSecurityContext(session);
+                            if (failure == null) {
+                                sendResult(call, been, endpoint.getResultType(), o);
+                            } else {
+                                Throwable cause = failure;
+                                while (cause instanceof CompletionException && cause.getCause() != null) {
+                                    cause = cause.getCause();
                                 }
-                            } catch (InvocationTargetException ex) {
-                                throwError(response, responseConverter, "Call to bean failed : " + ex.getTargetException().getMessage(), ex.getTargetException());
-                            } catch (Exception ex) {
-                                throwError(response, responseConverter, "Call to bean failed : " + ex.getMessage(), ex);
+                                throwError(response, responseConverter, "Call to bean failed : " + cause.getMessage(), cause);
                             }
                         } catch (Exception ex) {
-                            throwError(response, responseConverter, "Cann not intanitiate class " + clazz.getCanonicalName(), ex);
+                            log.log(Level.SEVERE, "Could not send result of " + endpoint, ex);
+                        } finally {
+                            finish(call, context);
                         }
-
                     }
+                } finally {
+                    // also after a timeout, the bean is given back only once the stage is done with it
+                    releaseBean(ob, endpoint, been, null);
                 }
-                if (!methodFound) {
-                    throwError(response, responseConverter, "InvalidRequest", "Method " + className + "." + methodName + " not found");
-                }
-            } else {
-                throwError(response, responseConverter, "InternalError", "Class '" + className + "' not fount");
             }
+        };
+        if (asyncExecutor != null) {
+            future.whenCompleteAsync(completion, asyncExecutor);
+        } else {
+            future.whenComplete(completion);
+        }
+        return true;
+    }
 
-        } catch (ClassNotFoundException ex) {
-            throwError(response, responseConverter, "Class '" + className + "' not fount", ex);
+    /**
+     * Record the call in the endpoint metrics and release its parameters.
+     */
+    private static void endCall(ServiceCall call) {
+        call.finished(call.getResponse().getStatus() >= HttpServletResponse.SC_BAD_REQUEST);
+        call.getParams().dispose();
+    }
 
+    private static void finish(ServiceCall call, AsyncContext context) {
+        try {
+            endCall(call);
         } finally {
-            if (params != null) {
-                params.dispose();
-            }
+            context.complete();
         }
+    }
+
+    /**
+     * Give the service object back to the builder.
+     *
+     * @param future Stage returned by the method, if it is not completed yet
+     * the object is released once it completes, as it might be still in use.
+     */
+    private void releaseBean(final ObjectBuilder ob, final ServiceEndpoint endpoint, final Object been, CompletableFuture<?> future) {
+        if (future != null && !future.isDone()) {
+            future.whenComplete(new BiConsumer<Object, Throwable>() {
 
+                public void accept(Object o, Throwable failure) {
+                    releaseBean(ob, endpoint, been, null);
+                }
+            });
+            return;
+        }
+        try {
+            releaseBean(ob, endpoint, been);
+        } catch (IllegalAccessException ex) {
+            log.log(Level.SEVERE, "Could not release instance of " + endpoint.getServiceClassName(), ex);
+        }
     }
 
-    private void injectClientIp(Class<?>[] parameterTypes, Object[] objects, HttpServletRequest request) throws IllegalAccessException {
-        String ip = getPublicIpAddress(request);
-        for (Class<?> p : parameterTypes) {
-            for (Field f : p.getDeclaredFields()) {
-                ClientIp clientIp = f.getAnnotation(ClientIp.class);
-                if (clientIp != null) {
-                    f.set(objects[0], ip);
-                    return;
+    private void releaseBean(ObjectBuilder ob, ServiceEndpoint endpoint, Object been) throws IllegalAccessException {
+        if (ob instanceof ScopedObjectBuilder) {
+            try {
+                // do not keep the session of this call in the reused instances
+                endpoint.getInjectionPlan().injectContext(been, null, null);
+            } finally {
+                // the pooled instance must be given back, it holds one of the pool slots
+                ((ScopedObjectBuilder) ob).release(endpoint.getServiceClass(), been);
+            }
+        }
+    }
+
+    private void injectClientIp(ServiceEndpoint endpoint, Object[] parameters, HttpServletRequest request) throws IllegalAccessException {
+        if (endpoint.isClientIpInjected()) {
+            String ip = getPublicIpAddress(request);
+            InjectionPlan[] plans = endpoint.getParameterInjectionPlans();
+            for (int i = 0; i < plans.length; i++) {
+                if (parameters[i] != null) {
+                    plans[i].injectClientIp(parameters[i], ip);
                 }
             }
         }
     }
 
-    private Object[] parseParameters(final Class<?>[] parameterTypes, final String inputFormat, HttpRequestParams params, String query) throws ParametersError {
+    private static Object[] readBody(ServiceCall call) throws ParametersError {
+        final ServiceEndpoint endpoint = call.getEndpoint();
+        StreamingRequestConverter converter = (StreamingRequestConverter) call.getRequestConverter();
+        try {
+            return converter.deserialise(call.getRequest().getInputStream(), call.getRequest().getCharacterEncoding(),
+                    endpoint.getParameterTypes(), endpoint.getParameterNames());
+        } catch (Exception ex) {
+            throw new ParametersError("Cann not parse request body for method " + endpoint, ex);
+        }
+    }
+
+    /**
+     * @return Name of the converter reading the request body of the content
+     * type sent by the client if {@link #INPUT_TYPE_BY_CONTENT_TYPE} is set,
+     * properties converter otherwise and for the forms.
+     */
+    private String defaultInputFormat(HttpServletRequest request) {
+        if (!inputTypeByContentType) {
+            return PropertiesToBeanConverter.NAME;
+        }
+        final String contentType = request.getContentType() == null ? "" : request.getContentType().toLowerCase();
+        if (contentType.startsWith(JsonBodyRequestConverter.CONTENT_TYPE)) {
+            return JsonBodyRequestConverter.NAME;
+        }
+        if (contentType.startsWith("application/xml") || contentType.startsWith("text/xml")) {
+            return XMLRequestConverter.NAME;
+        }
+        if (contentType.startsWith(MsgPackRequestConverter.CONTENT_TYPE)) {
+            return MsgPackRequestConverter.NAME;
+        }
+        return PropertiesToBeanConverter.NAME;
+    }
+
+    private Object[] parseParameters(final Class<?>[] parameterTypes, final RequestConverter converter, final String inputFormat, HttpRequestParams params) throws ParametersError {
+        if (converter == null) {
+            throw new ParametersError("Could not find converter for name '" + inputFormat + "'");
+        }
         Object parameters[] = new Object[parameterTypes.length];
         int i = 0;
         for (Class<?> p : parameterTypes) {
             try {
-                RequestConverter converter = ConvertersFactory.getRequestConverter(inputFormat);
-                if (converter != null) {
-                    parameters[i] = converter.deserialise(params, p);
-                } else {
-                    log.log(Level.WARNING, "Could not find converter for name ''{0}''", inputFormat);
-                }
+                parameters[i] = converter.deserialise(params, p);
             } catch (Exception ex) {
                 throw new ParametersError("Cann not parse parameters for parameters class " + p.getCanonicalName(), ex);
             }
@@ -229,25 +1287,28 @@ public class ServiceInvoker extends HttpServlet {
         return parameters;
     }
 
-    private static void callSetter(Field f, Object been, Object sp) throws SecurityException, IllegalArgumentException, IllegalAccessException {
-        boolean accessibility = f.isAccessible();
-        f.setAccessible(true);
-        f.set(been, sp);
-        f.setAccessible(accessibility);
+    private ExceptionResponse errorResponse(String message, Throwable ex) {
+        log.log(Level.SEVERE, message, ex);
+        return new ExceptionResponse(ex, message, stackTraceDepth);
     }
 
-    private static Object callGetter(Field f, Object been) throws SecurityException, IllegalArgumentException, IllegalAccessException {
-        boolean accessibility = f.isAccessible();
-        f.setAccessible(true);
-        Object sp = f.get(been);
-        f.setAccessible(accessibility);
-        return sp;
+    private ExceptionResponse errorResponse(final String codeName, String message) {
+        log.log(Level.SEVERE, message);
+        return new ExceptionResponse(codeName, message);
+    }
+
+    private static ServiceOverloaded overloaded(ServiceEndpoint endpoint) {
+        return new ServiceOverloaded("Method " + endpoint + " reached the limit of " + endpoint.getBulkhead().getMaxConcurrency() + " concurrent calls");
     }
 
     private void throwError(HttpServletResponse response, ResponseConverter converter, String string, Throwable ex) throws ServletException, IOException {
-        log.log(Level.SEVERE, string, ex);
-        response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-        ExceptionResponse resp = new ExceptionResponse(ex, string);
+        throwError(response, converter, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, string, ex);
+    }
+
+    private void throwError(HttpServletResponse response, ResponseConverter converter, int status, String string, Throwable ex) throws ServletException, IOException {
+        log.log(status == HttpServletResponse.SC_SERVICE_UNAVAILABLE ? Level.WARNING : Level.SEVERE, string, ex);
+        response.setStatus(status);
+        ExceptionResponse resp = new ExceptionResponse(ex, string, stackTraceDepth);
         try {
             converter.serialize(resp, response.getOutputStream());
         } catch (SerializationError ex1) {
@@ -255,6 +1316,20 @@ public class ServiceInvoker extends HttpServlet {
         }
     }
 
+    /**
+     * Answer a request for an unknown class or method. Such requests come
+     * mostly from scanners and bots, so they are not logged as errors.
+     */
+    private void routeNotFound(HttpServletResponse response, ResponseConverter converter, ExceptionResponse resp) throws IOException {
+        log.log(Level.FINE, resp.getExceptionData().getDescription());
+        try {
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            converter.serialize(resp, response.getOutputStream());
+        } catch (SerializationError ex) {
+            log.log(Level.SEVERE, "Server was unable to inform peer about exception", ex);
+        }
+    }
+
     private void throwError(HttpServletResponse response, ResponseConverter converter, final String codeName, String message) throws ServletException, IOException {
         log.log(Level.SEVERE, message);
         ExceptionResponse resp = new ExceptionResponse(codeName, message);
@@ -286,66 +1361,46 @@ public class ServiceInvoker extends HttpServlet {
         session.setAttribute(SecurityProfile.class.getCanonicalName(), securityProvider);
     }
 
-    private void checkMethodAllowed(HttpSession session, final String clazz, Method method) throws NotAlowed {
-        SecurityProfile sp = (SecurityProfile) session.getAttribute(SecurityProfile.class.getCanonicalName());
-        if (method.isAnnotationPresent(Secured.class) && (sp == null || sp.isAllowed(clazz, method.getName()) == null)) {
-            throw new NotAlowed(clazz, method.getName());
+    private void checkMethodAllowed(HttpSession session, ServiceEndpoint endpoint) throws NotAlowed {
+        if (endpoint.isSecured()) {
+            SecurityProfile sp = session == null ? null : (SecurityProfile) session.getAttribute(SecurityProfile.class.getCanonicalName());
+            if (sp == null || sp.isAllowed(endpoint.getServiceClassName(), endpoint.getMethodName()) == null) {
+                throw new NotAlowed(endpoint.getServiceClassName(), endpoint.getMethodName());
+            }
         }
     }
 
     private void detachSecurityContext(HttpSession session) {
-        session.setAttribute(SecurityProfile.class.getCanonicalName(), null);
+        if (session != null) {
+            session.setAttribute(SecurityProfile.class.getCanonicalName(), null);
+        }
     }
 
     //Inject security profile attribute if been contains field annotated by SecurityContext attribute
-    private void injectSecutityProfile(Object been, HttpSession session) throws IllegalArgumentException, IllegalAccessException {
-        for (Field f : been.getClass().getDeclaredFields()) {
+    private void injectSecutityProfile(ServiceEndpoint endpoint, Object been, HttpSession session) throws IllegalArgumentException, IllegalAccessException {
+        InjectionPlan plan = endpoint.getInjectionPlan();
+        if (plan.hasSecurityContext() || plan.hasSessionContext()) {
             SecurityProfile sp = (SecurityProfile) session.getAttribute(SecurityProfile.class.getCanonicalName());
-            {
-                SecurityContext sc = f.getAnnotation(SecurityContext.class);
-                if (sc != null) {
-                    callSetter(f, been, sp);
-                }
-            }
-            {
-                SessionContext sc = f.getAnnotation(SessionContext.class);
-                if (sc != null) {
-                    callSetter(f, been, session);
-                }
-            }
+            plan.injectContext(been, session, sp);
         }
     }
 
-    private boolean updateSessionSecurityProfile(Object been, HttpSession session) throws IllegalArgumentException, IllegalAccessException {
-        SecurityProfile sp = (SecurityProfile) session.getAttribute(SecurityProfile.class.getCanonicalName());
+    private boolean updateSessionSecurityProfile(ServiceEndpoint endpoint, Object been, HttpSession session) throws IllegalArgumentException, IllegalAccessException {
+        InjectionPlan plan = endpoint.getInjectionPlan();
         boolean sessionContextUpdated = false;
-        SecurityProfile newSp = sp;
-        for (Field f : been.getClass().getDeclaredFields()) {
-            {
-                SecurityContext sc = f.getAnnotation(SecurityContext.class);
-                if (sc != null) {
-                    newSp = (SecurityProfile) callGetter(f, been);
-                    sessionContextUpdated = true;
-                }
+        if (plan.hasSecurityContext()) {
+            SecurityProfile sp = (SecurityProfile) session.getAttribute(SecurityProfile.class.getCanonicalName());
+            SecurityProfile newSp = plan.readSecurityProfile(been);
+            if (sp != newSp) {
+                session.setAttribute(SecurityProfile.class.getCanonicalName(), newSp);
             }
-        }
-        if (sp != newSp) {
-            session.setAttribute(SecurityProfile.class.getCanonicalName(), newSp);
+            sessionContextUpdated = true;
         }
         return sessionContextUpdated;
     }
 
     private void validate(Object[] parameters) throws IllegalArgumentException, IllegalAccessException, InvocationTargetException, InvalidPropertyFormat {
-        for (Object o : parameters) {
-            if (o.getClass().isAnnotationPresent(Validable.class)) {
-                BeanUtil.validateBean(o);
-            }
-        }
-    }
-
-    private void sendSerializedResponse(Class<?> responseClass, Object o, ResponseConverter converter, HttpServletResponse response) throws SerializationError, IOException, ServletException {
-        Response responseWraper = new Response(responseClass, o);
-        converter.serialize(responseWraper, response.getOutputStream());
+        BeanUtil.validateBeans(parameters);
     }
 
     private String getPublicIpAddress(HttpServletRequest request) {
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.invoker;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jaxygen.annotations.NetAPI;
+
+/**
+ * Maps the class/method routes handled by the {@link ServiceInvoker} onto the
+ * {@link ServiceEndpoint} descriptors.
+ *
+ * The table is built once from the {@link ClassRegistry} configured for the
+ * web application, so resolving a request is a single hash lookup. Classes
+ * which are not listed by the registry (or applications which do not
+ * configure the registry at all) are still served - such classes are loaded
+ * from the service path on the first request and their endpoints are
+ * remembered for the subsequent calls.
+ *
+ * @author Artur
+ */
+public class ServiceRoutingTable {
+
+    private static final Logger log = Logger.getLogger(ServiceRoutingTable.class.getCanonicalName());
+    private static final int MAX_UNKNOWN_NAMES = 10000;
+    private final String classNamePrefix;
+    private final Map<String, ServiceEndpoint> routes;
+    private final Set<String> registeredClasses;
+    private final ConcurrentMap<String, ServiceEndpoint> resolvedRoutes = new ConcurrentHashMap<String, ServiceEndpoint>();
+    // classes whose endpoints were already resolved on demand, so they are never rebuilt
+    private final Set<String> resolvedClasses = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    // routes and classes already looked up in vain, so junk requests do not hit the class loader
+    private final Set<String> unknownRoutes = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Set<String> unknownClasses = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Creates an empty table. All the endpoints are resolved on demand.
+     *
+     * @param servicePath Package containing the service classes.
+     */
+    public ServiceRoutingTable(final String servicePath) {
+        this(servicePath, null);
+    }
+
+    /**
+     * Creates the table filled by all NetAPI methods of the classes provided
+     * by the registry.
+     *
+     * @param servicePath Package containing the service classes.
+     * @param registry Registry of the service classes, might be null.
+     */
+    public ServiceRoutingTable(final String servicePath, final ClassRegistry registry) {
+        this.classNamePrefix = servicePath == null ? "" : servicePath + ".";
+        Map<String, ServiceEndpoint> table = new HashMap<String, ServiceEndpoint>();
+        Set<String> classNames = new HashSet<String>();
+        if (registry != null) {
+            List<Class> classes = registry.getRegisteredClasses();
+            if (classes != null) {
+                for (Class<?> clazz : classes) {
+                    final String name = clazz.getName();
+                    if (name.startsWith(classNamePrefix)) {
+                        final String className = name.substring(classNamePrefix.length());
+                        classNames.add(className);
+                        addEndpoints(table, className, clazz);
+                    } else {
+                        log.log(Level.WARNING, "Class {0} is outside of the service path {1} and will not be exposed", new Object[]{name, servicePath});
+                    }
+                }
+            }
+        }
+        this.routes = Collections.unmodifiableMap(table);
+        this.registeredClasses = Collections.unmodifiableSet(classNames);
+    }
+
+    /**
+     * Find the endpoint handling given class and method.
+     *
+     * @param className Class name relative to the service path.
+     * @param methodName Name of the NetAPI method.
+     * @return The endpoint or null if the class has no such NetAPI method.
+     * @throws ClassNotFoundException if the class is neither registered nor
+     * could be loaded from the service path.
+     */
+    public ServiceEndpoint lookup(final String className, final String methodName) throws ClassNotFoundException {
+        final String route = route(className, methodName);
+        ServiceEndpoint endpoint = routes.get(route);
+        if (endpoint == null) {
+            endpoint = resolvedRoutes.get(route);
+            if (endpoint == null && !unknownRoutes.contains(route)
+                    && !registeredClasses.contains(className)
+                    && !resolvedClasses.contains(className)) {
+                endpoint = resolve(className, methodName);
+                if (endpoint == null) {
+                    remember(unknownRoutes, route);
+                }
+            }
+        }
+        return endpoint;
+    }
+
+    /**
+     * @return All the endpoints registered while the table was built.
+     */
+    public Collection<ServiceEndpoint> getRegisteredEndpoints() {
+        return routes.values();
+    }
+
+    /**
+     * @return The registered endpoints and the endpoints resolved on demand
+     * so far.
+     */
+    public Collection<ServiceEndpoint> getEndpoints() {
+        List<ServiceEndpoint> endpoints = new ArrayList<ServiceEndpoint>(routes.values());
+        endpoints.addAll(resolvedRoutes.values());
+        return endpoints;
+    }
+
+    private ServiceEndpoint resolve(final String className, final String methodName) throws ClassNotFoundException {
+        if (unknownClasses.contains(className)) {
+            throw new ClassNotFoundException(classNamePrefix + className);
+        }
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        Class<?> clazz;
+        try {
+            clazz = cl.loadClass(classNamePrefix + className);
+        } catch (ClassNotFoundException ex) {
+            remember(unknownClasses, className);
+            throw ex;
+        }
+        Map<String, ServiceEndpoint> classRoutes = new HashMap<String, ServiceEndpoint>();
+        addEndpoints(classRoutes, className, clazz);
+        // keep the endpoints resolved by a concurrent request, so each route has a single descriptor
+        for (Map.Entry<String, ServiceEndpoint> e : classRoutes.entrySet()) {
+            resolvedRoutes.putIfAbsent(e.getKey(), e.getValue());
+        }
+        resolvedClasses.add(className);
+        return resolvedRoutes.get(route(className, methodName));
+    }
+
+    private static void addEndpoints(Map<String, ServiceEndpoint> table, final String className, Class<?> clazz) {
+        for (Method m : clazz.getMethods()) {
+            if (m.isAnnotationPresent(NetAPI.class)) {
+                final String route = route(className, m.getName());
+                if (table.containsKey(route)) {
+                    log.log(Level.WARNING, "Method {0}.{1} is overloaded, only one NetAPI method of given name could be exposed", new Object[]{clazz.getName(), m.getName()});
+                } else {
+                    table.put(route, new ServiceEndpoint(route, clazz, m));
+                }
+            }
+        }
+    }
+
+    private static void remember(Set<String> names, String name) {
+        if (names.size() >= MAX_UNKNOWN_NAMES) {
+            // random names must not grow the set forever
+            names.clear();
+        }
+        names.add(name);
+    }
+
+    private static String route(final String className, final String methodName) {
+        return className + "/" + methodName;
+    }
+}
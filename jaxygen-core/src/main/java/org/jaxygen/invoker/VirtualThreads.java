@@ -0,0 +1,74 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.invoker;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates the executor running the methods annotated by
+ * {@link org.jaxygen.annotations.RunOnVirtualThread}. The library is compiled
+ * for older Java versions, so the virtual thread executor is looked up
+ * reflectively and an unbounded pool of platform threads is used on runtimes
+ * which do not support virtual threads.
+ *
+ * @author Artur
+ */
+class VirtualThreads {
+
+    private static final Logger log = Logger.getLogger(VirtualThreads.class.getCanonicalName());
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return New executor starting a virtual thread per task.
+     */
+    static ExecutorService newExecutor() {
+        Method factory = factoryMethod();
+        if (factory != null) {
+            try {
+                return (ExecutorService) factory.invoke(null);
+            } catch (Exception ex) {
+                log.log(Level.WARNING, "Could not create virtual thread executor", ex);
+            }
+        } else {
+            log.warning("Virtual threads are not supported by this Java runtime, blocking calls are executed on a pool of platform threads");
+        }
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "jaxygen-blocking-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    private static Method factoryMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+}
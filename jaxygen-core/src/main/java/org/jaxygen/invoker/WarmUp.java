@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.invoker;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jaxygen.converters.ConvertersFactory;
+import org.jaxygen.converters.PreparableConverter;
+import org.jaxygen.converters.RequestConverter;
+import org.jaxygen.converters.ResponseConverter;
+import org.jaxygen.dto.ExceptionResponse;
+import org.jaxygen.dto.Response;
+
+/**
+ * Builds ahead the metadata normally created on the first call of each
+ * method: the converters metadata of the parameter and result classes. The
+ * endpoints themselves are already built by the {@link ServiceRoutingTable}.
+ *
+ * @author Artur
+ */
+class WarmUp {
+
+    private static final Logger log = Logger.getLogger(WarmUp.class.getCanonicalName());
+    private final Set<Class<?>> parameters = new HashSet<Class<?>>();
+    private final Set<Class<?>> results = new HashSet<Class<?>>();
+    private final Collection<RequestConverter> requestConverters = ConvertersFactory.getRequestConverters();
+    private final Collection<ResponseConverter> responseConverters = ConvertersFactory.getResponseConverters();
+
+    /**
+     * Prepare the given endpoints. Failures are logged, they do not stop the
+     * startup.
+     *
+     * @return Number of the prepared classes.
+     */
+    int run(Collection<ServiceEndpoint> endpoints) {
+        prepareResult(Response.class);
+        prepareResult(ExceptionResponse.class);
+        for (ServiceEndpoint endpoint : endpoints) {
+            for (Class<?> type : endpoint.getParameterTypes()) {
+                prepareParameter(type);
+            }
+            prepareResult(endpoint.getResultType());
+        }
+        return parameters.size() + results.size();
+    }
+
+    private void prepareParameter(Class<?> type) {
+        if (!parameters.add(type)) {
+            return;
+        }
+        for (RequestConverter converter : requestConverters) {
+            prepare(converter, type);
+        }
+    }
+
+    private void prepareResult(Class<?> type) {
+        if (type == void.class || !results.add(type)) {
+            return;
+        }
+        for (ResponseConverter converter : responseConverters) {
+            prepare(converter, type);
+        }
+    }
+
+    private static void prepare(Object converter, Class<?> type) {
+        if (converter instanceof PreparableConverter) {
+            try {
+                ((PreparableConverter) converter).prepare(type);
+            } catch (Exception ex) {
+                log.log(Level.FINE, "Converter " + converter.getClass().getName() + " could not prepare " + type.getName(), ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.invoker.methods;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Invoker calling the method over a class generated by the
+ * {@link LambdaMetafactory}.
+ *
+ * The generated class implements one of the fixed arity call interfaces and
+ * calls the service method directly, so the call costs the same as a regular
+ * interface call. Only public, non static methods returning a value and
+ * taking up to three parameters could be bound this way. The generated class
+ * is defined in the class loader of the jaxygen classes, so the service class
+ * and the types of its method signature must be visible to that loader too.
+ *
+ * @author Artur
+ */
+public class LambdaMethodInvoker implements MethodInvoker {
+
+    public static final int MAX_PARAMETERS = 3;
+
+    public interface Call0 {
+
+        Object call(Object target);
+    }
+
+    public interface Call1 {
+
+        Object call(Object target, Object p1);
+    }
+
+    public interface Call2 {
+
+        Object call(Object target, Object p1, Object p2);
+    }
+
+    public interface Call3 {
+
+        Object call(Object target, Object p1, Object p2, Object p3);
+    }
+
+    private static final Class<?>[] CALL_INTERFACES = {Call0.class, Call1.class, Call2.class, Call3.class};
+    private final int parametersCount;
+    private final Object call;
+
+    /**
+     * @param method Method to be called.
+     * @throws IllegalAccessException The method is not accessible.
+     * @throws LambdaConversionException The method could not be bound.
+     */
+    public LambdaMethodInvoker(Method method) throws IllegalAccessException, LambdaConversionException {
+        if (!isSupported(method)) {
+            throw new LambdaConversionException("Method " + method + " could not be bound to the call interface");
+        }
+        parametersCount = method.getParameterTypes().length;
+        final Class<?> callInterface = CALL_INTERFACES[parametersCount];
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle impl = lookup.unreflect(method);
+        MethodType samType = MethodType.genericMethodType(parametersCount + 1);
+        CallSite site = LambdaMetafactory.metafactory(lookup, "call",
+                MethodType.methodType(callInterface), samType, impl, impl.type().wrap());
+        try {
+            call = site.getTarget().invoke();
+        } catch (Throwable ex) {
+            throw new LambdaConversionException("Could not bind method " + method, ex);
+        }
+    }
+
+    /**
+     * @param method Checked method.
+     * @return true if the method could be called over the
+     * LambdaMethodInvoker.
+     */
+    public static boolean isSupported(Method method) {
+        final int modifiers = method.getModifiers();
+        return Modifier.isPublic(modifiers)
+                && !Modifier.isStatic(modifiers)
+                && Modifier.isPublic(method.getDeclaringClass().getModifiers())
+                && !void.class.equals(method.getReturnType())
+                && method.getParameterTypes().length <= MAX_PARAMETERS
+                && isVisible(method.getDeclaringClass())
+                && isVisible(method.getReturnType())
+                && isVisible(method.getParameterTypes());
+    }
+
+    private static boolean isVisible(Class<?>... types) {
+        final ClassLoader loader = LambdaMethodInvoker.class.getClassLoader();
+        for (Class<?> type : types) {
+            while (type.isArray()) {
+                type = type.getComponentType();
+            }
+            if (type.isPrimitive()) {
+                continue;
+            }
+            try {
+                if (Class.forName(type.getName(), false, loader) != type) {
+                    return false;
+                }
+            } catch (ClassNotFoundException ex) {
+                return false;
+            } catch (LinkageError ex) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Object invoke(Object target, Object[] parameters) throws InvocationTargetException {
+        try {
+            switch (parametersCount) {
+                case 0:
+                    return ((Call0) call).call(target);
+                case 1:
+                    return ((Call1) call).call(target, parameters[0]);
+                case 2:
+                    return ((Call2) call).call(target, parameters[0], parameters[1]);
+                default:
+                    return ((Call3) call).call(target, parameters[0], parameters[1], parameters[2]);
+            }
+        } catch (Throwable ex) {
+            throw new InvocationTargetException(ex);
+        }
+    }
+}
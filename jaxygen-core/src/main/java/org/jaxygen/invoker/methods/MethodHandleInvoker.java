@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.invoker.methods;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Invoker calling the method over a {@link MethodHandle}.
+ *
+ * The handle is adapted once to the generic (Object, Object[])Object shape,
+ * so the call does not pass the reflection access checks and the JIT is able
+ * to inline the service method into the invoker.
+ *
+ * @author Artur
+ */
+public class MethodHandleInvoker implements MethodInvoker {
+
+    private final MethodHandle handle;
+
+    /**
+     * @param method Method to be called.
+     * @throws IllegalAccessException if the method is not accessible.
+     */
+    public MethodHandleInvoker(Method method) throws IllegalAccessException {
+        final int parametersCount = method.getParameterTypes().length;
+        if (!method.isAccessible()) {
+            try {
+                method.setAccessible(true);
+            } catch (RuntimeException ex) {
+                // InaccessibleObjectException on a module which does not open the package
+                IllegalAccessException iae = new IllegalAccessException("Could not make " + method + " accessible");
+                iae.initCause(ex);
+                throw iae;
+            }
+        }
+        MethodHandle mh = MethodHandles.lookup().unreflect(method);
+        if (Modifier.isStatic(method.getModifiers())) {
+            mh = MethodHandles.dropArguments(mh, 0, Object.class);
+        }
+        handle = mh.asType(MethodType.genericMethodType(parametersCount + 1))
+                .asSpreader(Object[].class, parametersCount);
+    }
+
+    public Object invoke(Object target, Object[] parameters) throws InvocationTargetException {
+        try {
+            return (Object) handle.invokeExact(target, parameters);
+        } catch (Throwable ex) {
+            throw new InvocationTargetException(ex);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.invoker.methods;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Calls a single, already resolved service method.
+ *
+ * Implementations are created once per endpoint and shared by all the
+ * requests, so they must be thread safe.
+ *
+ * @author Artur
+ */
+public interface MethodInvoker {
+
+    /**
+     * Call the method on the given service object.
+     *
+     * @param target Service object.
+     * @param parameters Method arguments.
+     * @return Value returned by the method (null for void methods).
+     * @throws InvocationTargetException The method has thrown an exception,
+     * the original exception is available as the target exception.
+     * @throws IllegalAccessException The method is not accessible.
+     */
+    Object invoke(Object target, Object[] parameters) throws InvocationTargetException, IllegalAccessException;
+}
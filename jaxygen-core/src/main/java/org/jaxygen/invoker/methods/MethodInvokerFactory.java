@@ -0,0 +1,54 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.invoker.methods;
+
+import java.lang.invoke.LambdaConversionException;
+import java.lang.reflect.Method;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates the fastest invoker available for the given method. The
+ * {@link LambdaMethodInvoker} is preferred, the {@link MethodHandleInvoker}
+ * is used for methods which could not be bound to the lambda call interfaces
+ * and the {@link ReflectionMethodInvoker} is the last resort.
+ *
+ * @author Artur
+ */
+public class MethodInvokerFactory {
+
+    private static final Logger log = Logger.getLogger(MethodInvokerFactory.class.getCanonicalName());
+
+    public static MethodInvoker create(Method method) {
+        if (LambdaMethodInvoker.isSupported(method)) {
+            try {
+                return new LambdaMethodInvoker(method);
+            } catch (IllegalAccessException ex) {
+                log.log(Level.FINE, "Could not bind method " + method + " to the lambda call interface", ex);
+            } catch (LambdaConversionException ex) {
+                log.log(Level.FINE, "Could not bind method " + method + " to the lambda call interface", ex);
+            }
+        }
+        try {
+            return new MethodHandleInvoker(method);
+        } catch (IllegalAccessException ex) {
+            log.log(Level.WARNING, "Could not create method handle for " + method + ", reflection will be used", ex);
+        } catch (SecurityException ex) {
+            log.log(Level.WARNING, "Could not create method handle for " + method + ", reflection will be used", ex);
+        }
+        return new ReflectionMethodInvoker(method);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.invoker.methods;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Invoker calling the method over the java reflection API.
+ *
+ * @author Artur
+ */
+public class ReflectionMethodInvoker implements MethodInvoker {
+
+    private final Method method;
+
+    public ReflectionMethodInvoker(Method method) {
+        this.method = method;
+    }
+
+    public Object invoke(Object target, Object[] parameters) throws InvocationTargetException, IllegalAccessException {
+        return method.invoke(target, parameters);
+    }
+}
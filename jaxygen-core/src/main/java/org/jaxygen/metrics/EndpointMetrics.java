@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call statistics of a single NetAPI method.
+ *
+ * @author Artur
+ */
+public class EndpointMetrics {
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+
+    public EndpointMetrics() {
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Register the call start.
+     *
+     * @return Start time to be passed to {@link #callFinished(long, boolean)}.
+     */
+    public long callStarted() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Register the call end.
+     *
+     * @param startNanos Value returned by {@link #callStarted()}.
+     * @param failed true if the call ended with an error response.
+     */
+    public void callFinished(long startNanos, boolean failed) {
+        latency.record(System.nanoTime() - startNanos);
+        inFlight.decrementAndGet();
+        calls.increment();
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * @return Number of finished calls.
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * @return Number of calls finished with an error response.
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * @return Number of calls being processed now.
+     */
+    public long getInFlight() {
+        return inFlight.get();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @param phase Processing step.
+     * @param nanos Duration of the step in nanoseconds.
+     */
+    public void recordPhase(Phase phase, long nanos) {
+        phases[phase.ordinal()].record(nanos);
+    }
+
+    /**
+     * @param phase Processing step.
+     * @return Durations of the step.
+     */
+    public LatencyHistogram getPhaseLatency(Phase phase) {
+        return phases[phase.ordinal()];
+    }
+}
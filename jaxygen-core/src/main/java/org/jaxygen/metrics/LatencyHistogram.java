@@ -0,0 +1,187 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of call durations. The durations are recorded in
+ * microseconds into log-linear buckets: every power of two range is split
+ * into 8 buckets, so a reported percentile is at most 12.5% above the exact
+ * value. Recording is a single atomic increment, reading the percentiles
+ * does not block the recording threads.
+ *
+ * @author Artur
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // up to 2^36us (about 19 hours), longer calls are counted in the last bucket
+    private static final int MAX_EXPONENT = 36;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    // sums of the durations per bucket, read together with the counts
+    private final AtomicLongArray sums = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+
+    /**
+     * @param nanos Duration of the call in nanoseconds.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        int bucket = bucket(nanos / 1000);
+        // the sum goes first, so a snapshot never counts a call without its duration
+        sums.addAndGet(bucket, nanos);
+        counts.incrementAndGet(bucket);
+        count.increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * @return Number of recorded calls.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return Sum of the recorded durations in nanoseconds.
+     */
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * Get the duration below which the given fraction of the calls
+     * completed. Use {@link #snapshot()} to read several percentiles of the
+     * same set of calls.
+     *
+     * @param quantile Fraction of the calls, e.g. 0.99.
+     * @return Upper bound of the duration in microseconds, 0 if nothing was
+     * recorded.
+     */
+    public long getPercentileMicros(double quantile) {
+        return snapshot().getPercentileMicros(quantile);
+    }
+
+    /**
+     * Copy the current state of the histogram. The count is derived from the
+     * bucket counts and the sum is read in the same pass.
+     *
+     * @return The copy, not affected by the calls recorded later.
+     */
+    public Snapshot snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        long sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            sum += sums.get(i);
+            total += snapshot[i];
+        }
+        return new Snapshot(snapshot, total, sum);
+    }
+
+    /**
+     * Histogram counts read in one pass, so the percentiles and the count
+     * agree exactly. The snapshot is taken without locking the recording
+     * threads: the sum might include the durations of the calls being
+     * recorded in the meantime, but not yet counted. The error is bounded by
+     * the calls recorded concurrently with the snapshot.
+     */
+    public static class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sumNanos;
+
+        private Snapshot(long[] counts, long count, long sumNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.sumNanos = sumNanos;
+        }
+
+        /**
+         * @return Number of calls in the snapshot.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return Sum of the recorded durations in nanoseconds.
+         */
+        public long getSumNanos() {
+            return sumNanos;
+        }
+
+        /**
+         * @param quantile Fraction of the calls, e.g. 0.99.
+         * @return Upper bound of the duration in microseconds, 0 if nothing
+         * was recorded.
+         */
+        public long getPercentileMicros(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * count);
+            if (rank < 1) {
+                rank = 1;
+            }
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(counts.length - 1);
+        }
+    }
+
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket == BUCKETS - 1) {
+            return lowerBound(bucket);
+        }
+        return lowerBound(bucket + 1) - 1;
+    }
+}
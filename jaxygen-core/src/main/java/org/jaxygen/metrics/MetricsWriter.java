@@ -0,0 +1,154 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.metrics;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Writes the endpoint metrics in the Prometheus text exposition format or as
+ * JSON.
+ *
+ * @author Artur
+ */
+public class MetricsWriter {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] QUANTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    private MetricsWriter() {
+    }
+
+    /**
+     * @param metrics Metrics by the endpoint route (class/method).
+     * @param out Output writer.
+     * @throws IOException .
+     */
+    public static void writePrometheus(Map<String, EndpointMetrics> metrics, Writer out) throws IOException {
+        out.write("# HELP jaxygen_calls_total Number of finished calls of the NetAPI method.\n");
+        out.write("# TYPE jaxygen_calls_total counter\n");
+        for (Map.Entry<String, EndpointMetrics> e : metrics.entrySet()) {
+            sample(out, "jaxygen_calls_total", e.getKey(), null, Long.toString(e.getValue().getCalls()));
+        }
+        out.write("# HELP jaxygen_errors_total Number of calls of the NetAPI method finished with an error.\n");
+        out.write("# TYPE jaxygen_errors_total counter\n");
+        for (Map.Entry<String, EndpointMetrics> e : metrics.entrySet()) {
+            sample(out, "jaxygen_errors_total", e.getKey(), null, Long.toString(e.getValue().getErrors()));
+        }
+        out.write("# HELP jaxygen_in_flight Number of calls of the NetAPI method in progress.\n");
+        out.write("# TYPE jaxygen_in_flight gauge\n");
+        for (Map.Entry<String, EndpointMetrics> e : metrics.entrySet()) {
+            sample(out, "jaxygen_in_flight", e.getKey(), null, Long.toString(e.getValue().getInFlight()));
+        }
+        out.write("# HELP jaxygen_latency_seconds Duration of the calls of the NetAPI method.\n");
+        out.write("# TYPE jaxygen_latency_seconds summary\n");
+        for (Map.Entry<String, EndpointMetrics> e : metrics.entrySet()) {
+            LatencyHistogram.Snapshot latency = e.getValue().getLatency().snapshot();
+            for (double q : QUANTILES) {
+                sample(out, "jaxygen_latency_seconds", e.getKey(), Double.toString(q), seconds(latency.getPercentileMicros(q) * 1000));
+            }
+            sample(out, "jaxygen_latency_seconds_sum", e.getKey(), null, seconds(latency.getSumNanos()));
+            sample(out, "jaxygen_latency_seconds_count", e.getKey(), null, Long.toString(latency.getCount()));
+        }
+        out.write("# HELP jaxygen_phase_seconds Duration of the processing steps of the NetAPI method calls.\n");
+        out.write("# TYPE jaxygen_phase_seconds summary\n");
+        for (Map.Entry<String, EndpointMetrics> e : metrics.entrySet()) {
+            for (Phase phase : Phase.values()) {
+                LatencyHistogram.Snapshot latency = e.getValue().getPhaseLatency(phase).snapshot();
+                if (latency.getCount() == 0) {
+                    continue;
+                }
+                String labels = "endpoint=\"" + escape(e.getKey()) + "\",phase=\"" + phase.getLabel() + "\"";
+                for (double q : QUANTILES) {
+                    sample(out, "jaxygen_phase_seconds", labels + ",quantile=\"" + q + "\"", seconds(latency.getPercentileMicros(q) * 1000));
+                }
+                sample(out, "jaxygen_phase_seconds_sum", labels, seconds(latency.getSumNanos()));
+                sample(out, "jaxygen_phase_seconds_count", labels, Long.toString(latency.getCount()));
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Write the metrics as a JSON object, the latency percentiles are given
+     * in microseconds.
+     *
+     * @param metrics Metrics by the endpoint route (class/method).
+     * @param out Output writer.
+     * @throws IOException .
+     */
+    public static void writeJson(Map<String, EndpointMetrics> metrics, Writer out) throws IOException {
+        JsonObject root = new JsonObject();
+        for (Map.Entry<String, EndpointMetrics> e : metrics.entrySet()) {
+            EndpointMetrics m = e.getValue();
+            JsonObject endpoint = new JsonObject();
+            endpoint.addProperty("calls", m.getCalls());
+            endpoint.addProperty("errors", m.getErrors());
+            endpoint.addProperty("inFlight", m.getInFlight());
+            JsonObject latency = percentiles(m.getLatency().snapshot());
+            endpoint.add("latencyMicros", latency);
+            JsonObject phases = new JsonObject();
+            for (Phase phase : Phase.values()) {
+                LatencyHistogram.Snapshot h = m.getPhaseLatency(phase).snapshot();
+                if (h.getCount() > 0) {
+                    phases.add(phase.getLabel(), percentiles(h));
+                }
+            }
+            endpoint.add("phasesMicros", phases);
+            root.add(e.getKey(), endpoint);
+        }
+        new GsonBuilder().setPrettyPrinting().create().toJson(root, out);
+        out.flush();
+    }
+
+    private static JsonObject percentiles(LatencyHistogram.Snapshot histogram) {
+        JsonObject rc = new JsonObject();
+        for (int i = 0; i < QUANTILES.length; i++) {
+            rc.addProperty(QUANTILE_NAMES[i], histogram.getPercentileMicros(QUANTILES[i]));
+        }
+        rc.addProperty("sum", histogram.getSumNanos() / 1000);
+        rc.addProperty("count", histogram.getCount());
+        return rc;
+    }
+
+    private static void sample(Writer out, String name, String endpoint, String quantile, String value) throws IOException {
+        String labels = "endpoint=\"" + escape(endpoint) + "\"";
+        if (quantile != null) {
+            labels += ",quantile=\"" + quantile + "\"";
+        }
+        sample(out, name, labels, value);
+    }
+
+    private static void sample(Writer out, String name, String labels, String value) throws IOException {
+        out.write(name);
+        out.write('{');
+        out.write(labels);
+        out.write("} ");
+        out.write(value);
+        out.write('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
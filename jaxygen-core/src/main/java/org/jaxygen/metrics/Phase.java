@@ -0,0 +1,60 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.metrics;
+
+/**
+ * Steps of the call processing measured separately.
+ *
+ * @author Artur
+ */
+public enum Phase {
+
+    /**
+     * Reading the HTTP request parameters and the uploaded files.
+     */
+    PARSE("parse"),
+    /**
+     * Converting the request parameters into the method parameters.
+     */
+    DESERIALIZE("deserialize"),
+    /**
+     * Validation of the method parameters.
+     */
+    VALIDATE("validate"),
+    /**
+     * The service method call. For asynchronous methods it lasts until the
+     * returned stage is completed.
+     */
+    INVOKE("invoke"),
+    /**
+     * Writing the response.
+     */
+    SERIALIZE("serialize");
+
+    private final String label;
+
+    private Phase(String label) {
+        this.label = label;
+    }
+
+    /**
+     * @return Name of the phase used in the metrics and in the Server-Timing
+     * header.
+     */
+    public String getLabel() {
+        return label;
+    }
+}
@@ -20,7 +20,7 @@ package org.jaxygen.objectsbuilder;
  * @author Artur
  */
 public class ObjectBuilderFactory {
-    private static ObjectBuilder builder = new DefautlObjectBuilder();
+    private static ObjectBuilder builder = new ScopedObjectBuilder();
     
     public static ObjectBuilder instance() {
         return builder;
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jaxygen.objectsbuilder;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.jaxygen.annotations.Scope;
+import org.jaxygen.annotations.ServiceScope;
+import org.jaxygen.annotations.SessionContext;
+import org.jaxygen.objectsbuilder.exceptions.ObjectCreateError;
+import org.jaxygen.security.annotations.SecurityContext;
+
+/**
+ * Objects builder which manages the lifecycle of the service objects
+ * according to the {@link ServiceScope} annotation of the class.
+ *
+ * New instances are created by the wrapped builder. Every object obtained
+ * by {@link #create(java.lang.Class)} has to be given back by
+ * {@link #release(java.lang.Class, java.lang.Object)} once the call is
+ * finished. The Pooled scope creates up to poolSize instances; if all of
+ * them are in use, the call waits up to maxWaitMillis for a released one and
+ * then fails with {@link ObjectCreateError}.
+ *
+ * @author Artur
+ */
+public class ScopedObjectBuilder implements ObjectBuilder {
+
+    private interface Holder {
+
+        Object acquire() throws ObjectCreateError;
+
+        void release(Object instance);
+    }
+
+    private final ObjectBuilder builder;
+    private final ConcurrentMap<Class, Holder> holders = new ConcurrentHashMap<Class, Holder>();
+
+    public ScopedObjectBuilder() {
+        this(new DefautlObjectBuilder());
+    }
+
+    /**
+     * @param builder Builder creating the new instances.
+     */
+    public ScopedObjectBuilder(ObjectBuilder builder) {
+        this.builder = builder;
+    }
+
+    public Object create(Class clazz) throws ObjectCreateError {
+        return getHolder(clazz).acquire();
+    }
+
+    /**
+     * Give back the object obtained by the create method.
+     *
+     * @param clazz Class passed to the create method.
+     * @param instance The released object.
+     */
+    public void release(Class clazz, Object instance) {
+        Holder holder = holders.get(clazz);
+        if (holder != null) {
+            holder.release(instance);
+        }
+    }
+
+    private Holder getHolder(final Class clazz) throws ObjectCreateError {
+        Holder holder = holders.get(clazz);
+        if (holder == null) {
+            holder = createHolder(clazz);
+            Holder current = holders.putIfAbsent(clazz, holder);
+            if (current != null) {
+                holder = current;
+            }
+        }
+        return holder;
+    }
+
+    private Holder createHolder(final Class<?> clazz) throws ObjectCreateError {
+        ServiceScope scope = clazz.getAnnotation(ServiceScope.class);
+        if (scope == null || scope.value() == Scope.Request) {
+            return new RequestHolder(clazz);
+        } else if (scope.value() == Scope.Pooled) {
+            return new PoolHolder(clazz, scope.poolSize(), scope.maxWaitMillis());
+        } else {
+            if (isSessionBound(clazz)) {
+                throw new ObjectCreateError("Class " + clazz.getCanonicalName() + " is a singleton but has session bound fields. Use the Pooled scope instead.");
+            }
+            return new SingletonHolder(clazz);
+        }
+    }
+
+    /**
+     * @return true if the class or its superclasses have fields the invoker
+     * fills with the session of the call.
+     */
+    private static boolean isSessionBound(Class<?> clazz) {
+        for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field f : c.getDeclaredFields()) {
+                if (f.isAnnotationPresent(SessionContext.class) || f.isAnnotationPresent(SecurityContext.class)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private class RequestHolder implements Holder {
+
+        private final Class clazz;
+
+        RequestHolder(Class clazz) {
+            this.clazz = clazz;
+        }
+
+        public Object acquire() throws ObjectCreateError {
+            return builder.create(clazz);
+        }
+
+        public void release(Object instance) {
+        }
+    }
+
+    private class SingletonHolder implements Holder {
+
+        private final Class clazz;
+        private volatile Object instance;
+
+        SingletonHolder(Class clazz) {
+            this.clazz = clazz;
+        }
+
+        public Object acquire() throws ObjectCreateError {
+            Object rc = instance;
+            if (rc == null) {
+                synchronized (this) {
+                    rc = instance;
+                    if (rc == null) {
+                        rc = builder.create(clazz);
+                        instance = rc;
+                    }
+                }
+            }
+            return rc;
+        }
+
+        public void release(Object instance) {
+        }
+    }
+
+    private class PoolHolder implements Holder {
+
+        private final Class clazz;
+        private final BlockingQueue<Object> idle;
+        private final int poolSize;
+        private final Semaphore permits;
+        private final long maxWaitMillis;
+
+        PoolHolder(Class clazz, int poolSize, long maxWaitMillis) {
+            this.clazz = clazz;
+            this.poolSize = Math.max(1, poolSize);
+            this.idle = new ArrayBlockingQueue<Object>(this.poolSize);
+            this.permits = new Semaphore(this.poolSize);
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        public Object acquire() throws ObjectCreateError {
+            try {
+                if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                    throw new ObjectCreateError("All the " + poolSize + " instances of " + clazz.getCanonicalName() + " are busy");
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new ObjectCreateError("Interrupted while waiting for an instance of " + clazz.getCanonicalName(), ex);
+            }
+            Object rc = idle.poll();
+            if (rc == null) {
+                try {
+                    rc = builder.create(clazz);
+                } catch (ObjectCreateError ex) {
+                    permits.release();
+                    throw ex;
+                } catch (RuntimeException ex) {
+                    permits.release();
+                    throw ex;
+                }
+            }
+            return rc;
+        }
+
+        public void release(Object instance) {
+            // the idle queue has room for every instance holding a permit
+            idle.offer(instance);
+            permits.release();
+        }
+    }
+}
@@ -55,6 +55,25 @@ public class BeanUtil {
         }
     }
 
+    /**
+     * Validate the beans annotated by {@link Validable}. Null beans, e.g. the
+     * parameters missing in an empty request body, are skipped.
+     *
+     * @param beans Beans under validation.
+     * @throws InvocationTargetException .
+     * @throws IllegalAccessException .
+     * @throws IllegalArgumentException .
+     * @throws InvalidPropertyFormat .
+     */
+    public static void validateBeans(Object[] beans) throws IllegalArgumentException,
+            IllegalAccessException, InvocationTargetException, InvalidPropertyFormat {
+        for (Object bean : beans) {
+            if (bean != null && bean.getClass().isAnnotationPresent(Validable.class)) {
+                validateBean(bean);
+            }
+        }
+    }
+
     /**
      * Method goes through bean getters, and check if the returned value matches
      * the validator passed in {\link StringPropertyValidator} or
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.devservices.jaxygen.benchmark;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import org.jaxygen.invoker.methods.LambdaMethodInvoker;
+import org.jaxygen.invoker.methods.MethodHandleInvoker;
+import org.jaxygen.invoker.methods.MethodInvoker;
+import org.jaxygen.invoker.methods.ReflectionMethodInvoker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the reflective, the method handle and the lambda based invocation
+ * of a small service method.
+ *
+ * Run from the jaxygen-core directory by:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=pl.devservices.jaxygen.benchmark.MethodInvokerBenchmark
+ * </pre>
+ *
+ * @author Artur
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MethodInvokerBenchmark {
+
+    public static class UserRequestDTO {
+
+        private int id;
+        private String name;
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class UsersService {
+
+        public String getUser(UserRequestDTO request, int version) {
+            return request.getName();
+        }
+    }
+
+    private final UsersService service = new UsersService();
+    private Object[] parameters;
+    private MethodInvoker reflection;
+    private MethodInvoker methodHandle;
+    private MethodInvoker lambda;
+
+    @Setup
+    public void setup() throws Exception {
+        UserRequestDTO request = new UserRequestDTO();
+        request.setId(10);
+        request.setName("John");
+        parameters = new Object[]{request, 1};
+        Method m = UsersService.class.getMethod("getUser", UserRequestDTO.class, int.class);
+        reflection = new ReflectionMethodInvoker(m);
+        methodHandle = new MethodHandleInvoker(m);
+        lambda = new LambdaMethodInvoker(m);
+    }
+
+    @Benchmark
+    public Object reflection() throws Exception {
+        return reflection.invoke(service, parameters);
+    }
+
+    @Benchmark
+    public Object methodHandle() throws Exception {
+        return methodHandle.invoke(service, parameters);
+    }
+
+    @Benchmark
+    public Object lambda() throws Exception {
+        return lambda.invoke(service, parameters);
+    }
+
+    public static void main(String... args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MethodInvokerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
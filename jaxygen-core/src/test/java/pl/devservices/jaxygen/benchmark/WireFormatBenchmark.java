@@ -0,0 +1,197 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.devservices.jaxygen.benchmark;
+
+import com.google.gson.Gson;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.jaxygen.converters.ResponseConverter;
+import org.jaxygen.converters.json.JsonResponseConverter;
+import org.jaxygen.converters.msgpack.MsgPackResponseConverter;
+import org.jaxygen.converters.msgpack.SchemaMsgPackResponseConverter;
+import org.jaxygen.converters.msgpack.codec.MsgPackCodecs;
+import org.jaxygen.converters.msgpack.codec.MsgPackInput;
+import org.jaxygen.converters.sjo.SJOResponseConverter;
+import org.jaxygen.dto.collections.PaginableListResponseBaseDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the JSON, the SJO (Java serialization), the MessagePack and the
+ * schema driven MessagePack converters writing and reading a page of users, the DTOs of the sample
+ * application. The sizes of the encoded page are printed before the
+ * benchmarks start.
+ *
+ * Run from the jaxygen-core directory by:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=pl.devservices.jaxygen.benchmark.WireFormatBenchmark
+ * </pre>
+ *
+ * @author Artur
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    public enum Sex {
+        MALE, FEMALE
+    }
+
+    public static class UserDTO implements Serializable {
+
+        private String name;
+        private int age;
+        private Sex sex;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+
+        public Sex getSex() {
+            return sex;
+        }
+
+        public void setSex(Sex sex) {
+            this.sex = sex;
+        }
+    }
+
+    public static class UsersPageDTO extends PaginableListResponseBaseDTO<UserDTO> {
+    }
+
+    private final Gson gson = new Gson();
+    private final JsonResponseConverter json = new JsonResponseConverter();
+    private final SJOResponseConverter sjo = new SJOResponseConverter();
+    private final MsgPackResponseConverter msgPack = new MsgPackResponseConverter();
+    private final SchemaMsgPackResponseConverter schema = new SchemaMsgPackResponseConverter();
+    private UsersPageDTO page;
+    private byte[] jsonBytes;
+    private byte[] sjoBytes;
+    private byte[] msgPackBytes;
+    private byte[] schemaBytes;
+
+    @Setup
+    public void setup() throws Exception {
+        page = samplePage();
+        jsonBytes = encode(json);
+        sjoBytes = encode(sjo);
+        msgPackBytes = encode(msgPack);
+        schemaBytes = encode(schema);
+    }
+
+    static UsersPageDTO samplePage() {
+        List<UserDTO> users = new ArrayList<UserDTO>();
+        for (int i = 0; i < 50; i++) {
+            UserDTO user = new UserDTO();
+            user.setName("User " + i);
+            user.setAge(20 + i % 50);
+            user.setSex(i % 2 == 0 ? Sex.MALE : Sex.FEMALE);
+            users.add(user);
+        }
+        UsersPageDTO page = new UsersPageDTO();
+        page.setElements(users);
+        page.setSize(1000);
+        return page;
+    }
+
+    private byte[] encode(ResponseConverter converter) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        converter.serialize(page, bytes);
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] writeJson() throws Exception {
+        return encode(json);
+    }
+
+    @Benchmark
+    public byte[] writeSjo() throws Exception {
+        return encode(sjo);
+    }
+
+    @Benchmark
+    public byte[] writeMsgPack() throws Exception {
+        return encode(msgPack);
+    }
+
+    @Benchmark
+    public byte[] writeSchema() throws Exception {
+        return encode(schema);
+    }
+
+    @Benchmark
+    public Object readJson() throws Exception {
+        return gson.fromJson(new InputStreamReader(new ByteArrayInputStream(jsonBytes), "UTF-8"), UsersPageDTO.class);
+    }
+
+    @Benchmark
+    public Object readSjo() throws Exception {
+        return new ObjectInputStream(new ByteArrayInputStream(sjoBytes)).readObject();
+    }
+
+    @Benchmark
+    public Object readMsgPack() throws Exception {
+        return MsgPackCodecs.read(MsgPackCodecs.named().forType(UsersPageDTO.class), new MsgPackInput(new ByteArrayInputStream(msgPackBytes)));
+    }
+
+    @Benchmark
+    public Object readSchema() throws Exception {
+        return MsgPackCodecs.read(MsgPackCodecs.ordinal().forType(Object.class), new MsgPackInput(new ByteArrayInputStream(schemaBytes)));
+    }
+
+    public static void main(String... args) throws Exception {
+        WireFormatBenchmark sizes = new WireFormatBenchmark();
+        sizes.setup();
+        System.out.println("JSON: " + sizes.jsonBytes.length + " bytes, SJO: " + sizes.sjoBytes.length
+                + " bytes, MessagePack: " + sizes.msgPackBytes.length + " bytes, schema MessagePack: " + sizes.schemaBytes.length + " bytes");
+        new Runner(new OptionsBuilder()
+                .include(WireFormatBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
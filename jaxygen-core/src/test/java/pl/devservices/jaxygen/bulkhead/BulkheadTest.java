@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.devservices.jaxygen.bulkhead;
+
+import junit.framework.TestCase;
+import org.jaxygen.bulkhead.Bulkhead;
+
+/**
+ *
+ * @author Artur
+ */
+public class BulkheadTest extends TestCase {
+
+    public BulkheadTest(String testName) {
+        super(testName);
+    }
+
+    public void test_shallRejectCallsOverLimit() {
+        Bulkhead bulkhead = new Bulkhead("test", 2, 0);
+        assertTrue(bulkhead.tryAcquire());
+        assertTrue(bulkhead.tryAcquire());
+        assertFalse(bulkhead.tryAcquire());
+        assertEquals(1, bulkhead.getRejected());
+        bulkhead.release();
+        assertTrue(bulkhead.tryAcquire());
+    }
+
+    public void test_shallApplyChangedLimits() {
+        Bulkhead bulkhead = new Bulkhead("test", 2, 0);
+        assertTrue(bulkhead.tryAcquire());
+        assertTrue(bulkhead.tryAcquire());
+        bulkhead.setLimits(1, 0);
+        assertEquals(-1, bulkhead.getAvailable());
+        bulkhead.release();
+        assertFalse(bulkhead.tryAcquire());
+        bulkhead.release();
+        assertTrue(bulkhead.tryAcquire());
+        bulkhead.setLimits(3, 0);
+        assertTrue(bulkhead.tryAcquire());
+        assertTrue(bulkhead.tryAcquire());
+        assertFalse(bulkhead.tryAcquire());
+    }
+
+    public void test_shallNotWaitWhenAskedToRejectAtOnce() {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 60000);
+        assertTrue(bulkhead.tryAcquire(false));
+        long start = System.nanoTime();
+        assertFalse(bulkhead.tryAcquire(false));
+        assertTrue(System.nanoTime() - start < 1000000000L);
+        assertEquals(1, bulkhead.getRejected());
+    }
+}
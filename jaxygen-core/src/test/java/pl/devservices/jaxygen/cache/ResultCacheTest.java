@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.devservices.jaxygen.cache;
+
+import junit.framework.TestCase;
+import org.jaxygen.cache.ResultCache;
+
+/**
+ *
+ * @author Artur
+ */
+public class ResultCacheTest extends TestCase {
+
+    public ResultCacheTest(String testName) {
+        super(testName);
+    }
+
+    public void test_shallReturnCachedBytes() {
+        ResultCache cache = new ResultCache(10, 60000);
+        assertNull(cache.get("a"));
+        cache.put("a", new byte[]{1, 2, 3});
+        assertEquals(3, cache.get("a").getBody().length);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    public void test_shallDropExpiredEntries() throws Exception {
+        ResultCache cache = new ResultCache(10, 1);
+        cache.put("a", new byte[]{1});
+        Thread.sleep(5);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    public void test_shallBoundTheSize() {
+        ResultCache cache = new ResultCache(32, 60000);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + i, new byte[0]);
+        }
+        assertTrue("size = " + cache.size(), cache.size() <= 32);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.devservices.jaxygen.cache;
+
+import junit.framework.TestCase;
+import org.jaxygen.cache.SingleFlight;
+
+/**
+ *
+ * @author Artur
+ */
+public class SingleFlightTest extends TestCase {
+
+    public SingleFlightTest(String testName) {
+        super(testName);
+    }
+
+    public void test_shallShareTheLeaderResponse() throws Exception {
+        SingleFlight flights = new SingleFlight(1000);
+        final SingleFlight.Flight leader = flights.join("a");
+        assertTrue(leader.isLeader());
+        SingleFlight.Flight follower = flights.join("a");
+        assertFalse(follower.isLeader());
+        assertTrue(flights.join("b").isLeader());
+        new Thread() {
+            @Override
+            public void run() {
+                leader.complete(new byte[]{1, 2});
+            }
+        }.start();
+        assertEquals(2, follower.await().length);
+        assertEquals(1, flights.getCoalesced());
+        assertTrue(flights.join("a").isLeader());
+    }
+
+    public void test_shallNotShareWithoutResponse() throws Exception {
+        SingleFlight flights = new SingleFlight(1000);
+        SingleFlight.Flight leader = flights.join("a");
+        SingleFlight.Flight follower = flights.join("a");
+        leader.release();
+        leader.release();
+        assertNull(follower.await());
+        assertEquals(0, flights.getInFlight());
+    }
+
+    public void test_shallStopWaitingAfterTimeout() throws Exception {
+        SingleFlight flights = new SingleFlight(10);
+        flights.join("a");
+        assertNull(flights.join("a").await());
+    }
+}
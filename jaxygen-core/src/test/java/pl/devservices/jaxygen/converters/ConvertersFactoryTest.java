@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.devservices.jaxygen.converters;
+
+import java.io.OutputStream;
+import junit.framework.TestCase;
+import org.jaxygen.converters.ConvertersFactory;
+import org.jaxygen.converters.ResponseConverter;
+import org.jaxygen.converters.exceptions.SerializationError;
+
+/**
+ *
+ * @author Artur
+ */
+public class ConvertersFactoryTest extends TestCase {
+
+    private static class NamedConverter implements ResponseConverter {
+
+        private final String name;
+
+        NamedConverter(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void serialize(Object object, OutputStream writter) throws SerializationError {
+        }
+    }
+
+    public ConvertersFactoryTest(String testName) {
+        super(testName);
+    }
+
+    public void test_shallReplaceConverterOfTheSameName() {
+        NamedConverter first = new NamedConverter("TEST/REPLACED");
+        NamedConverter second = new NamedConverter("TEST/REPLACED");
+        ConvertersFactory.registerResponseConverter(first);
+        final int revision = ConvertersFactory.getRevision();
+        final int count = ConvertersFactory.getResponseConverters().size();
+        assertSame(first, ConvertersFactory.getResponseConverter("TEST/REPLACED"));
+
+        ConvertersFactory.registerResponseConverter(second);
+        assertSame(second, ConvertersFactory.getResponseConverter("TEST/REPLACED"));
+        assertEquals(count, ConvertersFactory.getResponseConverters().size());
+        assertTrue(ConvertersFactory.getRevision() != revision);
+        assertNull(ConvertersFactory.getResponseConverter("TEST/UNKNOWN"));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.devservices.jaxygen.converters.json;
+
+import java.io.ByteArrayInputStream;
+import junit.framework.TestCase;
+import org.jaxygen.annotations.StringPropertyValidator;
+import org.jaxygen.annotations.Validable;
+import org.jaxygen.converters.json.JsonBodyRequestConverter;
+import org.jaxygen.exceptions.InvalidPropertyFormat;
+import org.jaxygen.util.BeanUtil;
+
+/**
+ *
+ * @author Artur
+ */
+public class JsonBodyRequestConverterTest extends TestCase {
+
+    public static class UserDTO {
+
+        private String name;
+        private int age;
+
+        public String getName() {
+            return name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+    }
+
+    @Validable
+    public static class ValidatedDTO {
+
+        private String name;
+
+        @StringPropertyValidator(minimalLength = 1)
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final JsonBodyRequestConverter converter = new JsonBodyRequestConverter();
+
+    public JsonBodyRequestConverterTest(String testName) {
+        super(testName);
+    }
+
+    private Object[] read(String json, Class<?>[] types, String[] names) throws Exception {
+        return converter.deserialise(new ByteArrayInputStream(json.getBytes("UTF-8")), "UTF-8", types, names);
+    }
+
+    public void test_shallReadSingleParameter() throws Exception {
+        Object[] parameters = read("{\"name\":\"Żaneta\",\"age\":30}", new Class<?>[]{UserDTO.class}, null);
+        UserDTO user = (UserDTO) parameters[0];
+        assertEquals("Żaneta", user.getName());
+        assertEquals(30, user.getAge());
+    }
+
+    public void test_shallReadParametersByPositionOrName() throws Exception {
+        Class<?>[] types = new Class<?>[]{UserDTO.class, Integer.class};
+        Object[] parameters = read("[{\"name\":\"a\"}, 5, \"ignored\"]", types, null);
+        assertEquals("a", ((UserDTO) parameters[0]).getName());
+        assertEquals(5, parameters[1]);
+
+        parameters = read("{\"1\":7,\"other\":{},\"user\":{\"age\":3}}", types, new String[]{"user", "limit"});
+        assertEquals(3, ((UserDTO) parameters[0]).getAge());
+        assertEquals(7, parameters[1]);
+    }
+
+    public void test_shallAcceptEmptyBody() throws Exception {
+        Object[] parameters = read("", new Class<?>[]{UserDTO.class}, null);
+        assertNull(parameters[0]);
+    }
+
+    public void test_shallPassMissingParametersToValidation() throws Exception {
+        Class<?>[] types = new Class<?>[]{ValidatedDTO.class};
+        Object[] parameters = read("", types, null);
+        BeanUtil.validateBeans(parameters);
+        parameters = read("null", types, null);
+        assertNull(parameters[0]);
+        BeanUtil.validateBeans(parameters);
+        try {
+            BeanUtil.validateBeans(read("{}", types, null));
+            fail("InvalidPropertyFormat expected");
+        } catch (InvalidPropertyFormat ex) {
+            // expected, the present bean is still validated
+        }
+    }
+}
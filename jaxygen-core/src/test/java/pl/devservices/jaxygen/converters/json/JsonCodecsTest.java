@@ -0,0 +1,139 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.devservices.jaxygen.converters.json;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+import org.jaxygen.converters.json.codec.JsonCodec;
+import org.jaxygen.converters.json.codec.JsonCodecs;
+import org.jaxygen.converters.json.codec.JsonOutput;
+import org.jaxygen.dto.Response;
+
+/**
+ *
+ * @author Artur
+ */
+public class JsonCodecsTest extends TestCase {
+
+    public enum Color {
+        RED, GREEN
+    }
+
+    public static class BaseDTO {
+
+        private long id;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+    }
+
+    public static class ItemDTO extends BaseDTO {
+
+        private String name;
+        private int count;
+        private double price;
+        private Boolean active;
+        private char letter = 'x';
+        private Color color;
+        private int[] codes;
+        private List<ItemDTO> children;
+        private Map<String, Integer> counters;
+        private Date created;
+        private transient String ignored = "ignored";
+
+        public String getName() {
+            return name;
+        }
+
+        public List<ItemDTO> getChildren() {
+            return children;
+        }
+
+        public Map<String, Integer> getCounters() {
+            return counters;
+        }
+    }
+
+    public JsonCodecsTest(String testName) {
+        super(testName);
+    }
+
+    private static ItemDTO sample() {
+        ItemDTO item = new ItemDTO();
+        item.setId(7);
+        item.name = "<Zażółć \"gęślą\" jaźń>\n ";
+        item.count = -3;
+        item.price = 10.25;
+        item.active = Boolean.TRUE;
+        item.color = Color.GREEN;
+        item.codes = new int[]{1, 2, 3};
+        item.created = new Date(0);
+        item.children = new ArrayList<ItemDTO>();
+        ItemDTO child = new ItemDTO();
+        child.name = "child";
+        item.children.add(child);
+        item.counters = new LinkedHashMap<String, Integer>();
+        item.counters.put("a", 1);
+        item.counters.put("b", null);
+        return item;
+    }
+
+    private static String write(Object o) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JsonOutput out = new JsonOutput(bytes);
+        JsonCodecs.forType(o.getClass()).write(o, out);
+        out.flush();
+        return bytes.toString("UTF-8");
+    }
+
+    public void test_shallWriteTheSameJsonAsGson() throws Exception {
+        ItemDTO item = sample();
+        assertEquals(new Gson().toJson(item), write(item));
+        Response response = new Response(ItemDTO.class, item);
+        assertEquals(new Gson().toJson(response), write(response));
+    }
+
+    public void test_shallReadWrittenJson() throws Exception {
+        ItemDTO item = sample();
+        JsonCodec codec = JsonCodecs.forType(ItemDTO.class);
+        ItemDTO read = (ItemDTO) codec.read(new JsonReader(new StringReader(write(item))));
+        assertEquals(new Gson().toJson(item), write(read));
+        assertEquals(7, read.getId());
+        assertEquals("child", read.getChildren().get(0).getName());
+        assertEquals(Integer.valueOf(1), read.getCounters().get("a"));
+        assertEquals("ignored", read.ignored);
+    }
+
+    public void test_shallSkipUnknownProperties() throws Exception {
+        JsonCodec codec = JsonCodecs.forType(ItemDTO.class);
+        ItemDTO read = (ItemDTO) codec.read(new JsonReader(new StringReader("{\"unknown\":{\"a\":[1]},\"name\":\"n\",\"count\":null}")));
+        assertEquals("n", read.getName());
+        assertEquals(0, read.count);
+    }
+}
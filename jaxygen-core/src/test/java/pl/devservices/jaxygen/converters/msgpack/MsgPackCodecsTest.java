@@ -0,0 +1,440 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.devservices.jaxygen.converters.msgpack;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+import org.jaxygen.annotations.Ordinal;
+import org.jaxygen.converters.msgpack.MsgPackRequestConverter;
+import org.jaxygen.converters.msgpack.MsgPackResponseConverter;
+import org.jaxygen.converters.msgpack.SchemaMsgPackRequestConverter;
+import org.jaxygen.converters.msgpack.SchemaMsgPackResponseConverter;
+import org.jaxygen.converters.msgpack.codec.MsgPackCodecs;
+import org.jaxygen.converters.msgpack.codec.MsgPackInput;
+import org.jaxygen.converters.msgpack.codec.MsgPackOutput;
+import org.jaxygen.dto.ExceptionResponse;
+import org.jaxygen.dto.Response;
+import org.jaxygen.dto.collections.PaginableListResponseBaseDTO;
+import org.jaxygen.util.BeanUtil;
+
+/**
+ *
+ * @author Artur
+ */
+public class MsgPackCodecsTest extends TestCase {
+
+    public enum Sex {
+        MALE, FEMALE
+    }
+
+    public static class UserDTO {
+
+        private String name;
+        private int age;
+        private Sex sex;
+        private Date registered;
+        private Map<String, Long> counters;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+
+        public Sex getSex() {
+            return sex;
+        }
+
+        public void setSex(Sex sex) {
+            this.sex = sex;
+        }
+
+        public Date getRegistered() {
+            return registered;
+        }
+
+        public void setRegistered(Date registered) {
+            this.registered = registered;
+        }
+
+        public Map<String, Long> getCounters() {
+            return counters;
+        }
+
+        public void setCounters(Map<String, Long> counters) {
+            this.counters = counters;
+        }
+    }
+
+    public static class UsersDTO extends PaginableListResponseBaseDTO<UserDTO> {
+    }
+
+    public static class PointDTO {
+
+        private int x;
+        private Integer y;
+
+        public int getX() {
+            return x;
+        }
+
+        public void setX(int x) {
+            this.x = x;
+        }
+
+        public Integer getY() {
+            return y;
+        }
+
+        public void setY(Integer y) {
+            this.y = y;
+        }
+    }
+
+    public static class Point3DTO extends PointDTO {
+
+        private int z;
+
+        public int getZ() {
+            return z;
+        }
+
+        public void setZ(int z) {
+            this.z = z;
+        }
+    }
+
+    public static class ShapeDTO {
+
+        String name;
+    }
+
+    public static class CircleDTO extends ShapeDTO {
+
+        @Ordinal(0)
+        private int radius;
+    }
+
+    // the next version of CircleDTO
+    public static class ColoredCircleDTO extends ShapeDTO {
+
+        @Ordinal(1)
+        private String color;
+        @Ordinal(0)
+        private int radius;
+    }
+
+    public static class PersonDTO {
+
+        @Ordinal(0)
+        private String name;
+    }
+
+    // the next version of PersonDTO, the added field sorts before the old one by name
+    public static class AgedPersonDTO {
+
+        @Ordinal(0)
+        private String name;
+        @Ordinal(1)
+        private int age;
+    }
+
+    public static class UnorderedPersonDTO {
+
+        private String name;
+        private int age;
+    }
+
+    public static class PartlyOrderedPersonDTO {
+
+        @Ordinal(0)
+        private String name;
+        private int age;
+    }
+
+    public static class UnexpectedDTO {
+
+        static int created;
+
+        public UnexpectedDTO() {
+            created++;
+        }
+    }
+
+    public MsgPackCodecsTest(String testName) {
+        super(testName);
+    }
+
+    private static byte[] write(Object value) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new MsgPackResponseConverter().serialize(value, bytes);
+        return bytes.toByteArray();
+    }
+
+    private static Object read(byte[] bytes, Class<?> type) throws Exception {
+        return MsgPackCodecs.read(MsgPackCodecs.named().forType(type), new MsgPackInput(new ByteArrayInputStream(bytes)));
+    }
+
+    public void test_shallUseShortestForms() throws Exception {
+        assertTrue(Arrays.equals(new byte[]{0x05}, write(5)));
+        assertTrue(Arrays.equals(new byte[]{(byte) 0xff}, write(-1)));
+        assertTrue(Arrays.equals(new byte[]{(byte) 0xcc, (byte) 0xc8}, write(200)));
+        assertTrue(Arrays.equals(new byte[]{(byte) 0xd0, (byte) 0xdf}, write(-33)));
+        assertTrue(Arrays.equals(new byte[]{(byte) 0xcd, 0x01, 0x00}, write(256L)));
+        assertTrue(Arrays.equals(new byte[]{(byte) 0xa2, 'h', 'i'}, write("hi")));
+        assertTrue(Arrays.equals(new byte[]{(byte) 0xc0}, write(null)));
+        assertTrue(Arrays.equals(new byte[]{(byte) 0xc3}, write(true)));
+    }
+
+    public void test_shallReadWrittenBean() throws Exception {
+        UserDTO user = new UserDTO();
+        user.setName("\u017baneta");
+        user.setAge(34);
+        user.setSex(Sex.FEMALE);
+        user.setRegistered(new Date(1400000000123L));
+        user.setCounters(new LinkedHashMap<String, Long>());
+        user.getCounters().put("logins", 5000000000L);
+        List<UserDTO> users = new ArrayList<UserDTO>();
+        users.add(user);
+        users.add(new UserDTO());
+        UsersDTO list = new UsersDTO();
+        list.setElements(users);
+        list.setSize(2);
+
+        UsersDTO read = (UsersDTO) read(write(list), UsersDTO.class);
+        assertEquals(2, read.getSize());
+        UserDTO first = read.getElements().get(0);
+        assertEquals("\u017baneta", first.getName());
+        assertEquals(34, first.getAge());
+        assertEquals(Sex.FEMALE, first.getSex());
+        assertEquals(user.getRegistered(), first.getRegistered());
+        assertEquals(Long.valueOf(5000000000L), first.getCounters().get("logins"));
+        assertNull(read.getElements().get(1).getName());
+    }
+
+    public void test_shallWriteResponseEnvelopes() throws Exception {
+        UserDTO user = new UserDTO();
+        user.setName("John");
+        Response response = (Response) read(write(new Response(UserDTO.class, user)), Response.class);
+        assertEquals(UserDTO.class.getCanonicalName(), response.getDto().getResponseClass());
+        // the payload is declared as Object, so it is read as a plain map
+        assertEquals("John", ((Map<?, ?>) response.getDto().getResponseObject()).get("name"));
+
+        ExceptionResponse error = (ExceptionResponse) read(write(new ExceptionResponse("InvalidRequest", "Not found")), ExceptionResponse.class);
+        assertEquals("InvalidRequest", error.getExceptionData().getName());
+        assertEquals("Not found", error.getExceptionData().getDescription());
+    }
+
+    public void test_shallReadParametersFromBody() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MsgPackOutput out = new MsgPackOutput(bytes);
+        out.writeMapHeader(2);
+        out.writeLong(1);
+        out.writeLong(7);
+        out.writeString(String.class.getName());
+        out.writeString("text");
+        out.flush();
+        Object[] parameters = new MsgPackRequestConverter().deserialise(new ByteArrayInputStream(bytes.toByteArray()), null,
+                new Class<?>[]{String.class, Integer.class}, null);
+        assertEquals("text", parameters[0]);
+        assertEquals(7, parameters[1]);
+    }
+
+    public void test_shallPassMissingParametersToValidation() throws Exception {
+        Class<?>[] types = new Class<?>[]{UserDTO.class};
+        Object[] parameters = new MsgPackRequestConverter().deserialise(new ByteArrayInputStream(new byte[0]), null, types, null);
+        assertNull(parameters[0]);
+        BeanUtil.validateBeans(parameters);
+        parameters = new SchemaMsgPackRequestConverter().deserialise(new ByteArrayInputStream(new byte[]{(byte) 0xc0}), null, types, null);
+        assertNull(parameters[0]);
+        BeanUtil.validateBeans(parameters);
+    }
+
+    public void test_shallSkipUnknownProperties() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MsgPackOutput out = new MsgPackOutput(bytes);
+        out.writeMapHeader(2);
+        out.writeString("unknown");
+        out.writeArrayHeader(2);
+        out.writeDouble(1.5);
+        out.writeBinary(new byte[300]);
+        out.writeString("age");
+        out.writeLong(40);
+        out.flush();
+        UserDTO user = (UserDTO) read(bytes.toByteArray(), UserDTO.class);
+        assertEquals(40, user.getAge());
+    }
+
+    public void test_shallWriteSchemaFormByOrdinal() throws Exception {
+        PointDTO point = new PointDTO();
+        point.setX(3);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MsgPackOutput out = new MsgPackOutput(bytes);
+        MsgPackCodecs.ordinal().forType(PointDTO.class).write(point, out);
+        out.flush();
+        // no property names, the trailing null is left out
+        assertTrue(Arrays.equals(new byte[]{(byte) 0x91, 0x03}, bytes.toByteArray()));
+    }
+
+    public void test_shallReadTypedResponseInSchemaForm() throws Exception {
+        UserDTO user = new UserDTO();
+        user.setName("John");
+        user.setSex(Sex.MALE);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new SchemaMsgPackResponseConverter().serialize(new Response(UserDTO.class, user), bytes);
+        MsgPackCodecs codecs = MsgPackCodecs.ordinal();
+        Response response = (Response) MsgPackCodecs.read(codecs.forType(Object.class), new MsgPackInput(new ByteArrayInputStream(bytes.toByteArray())));
+        UserDTO read = (UserDTO) response.getDto().getResponseObject();
+        assertEquals("John", read.getName());
+        assertEquals(Sex.MALE, read.getSex());
+
+        bytes.reset();
+        new SchemaMsgPackResponseConverter().serialize(new ExceptionResponse("InvalidRequest", "Not found"), bytes);
+        Object error = MsgPackCodecs.read(codecs.forType(Object.class), new MsgPackInput(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals("Not found", ((ExceptionResponse) error).getExceptionData().getDescription());
+    }
+
+    public void test_shallToleratePropertiesAppendedToSchema() throws Exception {
+        MsgPackCodecs codecs = MsgPackCodecs.ordinal();
+        Point3DTO point = new Point3DTO();
+        point.setZ(1);
+        point.setX(2);
+        point.setY(3);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MsgPackOutput out = new MsgPackOutput(bytes);
+        codecs.forType(Point3DTO.class).write(point, out);
+        out.flush();
+        Object read = MsgPackCodecs.read(codecs.forType(Point3DTO.class), new MsgPackInput(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(1, ((Point3DTO) read).getZ());
+        assertEquals(Integer.valueOf(3), ((Point3DTO) read).getY());
+
+        bytes.reset();
+        out = new MsgPackOutput(bytes);
+        out.writeArrayHeader(3);
+        out.writeLong(5);
+        out.writeNil();
+        // a property the reader does not know yet
+        out.writeString("added later");
+        out.flush();
+        PointDTO base = (PointDTO) MsgPackCodecs.read(codecs.forType(PointDTO.class), new MsgPackInput(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(5, base.getX());
+        assertNull(base.getY());
+    }
+
+    private static byte[] writeOrdinal(Object value) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MsgPackOutput out = new MsgPackOutput(bytes);
+        MsgPackCodecs.ordinal().forType(value.getClass()).write(value, out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Object readOrdinal(byte[] bytes, Class<?> type) throws Exception {
+        return MsgPackCodecs.read(MsgPackCodecs.ordinal().forType(type), new MsgPackInput(new ByteArrayInputStream(bytes)));
+    }
+
+    public void test_shallToleratePropertiesAppendedToSubclass() throws Exception {
+        ColoredCircleDTO colored = new ColoredCircleDTO();
+        colored.name = "wheel";
+        colored.radius = 7;
+        colored.color = "red";
+        CircleDTO circle = (CircleDTO) readOrdinal(writeOrdinal(colored), CircleDTO.class);
+        assertEquals("wheel", circle.name);
+        assertEquals(7, circle.radius);
+
+        circle.radius = 3;
+        colored = (ColoredCircleDTO) readOrdinal(writeOrdinal(circle), ColoredCircleDTO.class);
+        assertEquals("wheel", colored.name);
+        assertEquals(3, colored.radius);
+        assertNull(colored.color);
+    }
+
+    public void test_shallKeepOrdinalsWhenEarlierSortingFieldIsAdded() throws Exception {
+        AgedPersonDTO aged = new AgedPersonDTO();
+        aged.name = "John";
+        aged.age = 40;
+        PersonDTO person = (PersonDTO) readOrdinal(writeOrdinal(aged), PersonDTO.class);
+        assertEquals("John", person.name);
+
+        aged = (AgedPersonDTO) readOrdinal(writeOrdinal(person), AgedPersonDTO.class);
+        assertEquals("John", aged.name);
+        assertEquals(0, aged.age);
+    }
+
+    public void test_shallOrderFieldsWithoutOrdinalsByName() throws Exception {
+        UnorderedPersonDTO person = new UnorderedPersonDTO();
+        person.name = "J";
+        person.age = 40;
+        // age goes first, so adding it moved the name
+        assertTrue(Arrays.equals(new byte[]{(byte) 0x92, 0x28, (byte) 0xa1, 'J'}, writeOrdinal(person)));
+    }
+
+    public void test_shallRejectPartlyOrderedClass() throws Exception {
+        try {
+            writeOrdinal(new PartlyOrderedPersonDTO());
+            fail("The class annotates only some of its fields");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage().contains(PartlyOrderedPersonDTO.class.getName()));
+        }
+    }
+
+    public void test_shallRejectUnexpectedClassInTypedValue() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MsgPackOutput out = new MsgPackOutput(bytes);
+        out.writeArrayHeader(2);
+        out.writeString(UnexpectedDTO.class.getName());
+        out.writeArrayHeader(0);
+        out.flush();
+        try {
+            readOrdinal(bytes.toByteArray(), Object.class);
+            fail("IOException expected");
+        } catch (IOException ex) {
+            // expected
+        }
+        assertEquals(0, UnexpectedDTO.created);
+
+        bytes.reset();
+        out = new MsgPackOutput(bytes);
+        out.writeArrayHeader(2);
+        out.writeString(Object.class.getName());
+        out.writeNil();
+        out.flush();
+        try {
+            readOrdinal(bytes.toByteArray(), Object.class);
+            fail("IOException expected");
+        } catch (IOException ex) {
+            // expected
+        }
+    }
+}
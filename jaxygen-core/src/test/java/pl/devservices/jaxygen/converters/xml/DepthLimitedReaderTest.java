@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.devservices.jaxygen.converters.xml;
+
+import java.io.StringReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import junit.framework.TestCase;
+import org.jaxygen.converters.xml.DepthLimitedReader;
+
+/**
+ *
+ * @author Artur
+ */
+public class DepthLimitedReaderTest extends TestCase {
+
+    public DepthLimitedReaderTest(String testName) {
+        super(testName);
+    }
+
+    private static String nested(int depth) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            sb.append("<e>");
+        }
+        sb.append("text");
+        for (int i = 0; i < depth; i++) {
+            sb.append("</e>");
+        }
+        return sb.toString();
+    }
+
+    private static int readAll(String xml, int maxDepth) throws XMLStreamException {
+        XMLStreamReader reader = new DepthLimitedReader(XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(xml)), maxDepth);
+        int elements = 0;
+        while (reader.hasNext()) {
+            if (reader.next() == XMLStreamReader.START_ELEMENT) {
+                elements++;
+            }
+        }
+        return elements;
+    }
+
+    public void test_shallReadDocumentWithinLimit() throws Exception {
+        assertEquals(8, readAll(nested(8), 8));
+        // siblings do not add to the depth
+        assertEquals(4, readAll("<a><b/><b/><b/></a>", 2));
+    }
+
+    public void test_shallRejectDocumentNestedTooDeep() throws Exception {
+        try {
+            readAll(nested(9), 8);
+            fail("XMLStreamException expected");
+        } catch (XMLStreamException ex) {
+            assertTrue(ex.getMessage().contains("nested deeper than 8"));
+        }
+    }
+
+    public void test_shallTrackDepthInNextTag() throws Exception {
+        XMLStreamReader reader = new DepthLimitedReader(XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(nested(3))), 2);
+        reader.nextTag();
+        reader.nextTag();
+        try {
+            reader.nextTag();
+            fail("XMLStreamException expected");
+        } catch (XMLStreamException ex) {
+            // expected
+        }
+    }
+}
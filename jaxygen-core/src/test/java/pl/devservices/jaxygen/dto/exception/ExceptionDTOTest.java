@@ -82,4 +82,15 @@ public class ExceptionDTOTest extends TestCase {
         assertEquals(10, values.get("intProperty"));
         assertEquals("Test string to test", values.get("strProperty"));
     }
+
+    public void test_shallLimitStackTrace() {
+        Exception ex = new IllegalStateException("outer", new TestException());
+
+        assertNull(new ExceptionResponse(ex, "Test exception", 0).getExceptionData().getStackTrace());
+
+        String trace = new ExceptionResponse(ex, "Test exception", 1).getExceptionData().getStackTrace();
+        assertTrue(trace, trace.startsWith("java.lang.IllegalStateException: outer\n\tat "));
+        assertTrue(trace, trace.contains("Caused by: "));
+        assertEquals(trace, 2, trace.split("\tat ").length - 1);
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.devservices.jaxygen.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import junit.framework.TestCase;
+import org.apache.commons.io.IOUtils;
+import org.jaxygen.http.CompressingOutputStream;
+import org.jaxygen.http.CompressingOutputStream.Encoding;
+import org.jaxygen.http.DeflaterPool;
+
+/**
+ *
+ * @author Artur
+ */
+public class CompressingOutputStreamTest extends TestCase {
+
+    public CompressingOutputStreamTest(String testName) {
+        super(testName);
+    }
+
+    public void test_shallNegotiateEncoding() {
+        assertNull(CompressingOutputStream.negotiate(null));
+        assertNull(CompressingOutputStream.negotiate("identity"));
+        assertEquals(Encoding.gzip, CompressingOutputStream.negotiate("deflate, gzip"));
+        assertEquals(Encoding.deflate, CompressingOutputStream.negotiate("deflate, gzip;q=0.8"));
+        assertEquals(Encoding.deflate, CompressingOutputStream.negotiate("gzip;q=0, deflate"));
+        assertEquals(Encoding.deflate, CompressingOutputStream.negotiate("deflate"));
+    }
+
+    public void test_shallPreferHigherQuality() {
+        assertEquals(Encoding.deflate, CompressingOutputStream.negotiate("deflate;q=1, gzip;q=0.1"));
+        assertEquals(Encoding.gzip, CompressingOutputStream.negotiate("deflate;q=0.5, gzip"));
+    }
+
+    public void test_shallApplyWildcardToUnlistedCodings() {
+        assertEquals(Encoding.deflate, CompressingOutputStream.negotiate("gzip;q=0, *"));
+        assertEquals(Encoding.gzip, CompressingOutputStream.negotiate("*"));
+        assertNull(CompressingOutputStream.negotiate("*;q=0"));
+        assertNull(CompressingOutputStream.negotiate("gzip;q=0, deflate;q=0, *"));
+    }
+
+    public void test_shallFlushCompressedData() throws Exception {
+        byte[] data = new byte[2000];
+        Arrays.fill(data, (byte) 'a');
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompressingOutputStream deflate = new CompressingOutputStream(out, Encoding.deflate, new DeflaterPool(6, false, 2), 1024);
+        deflate.write(data);
+        deflate.flush();
+        // the flushed part decodes before the stream is closed
+        InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(out.toByteArray()));
+        byte[] decoded = new byte[data.length];
+        new DataInputStream(in).readFully(decoded);
+        assertTrue(Arrays.equals(data, decoded));
+        deflate.close();
+    }
+
+    public void test_shallCompressLargeBodies() throws Exception {
+        byte[] data = new byte[10000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + i % 7);
+        }
+        DeflaterPool pool = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, true, 2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompressingOutputStream gzip = new CompressingOutputStream(out, Encoding.gzip, pool, 1024);
+        gzip.write(data, 0, 100);
+        assertFalse(gzip.isCompressing());
+        gzip.write(data, 100, data.length - 100);
+        assertTrue(gzip.isCompressing());
+        gzip.close();
+        assertTrue(out.size() < data.length / 10);
+        byte[] decoded = IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())));
+        assertTrue(Arrays.equals(data, decoded));
+
+        out = new ByteArrayOutputStream();
+        CompressingOutputStream deflate = new CompressingOutputStream(out, Encoding.deflate, new DeflaterPool(1, false, 2), 1024);
+        deflate.write(data);
+        deflate.close();
+        decoded = IOUtils.toByteArray(new InflaterInputStream(new ByteArrayInputStream(out.toByteArray())));
+        assertTrue(Arrays.equals(data, decoded));
+    }
+
+    public void test_shallNotCompressSmallBodies() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompressingOutputStream gzip = new CompressingOutputStream(out, Encoding.gzip, new DeflaterPool(6, true, 2), 1024);
+        gzip.write("{\"a\":1}".getBytes("UTF-8"));
+        gzip.close();
+        assertFalse(gzip.isCompressing());
+        assertEquals("{\"a\":1}", out.toString("UTF-8"));
+    }
+}
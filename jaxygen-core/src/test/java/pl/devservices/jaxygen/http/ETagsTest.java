@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.devservices.jaxygen.http;
+
+import junit.framework.TestCase;
+import org.jaxygen.http.ETags;
+
+/**
+ *
+ * @author Artur
+ */
+public class ETagsTest extends TestCase {
+
+    public ETagsTest(String testName) {
+        super(testName);
+    }
+
+    public void test_shallTagEqualBodiesEqually() {
+        String tag = ETags.fromBytes("{\"a\":1}".getBytes());
+        assertEquals(tag, ETags.fromBytes("{\"a\":1}".getBytes()));
+        assertFalse(tag.equals(ETags.fromBytes("{\"a\":2}".getBytes())));
+        assertTrue(tag.startsWith("\"") && tag.endsWith("\""));
+        assertFalse(ETags.fromVersion("7", "JSON").equals(ETags.fromVersion("7", "XML")));
+    }
+
+    public void test_shallMatchIfNoneMatchHeader() {
+        String tag = ETags.fromBytes(new byte[]{1, 2, 3});
+        assertFalse(ETags.matches(null, tag));
+        assertTrue(ETags.matches(tag, tag));
+        assertTrue(ETags.matches("\"x\", W/" + tag, tag));
+        assertTrue(ETags.matches("*", tag));
+        assertFalse(ETags.matches("\"x\"", tag));
+    }
+
+    public void test_shallMakeWeakTags() {
+        String tag = ETags.fromBytes(new byte[]{1, 2, 3});
+        String weak = ETags.weak(tag);
+        assertEquals("W/" + tag, weak);
+        assertEquals(weak, ETags.weak(weak));
+        assertTrue(ETags.matches(tag, weak));
+        assertTrue(ETags.matches(weak, weak));
+    }
+}
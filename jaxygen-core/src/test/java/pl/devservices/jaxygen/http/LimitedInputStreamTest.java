@@ -0,0 +1,49 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.devservices.jaxygen.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import junit.framework.TestCase;
+import org.apache.commons.io.IOUtils;
+import org.jaxygen.http.LimitedInputStream;
+
+/**
+ *
+ * @author Artur
+ */
+public class LimitedInputStreamTest extends TestCase {
+
+    public LimitedInputStreamTest(String testName) {
+        super(testName);
+    }
+
+    public void test_shallReadWithinLimit() throws Exception {
+        InputStream is = new LimitedInputStream(new ByteArrayInputStream(new byte[100]), 100);
+        assertEquals(100, IOUtils.toByteArray(is).length);
+    }
+
+    public void test_shallFailAboveLimit() throws Exception {
+        InputStream is = new LimitedInputStream(new ByteArrayInputStream(new byte[101]), 100);
+        try {
+            IOUtils.toByteArray(is);
+            fail("IOException expected");
+        } catch (IOException ex) {
+            // expected
+        }
+    }
+}
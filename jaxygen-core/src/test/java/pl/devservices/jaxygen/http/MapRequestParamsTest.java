@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.devservices.jaxygen.http;
+
+import java.util.HashMap;
+import java.util.Map;
+import junit.framework.TestCase;
+import org.jaxygen.exceptions.InvalidRequestParameter;
+import org.jaxygen.http.MapRequestParams;
+
+/**
+ *
+ * @author Artur
+ */
+public class MapRequestParamsTest extends TestCase {
+
+    public MapRequestParamsTest(String testName) {
+        super(testName);
+    }
+
+    public void test_shallReadTypedValues() throws Exception {
+        Map<String, String> values = new HashMap<String, String>();
+        values.put("name", "John");
+        values.put("age", "42");
+        values.put("active", "true");
+        values.put("ids[0]", "1");
+        values.put("ids[1]", "2");
+        MapRequestParams params = new MapRequestParams(values);
+        assertEquals("John", params.getAsString("name", 0, 10, true));
+        assertEquals("JSON", params.getAsString("inputType", 0, 32, "JSON"));
+        assertEquals(42, params.getAsInt("age", 0, 100, true));
+        assertTrue(params.getAsBoolean("active", true));
+        assertEquals(2, params.getAsListOfInt("ids").size());
+    }
+
+    public void test_shallReportMissingMandatoryValue() {
+        MapRequestParams params = new MapRequestParams(new HashMap<String, String>());
+        try {
+            params.getAsString("name", 0, 10, true);
+            fail("InvalidRequestParameter expected");
+        } catch (InvalidRequestParameter ex) {
+            // expected
+        }
+    }
+}
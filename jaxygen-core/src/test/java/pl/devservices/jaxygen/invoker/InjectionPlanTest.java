@@ -0,0 +1,116 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.devservices.jaxygen.invoker;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import javax.servlet.http.HttpSession;
+import junit.framework.TestCase;
+import org.jaxygen.annotations.ClientIp;
+import org.jaxygen.annotations.SessionContext;
+import org.jaxygen.invoker.InjectionPlan;
+import org.jaxygen.security.SecurityProfile;
+import org.jaxygen.security.annotations.SecurityContext;
+
+/**
+ *
+ * @author Artur
+ */
+public class InjectionPlanTest extends TestCase {
+
+    public static class PlainService {
+
+        private String name;
+    }
+
+    public static class BaseService {
+
+        @SecurityContext
+        private SecurityProfile profile;
+        @ClientIp
+        private String baseIp;
+
+        SecurityProfile getProfile() {
+            return profile;
+        }
+
+        String getBaseIp() {
+            return baseIp;
+        }
+    }
+
+    public static class DerivedService extends BaseService {
+
+        @SessionContext
+        private HttpSession session;
+        @ClientIp
+        private String ip;
+    }
+
+    public InjectionPlanTest(String testName) {
+        super(testName);
+    }
+
+    public void test_shallFindNoFieldsInPlainClass() {
+        InjectionPlan plan = InjectionPlan.forClass(PlainService.class);
+        assertFalse(plan.hasSecurityContext());
+        assertFalse(plan.hasSessionContext());
+        assertFalse(plan.hasClientIp());
+    }
+
+    public void test_shallFindAnnotatedFields() {
+        InjectionPlan plan = InjectionPlan.forClass(BaseService.class);
+        assertTrue(plan.hasSecurityContext());
+        assertFalse(plan.hasSessionContext());
+        assertTrue(plan.hasClientIp());
+    }
+
+    public void test_shallFindInheritedFields() {
+        InjectionPlan plan = InjectionPlan.forClass(DerivedService.class);
+        assertTrue(plan.hasSecurityContext());
+        assertTrue(plan.hasSessionContext());
+        assertTrue(plan.hasClientIp());
+    }
+
+    public void test_shallShareThePlanOfClass() {
+        assertSame(InjectionPlan.forClass(DerivedService.class), InjectionPlan.forClass(DerivedService.class));
+    }
+
+    public void test_shallInjectDeclaredAndInheritedFields() throws Exception {
+        SecurityProfile profile = proxy(SecurityProfile.class);
+        HttpSession session = proxy(HttpSession.class);
+        DerivedService service = new DerivedService();
+        InjectionPlan plan = InjectionPlan.forClass(DerivedService.class);
+
+        plan.injectContext(service, session, profile);
+        plan.injectClientIp(service, "10.0.0.1");
+
+        assertSame(profile, service.getProfile());
+        assertSame(session, service.session);
+        assertEquals("10.0.0.1", service.ip);
+        assertEquals("10.0.0.1", service.getBaseIp());
+        assertSame(profile, plan.readSecurityProfile(service));
+    }
+
+    private static <T> T proxy(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return null;
+            }
+        }));
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.devservices.jaxygen.invoker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import junit.framework.TestCase;
+import org.jaxygen.annotations.NetAPI;
+import org.jaxygen.annotations.ResponseCache;
+import org.jaxygen.annotations.RunOnVirtualThread;
+import org.jaxygen.invoker.ClassRegistry;
+import org.jaxygen.invoker.ServiceEndpoint;
+import org.jaxygen.invoker.ServiceRoutingTable;
+import org.jaxygen.security.SecurityProfile;
+import org.jaxygen.security.annotations.LoginMethod;
+import org.jaxygen.security.annotations.Secured;
+import org.jaxygen.security.annotations.SecurityContext;
+
+/**
+ *
+ * @author Artur
+ */
+public class ServiceRoutingTableTest extends TestCase {
+
+    public static class SampleService {
+
+        @NetAPI
+        public String hello() {
+            return "hello";
+        }
+
+        @NetAPI
+        @Secured
+        @LoginMethod
+        public String login(String name) {
+            return name;
+        }
+
+        public String notExposed() {
+            return "";
+        }
+    }
+
+    public static class AsyncService {
+
+        @NetAPI
+        public CompletableFuture<String> hello() {
+            return CompletableFuture.completedFuture("hello");
+        }
+    }
+
+    public static class CachedService {
+
+        @NetAPI
+        @ResponseCache
+        public String dictionary() {
+            return "";
+        }
+
+        @NetAPI
+        @Secured
+        @ResponseCache
+        public String account() {
+            return "";
+        }
+    }
+
+    public static class ContextCachedService {
+
+        @SecurityContext
+        private SecurityProfile profile;
+
+        @NetAPI
+        @ResponseCache
+        public String account() {
+            return "";
+        }
+    }
+
+    @RunOnVirtualThread
+    public static class BlockingService {
+
+        @NetAPI
+        public String hello() {
+            return "hello";
+        }
+    }
+
+    public static class Registry implements ClassRegistry {
+
+        public List<Class> getRegisteredClasses() {
+            List<Class> classes = new ArrayList<Class>();
+            classes.add(SampleService.class);
+            return classes;
+        }
+    }
+
+    public ServiceRoutingTableTest(String testName) {
+        super(testName);
+    }
+
+    public void test_shallResolveRegisteredMethods() throws Exception {
+        ServiceRoutingTable table = new ServiceRoutingTable("pl.devservices.jaxygen.invoker", new Registry());
+        assertEquals(2, table.getRegisteredEndpoints().size());
+
+        ServiceEndpoint hello = table.lookup("ServiceRoutingTableTest$SampleService", "hello");
+        assertNotNull(hello);
+        assertEquals(SampleService.class, hello.getServiceClass());
+        assertEquals(String.class, hello.getResponseType());
+        assertFalse(hello.isSecured());
+        assertFalse(hello.isSessionUsed());
+
+        ServiceEndpoint login = table.lookup("ServiceRoutingTableTest$SampleService", "login");
+        assertTrue(login.isSecured());
+        assertTrue(login.isLoginMethod());
+        assertFalse(login.isLogoutMethod());
+        assertTrue(login.isSessionRequired());
+        assertEquals(1, login.getParameterTypes().length);
+    }
+
+    public void test_shallNotExposeMethodsWithoutNetAPI() throws Exception {
+        ServiceRoutingTable table = new ServiceRoutingTable("pl.devservices.jaxygen.invoker", new Registry());
+        assertNull(table.lookup("ServiceRoutingTableTest$SampleService", "notExposed"));
+    }
+
+    public void test_shallResolveUnregisteredClassOnDemand() throws Exception {
+        ServiceRoutingTable table = new ServiceRoutingTable("pl.devservices.jaxygen.invoker");
+        assertTrue(table.getRegisteredEndpoints().isEmpty());
+        ServiceEndpoint hello = table.lookup("ServiceRoutingTableTest$SampleService", "hello");
+        assertNotNull(hello);
+        assertSame(hello, table.lookup("ServiceRoutingTableTest$SampleService", "hello"));
+    }
+
+    public void test_shallDetectAsynchronousMethods() throws Exception {
+        ServiceRoutingTable table = new ServiceRoutingTable("pl.devservices.jaxygen.invoker");
+        ServiceEndpoint hello = table.lookup("ServiceRoutingTableTest$AsyncService", "hello");
+        assertTrue(hello.isAsynchronous());
+        assertEquals(String.class, hello.getResultType());
+        assertFalse(table.lookup("ServiceRoutingTableTest$SampleService", "hello").isAsynchronous());
+    }
+
+    public void test_shallDetectVirtualThreadMethods() throws Exception {
+        ServiceRoutingTable table = new ServiceRoutingTable("pl.devservices.jaxygen.invoker");
+        assertTrue(table.lookup("ServiceRoutingTableTest$BlockingService", "hello").isVirtualThread());
+        assertFalse(table.lookup("ServiceRoutingTableTest$SampleService", "hello").isVirtualThread());
+    }
+
+    public void test_shallCacheUserBoundResponsesPerSession() throws Exception {
+        ServiceRoutingTable table = new ServiceRoutingTable("pl.devservices.jaxygen.invoker");
+        assertFalse(table.lookup("ServiceRoutingTableTest$CachedService", "dictionary").isCachePerSession());
+        assertTrue(table.lookup("ServiceRoutingTableTest$CachedService", "account").isCachePerSession());
+        assertTrue(table.lookup("ServiceRoutingTableTest$ContextCachedService", "account").isCachePerSession());
+    }
+
+    public void test_shallReportUnknownClass() {
+        ServiceRoutingTable table = new ServiceRoutingTable("pl.devservices.jaxygen.invoker");
+        try {
+            table.lookup("NoSuchService", "hello");
+            fail("ClassNotFoundException expected");
+        } catch (ClassNotFoundException ex) {
+            // expected
+        }
+        try {
+            table.lookup("NoSuchService", "hello");
+            fail("ClassNotFoundException expected");
+        } catch (ClassNotFoundException ex) {
+            assertEquals("pl.devservices.jaxygen.invoker.NoSuchService", ex.getMessage());
+        }
+    }
+
+    public void test_shallReportUnknownMethodRepeatedly() throws Exception {
+        ServiceRoutingTable table = new ServiceRoutingTable("pl.devservices.jaxygen.invoker");
+        assertNull(table.lookup("ServiceRoutingTableTest$SampleService", "noSuchMethod"));
+        assertNull(table.lookup("ServiceRoutingTableTest$SampleService", "noSuchMethod"));
+        assertNotNull(table.lookup("ServiceRoutingTableTest$SampleService", "hello"));
+    }
+
+    public void test_shallNotRebuildEndpointsOnUnknownMethods() throws Exception {
+        ServiceRoutingTable registered = new ServiceRoutingTable("pl.devservices.jaxygen.invoker", new Registry());
+        for (int i = 0; i < 10; i++) {
+            assertNull(registered.lookup("ServiceRoutingTableTest$SampleService", "junk" + i));
+        }
+        assertEquals(2, registered.getEndpoints().size());
+
+        ServiceRoutingTable onDemand = new ServiceRoutingTable("pl.devservices.jaxygen.invoker");
+        ServiceEndpoint hello = onDemand.lookup("ServiceRoutingTableTest$SampleService", "hello");
+        for (int i = 0; i < 10; i++) {
+            assertNull(onDemand.lookup("ServiceRoutingTableTest$SampleService", "junk" + i));
+        }
+        assertEquals(2, onDemand.getEndpoints().size());
+        assertSame(hello, onDemand.lookup("ServiceRoutingTableTest$SampleService", "hello"));
+    }
+}
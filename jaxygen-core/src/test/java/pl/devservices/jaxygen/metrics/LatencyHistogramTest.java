@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.devservices.jaxygen.metrics;
+
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import junit.framework.TestCase;
+import org.jaxygen.metrics.EndpointMetrics;
+import org.jaxygen.metrics.LatencyHistogram;
+import org.jaxygen.metrics.MetricsWriter;
+import org.jaxygen.metrics.Phase;
+
+/**
+ *
+ * @author Artur
+ */
+public class LatencyHistogramTest extends TestCase {
+
+    public LatencyHistogramTest(String testName) {
+        super(testName);
+    }
+
+    public void test_shallReportPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentileMicros(0.99));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        long p50 = histogram.getPercentileMicros(0.5);
+        assertTrue("p50 = " + p50, p50 >= 500 && p50 <= 500 * 1.125);
+        long p99 = histogram.getPercentileMicros(0.99);
+        assertTrue("p99 = " + p99, p99 >= 990 && p99 <= 990 * 1.125);
+    }
+
+    public void test_shallNotChangeSnapshotByLaterCalls() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        long p50 = snapshot.getPercentileMicros(0.5);
+        for (int i = 0; i < 1000; i++) {
+            histogram.record(1000000000L);
+        }
+        assertEquals(100, snapshot.getCount());
+        assertEquals(5050000L, snapshot.getSumNanos());
+        assertEquals(p50, snapshot.getPercentileMicros(0.5));
+        assertTrue(snapshot.getPercentileMicros(0.99) <= 100 * 1.125);
+        assertTrue(histogram.getPercentileMicros(0.5) >= 1000000);
+    }
+
+    public void test_shallWritePrometheusSamples() throws Exception {
+        EndpointMetrics metrics = new EndpointMetrics();
+        metrics.callFinished(metrics.callStarted(), true);
+        metrics.recordPhase(Phase.INVOKE, 2000000);
+        Map<String, EndpointMetrics> all = new TreeMap<String, EndpointMetrics>();
+        all.put("UserService/getUser", metrics);
+        StringWriter out = new StringWriter();
+        MetricsWriter.writePrometheus(all, out);
+        assertTrue(out.toString().contains("jaxygen_calls_total{endpoint=\"UserService/getUser\"} 1\n"));
+        assertTrue(out.toString().contains("jaxygen_errors_total{endpoint=\"UserService/getUser\"} 1\n"));
+        assertTrue(out.toString().contains("jaxygen_in_flight{endpoint=\"UserService/getUser\"} 0\n"));
+        assertTrue(out.toString().contains("jaxygen_phase_seconds_count{endpoint=\"UserService/getUser\",phase=\"invoke\"} 1\n"));
+        assertFalse(out.toString().contains("phase=\"parse\""));
+    }
+}
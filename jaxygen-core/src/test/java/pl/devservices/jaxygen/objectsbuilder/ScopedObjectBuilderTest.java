@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 Artur.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.devservices.jaxygen.objectsbuilder;
+
+import javax.servlet.http.HttpSession;
+import junit.framework.TestCase;
+import org.jaxygen.annotations.Scope;
+import org.jaxygen.annotations.ServiceScope;
+import org.jaxygen.annotations.SessionContext;
+import org.jaxygen.objectsbuilder.ScopedObjectBuilder;
+import org.jaxygen.objectsbuilder.exceptions.ObjectCreateError;
+
+/**
+ *
+ * @author Artur
+ */
+public class ScopedObjectBuilderTest extends TestCase {
+
+    public static class RequestService {
+    }
+
+    @ServiceScope(Scope.Singleton)
+    public static class SingletonService {
+    }
+
+    @ServiceScope(value = Scope.Pooled, poolSize = 2)
+    public static class PooledService {
+    }
+
+    @ServiceScope(value = Scope.Pooled, poolSize = 1, maxWaitMillis = 10)
+    public static class SinglePooledService {
+    }
+
+    @ServiceScope(Scope.Singleton)
+    public static class SessionBoundSingleton {
+
+        @SessionContext
+        private HttpSession session;
+    }
+
+    public ScopedObjectBuilderTest(String testName) {
+        super(testName);
+    }
+
+    public void test_shallCreateNewInstanceForRequestScope() throws Exception {
+        ScopedObjectBuilder builder = new ScopedObjectBuilder();
+        Object first = builder.create(RequestService.class);
+        builder.release(RequestService.class, first);
+        assertNotSame(first, builder.create(RequestService.class));
+    }
+
+    public void test_shallShareSingleton() throws Exception {
+        ScopedObjectBuilder builder = new ScopedObjectBuilder();
+        assertSame(builder.create(SingletonService.class), builder.create(SingletonService.class));
+    }
+
+    public void test_shallReusePooledInstance() throws Exception {
+        ScopedObjectBuilder builder = new ScopedObjectBuilder();
+        Object first = builder.create(PooledService.class);
+        Object second = builder.create(PooledService.class);
+        assertNotSame(first, second);
+        builder.release(PooledService.class, first);
+        builder.release(PooledService.class, second);
+        assertSame(first, builder.create(PooledService.class));
+        assertSame(second, builder.create(PooledService.class));
+    }
+
+    public void test_shallLimitPooledInstances() throws Exception {
+        ScopedObjectBuilder builder = new ScopedObjectBuilder();
+        Object first = builder.create(SinglePooledService.class);
+        try {
+            builder.create(SinglePooledService.class);
+            fail("ObjectCreateError expected");
+        } catch (ObjectCreateError ex) {
+            // expected
+        }
+        builder.release(SinglePooledService.class, first);
+        assertSame(first, builder.create(SinglePooledService.class));
+    }
+
+    public void test_shallRejectSessionBoundSingleton() {
+        ScopedObjectBuilder builder = new ScopedObjectBuilder();
+        try {
+            builder.create(SessionBoundSingleton.class);
+            fail("ObjectCreateError expected");
+        } catch (ObjectCreateError ex) {
+            // expected
+        }
+    }
+}
@@ -17,8 +17,12 @@
 package pl.devservices.netservice.netserviceframework;
 
 import com.google.gson.Gson;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import junit.framework.TestCase;
 import org.jaxygen.converters.properties.PropertiesToBeanConverter;
+import org.jaxygen.network.UploadedFile;
 import pl.devservices.netservice.netserviceframework.pojo.Pojo;
 
 /**
@@ -51,4 +55,13 @@ public class TypeConvertersTest extends TestCase {
     Pojo pojo = gson.fromJson("{doubleValue:'123'}", Pojo.class);
     assertEquals(123.0d, pojo.getDoubleValue());
   }
+
+  public void test_shallFillPreparedBean() throws Exception {
+    new PropertiesToBeanConverter().prepare(Pojo.class);
+    Map<String, String> properties = new HashMap<String, String>();
+    properties.put("doubleValue", "12.5");
+    Pojo pojo = (Pojo) PropertiesToBeanConverter.convertPropertiesToBean(properties,
+            Collections.<String, UploadedFile>emptyMap(), Pojo.class);
+    assertEquals(12.5d, pojo.getDoubleValue());
+  }
 }